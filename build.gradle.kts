@@ -36,9 +36,15 @@ android {
 }
 
 dependencies {
+    // Platform independent event pipeline, also used by the JMH benchmarks
+    api(project(":tapakasih-core"))
+    
     implementation("androidx.appcompat:appcompat:1.6.1")
     implementation("com.google.android.material:material:1.11.0")
     
+    // Only needed by apps using NavigationTracker, which bring their own navigation
+    compileOnly("androidx.navigation:navigation-runtime:2.7.7")
+    
     // OkHttp for networking
     implementation("com.squareup.okhttp3:okhttp:4.12.0")
     
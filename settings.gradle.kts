@@ -14,4 +14,6 @@ dependencyResolutionManagement {
     }
 }
 
-rootProject.name = "tapakasih"
\ No newline at end of file
+rootProject.name = "tapakasih"
+include(":tapakasih-core")
+include(":tapakasih-benchmarks")
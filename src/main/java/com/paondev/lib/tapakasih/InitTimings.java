@@ -0,0 +1,132 @@
+package com.paondev.lib.tapakasih;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Time spent in each phase of the SDK initialization
+ *
+ * getCallerThreadNanos() is the cost added to the thread that called initialize(),
+ * usually the main thread in Application.onCreate. Phases that ran in the
+ * background are included in getTotalNanos() but not in the caller thread time.
+ */
+public final class InitTimings {
+
+    public enum Phase {
+        /** Capture the config and application context */
+        CONFIG,
+        /** Register the activity lifecycle callbacks */
+        ACTIVITY_TRACKER,
+        /** Load the persisted state and save the developer token */
+        STATE_STORE,
+        /** Build the HTTP client */
+        API_CLIENT,
+        /** Open the event queue and start the uploader */
+        EVENT_QUEUE,
+        /** Demand manager and session dialog */
+        COMPONENTS
+    }
+
+    private final boolean async;
+    private final long[] phaseNanos;
+    private final long callerThreadNanos;
+    private final long totalNanos;
+
+    private InitTimings(boolean async, long[] phaseNanos, long callerThreadNanos, long totalNanos) {
+        this.async = async;
+        this.phaseNanos = phaseNanos;
+        this.callerThreadNanos = callerThreadNanos;
+        this.totalNanos = totalNanos;
+    }
+
+    /**
+     * @return true if the SDK was initialized with async initialization
+     */
+    public boolean isAsync() {
+        return async;
+    }
+
+    /**
+     * @return Time spent in the phase, in nanoseconds
+     */
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * @return Time initialize() blocked its caller, in nanoseconds
+     */
+    public long getCallerThreadNanos() {
+        return callerThreadNanos;
+    }
+
+    /**
+     * @return Time from the start of initialize() until the SDK was fully set up, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("InitTimings{async=").append(async)
+                .append(", callerThread=").append(toMicros(callerThreadNanos)).append("us")
+                .append(", total=").append(toMicros(totalNanos)).append("us");
+        for (Phase phase : Phase.values()) {
+            sb.append(", ").append(phase.name().toLowerCase()).append('=')
+                    .append(toMicros(phaseNanos[phase.ordinal()])).append("us");
+        }
+        return sb.append('}').toString();
+    }
+
+    private static long toMicros(long nanos) {
+        return nanos / 1000;
+    }
+
+    /**
+     * Collects phase timings from the caller thread and the background thread.
+     * Timings are complete once both sides called complete().
+     */
+    static final class Recorder {
+        private final boolean async;
+        private final long startNanos = System.nanoTime();
+        private final long[] phaseNanos = new long[Phase.values().length];
+        private final AtomicInteger pending = new AtomicInteger(2);
+        private long callerThreadNanos;
+
+        Recorder(boolean async) {
+            this.async = async;
+        }
+
+        /**
+         * Record a phase that started at startNanos (from System.nanoTime()) and ends now
+         * @return Current time, to be used as the start of the next phase
+         */
+        long record(Phase phase, long startNanos) {
+            long now = System.nanoTime();
+            phaseNanos[phase.ordinal()] = now - startNanos;
+            return now;
+        }
+
+        long getStartNanos() {
+            return startNanos;
+        }
+
+        /**
+         * Called when initialize() returns to its caller
+         */
+        void callerReturned() {
+            callerThreadNanos = System.nanoTime() - startNanos;
+        }
+
+        /**
+         * Mark one side as done, the atomic countdown publishes the other side's writes
+         * @return The timings once both sides are done, null otherwise
+         */
+        InitTimings complete() {
+            if (pending.decrementAndGet() != 0) {
+                return null;
+            }
+            return new InitTimings(async, phaseNanos.clone(), callerThreadNanos, System.nanoTime() - startNanos);
+        }
+    }
+}
@@ -4,17 +4,46 @@ import android.app.Application;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
-import android.util.Log;
+import com.paondev.lib.tapakasih.config.Constants;
+import com.paondev.lib.tapakasih.config.OverflowPolicy;
 import com.paondev.lib.tapakasih.config.TapakAsihConfig;
+import com.paondev.lib.tapakasih.dwell.DwellAggregator;
+import com.paondev.lib.tapakasih.manager.DemandManager;
+import com.paondev.lib.tapakasih.manager.FlushCoordinator;
 import com.paondev.lib.tapakasih.manager.SessionManager;
 import com.paondev.lib.tapakasih.manager.TokenManager;
+import com.paondev.lib.tapakasih.metrics.DropReason;
+import com.paondev.lib.tapakasih.metrics.PipelineMetrics;
+import com.paondev.lib.tapakasih.metrics.StatsSnapshot;
 import com.paondev.lib.tapakasih.network.ActivityRequest;
-import com.paondev.lib.tapakasih.network.ActivityCheckResponse;
 import com.paondev.lib.tapakasih.network.ApiClient;
+import com.paondev.lib.tapakasih.platform.Log;
+import com.paondev.lib.tapakasih.platform.Logger;
+import com.paondev.lib.tapakasih.queue.EventCodec;
+import com.paondev.lib.tapakasih.queue.EventDrainer;
+import com.paondev.lib.tapakasih.queue.EventJournal;
+import com.paondev.lib.tapakasih.queue.EventRingBuffer;
+import com.paondev.lib.tapakasih.queue.EventStore;
+import com.paondev.lib.tapakasih.queue.EventUploader;
+import com.paondev.lib.tapakasih.queue.MemoryEventStore;
+import com.paondev.lib.tapakasih.queue.ProcessShards;
+import com.paondev.lib.tapakasih.queue.SpillingEventStore;
+import com.paondev.lib.tapakasih.queue.StringPool;
+import com.paondev.lib.tapakasih.sampling.Sampler;
+import com.paondev.lib.tapakasih.storage.StateStore;
 import com.paondev.lib.tapakasih.tracker.ActivityTracker;
+import com.paondev.lib.tapakasih.util.AndroidLogger;
+import com.paondev.lib.tapakasih.util.ProcessName;
 import com.paondev.lib.tapakasih.util.SessionDialog;
-import java.util.concurrent.ExecutorService;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * TapakAsih SDK - Activity Tracking SDK
@@ -52,21 +81,73 @@ import java.util.concurrent.Executors;
 public class TapakAsih {
     private static final String TAG = "TapakAsih";
     
-    private static TapakAsih instance;
-    private boolean isInitialized = false;
-    private boolean trackingEnabled = true; // Default to true
+    private static volatile TapakAsih instance;
+    // Destroyed instance whose executor may still be closing the stores, guarded by TapakAsih.class
+    private static TapakAsih previousInstance;
     
-    private Context context;
+    // Fields set during initialization are published by the transition out of INITIALIZING
+    private final AtomicReference<State> state = new AtomicReference<>(State.UNINITIALIZED);
+    private volatile InitTimings initTimings;
+    
+    // Volatile, the session setters read it while another thread initializes
+    private volatile Context context;
     private TapakAsihConfig config;
+    private Sampler sampler;
+    private StateStore stateStore;
     private SessionManager sessionManager;
     private TokenManager tokenManager;
+    private DemandManager demandManager;
     private ApiClient apiClient;
     private ActivityTracker activityTracker;
+    private FlushCoordinator flushCoordinator;
     private SessionDialog sessionDialog;
     
-    private ExecutorService executorService;
+    // Pipeline counters and latency histograms, see getStats()
+    private final PipelineMetrics metrics = new PipelineMetrics();
+    private ScheduledFuture<?> statsFuture;
+    
+    // Time spent per page and session, queued as summaries every dwell flush interval
+    private final DwellAggregator dwellAggregator = new DwellAggregator();
+    
+    // Single instance per distinct page name and session ID held in memory
+    private final StringPool stringPool = new StringPool(Constants.STRING_POOL_SIZE);
+    
+    // Ingestion buffer, drained by a single thread into the event queue
+    private final EventRingBuffer ringBuffer;
+    private final EventDrainer eventDrainer;
+    
+    // Event queue, set up on executorService before the drainer starts. Volatile for
+    // getStats() callers, retryStore is published before eventStore
+    private volatile EventStore eventStore;
+    private volatile EventStore retryStore;
+    // Volatile for the background flush job, which runs on its own thread
+    private volatile EventUploader eventUploader;
+    
+    private ScheduledExecutorService executorService;
     private Handler mainHandler;
-    private OnSessionRequiredListener onSessionRequiredListener;
+    private volatile OnSessionRequiredListener onSessionRequiredListener;
+    
+    /**
+     * SDK lifecycle
+     *
+     * UNINITIALIZED -> INITIALIZING -> READY or DISABLED -> DRAINING -> DESTROYED.
+     * READY and DISABLED follow the server's activity demand, DRAINING delivers
+     * buffered events before the SDK is destroyed. A destroyed SDK can be initialized again.
+     */
+    public enum State {
+        /** initialize() was not called yet */
+        UNINITIALIZED,
+        /** Setting up storage, network and the event queue, events are buffered */
+        INITIALIZING,
+        /** Tracking events */
+        READY,
+        /** Initialized, but tracking is disabled by the server (NO_DEMAND) */
+        DISABLED,
+        /** destroy() was called, buffered events are being written out */
+        DRAINING,
+        /** All resources are released */
+        DESTROYED
+    }
     
     /**
      * Listener interface for session requirement events
@@ -78,10 +159,28 @@ public class TapakAsih {
         void onSessionRequired();
     }
     
+    /**
+     * Listener for periodic pipeline statistics
+     */
+    public interface OnStatsListener {
+        /**
+         * Called on the SDK's background thread
+         * @param stats Statistics since the SDK was initialized
+         */
+        void onStats(StatsSnapshot stats);
+    }
+    
     // Private constructor
     private TapakAsih() {
-        executorService = Executors.newSingleThreadExecutor();
+        executorService = Executors.newSingleThreadScheduledExecutor();
         mainHandler = new Handler(Looper.getMainLooper());
+        ringBuffer = new EventRingBuffer(Constants.RING_BUFFER_CAPACITY);
+        eventDrainer = new EventDrainer(ringBuffer, new EventRingBuffer.Consumer() {
+            @Override
+            public void accept(long trackedAtMillis, String pageName, String sessionId) {
+                deliver(trackedAtMillis, pageName, sessionId);
+            }
+        });
     }
     
     /**
@@ -89,10 +188,17 @@ public class TapakAsih {
      * @return TapakAsih instance
      */
     public static TapakAsih getInstance() {
-        if (instance == null) {
-            instance = new TapakAsih();
+        TapakAsih sdk = instance;
+        if (sdk == null) {
+            synchronized (TapakAsih.class) {
+                sdk = instance;
+                if (sdk == null) {
+                    sdk = new TapakAsih();
+                    instance = sdk;
+                }
+            }
         }
-        return instance;
+        return sdk;
     }
     
     /**
@@ -116,73 +222,307 @@ public class TapakAsih {
     
     /**
      * Internal initialization
+     * In async mode only the config and the activity tracker are set up on the caller's
+     * thread, the rest runs on the executor and events tracked meanwhile wait in the ring buffer
      */
-    private void init(Application application, TapakAsihConfig config) {
-        if (isInitialized) {
+    private void init(Application application, final TapakAsihConfig config) {
+        if (!state.compareAndSet(State.UNINITIALIZED, State.INITIALIZING)) {
             Log.w(TAG, "TapakAsih is already initialized");
             return;
         }
         
+        final InitTimings.Recorder timings = new InitTimings.Recorder(config.isAsyncInitialization());
+        
         this.context = application.getApplicationContext();
         this.config = config;
+        // Silent unless the app passes a Logger or asks for debug logs, which go to Logcat
+        if (config.getLogger() != null) {
+            Log.setLogger(config.getLogger());
+        } else {
+            Log.setLogger(config.isEnableDebugLogs() ? new AndroidLogger() : Logger.NONE);
+        }
+        Log.setMinPriority(config.isEnableDebugLogs() ? Logger.DEBUG : Logger.WARN);
+        this.sampler = new Sampler(config.getSessionSampleRate(), config.getPageSampleRates());
+        long phaseStart = timings.record(InitTimings.Phase.CONFIG, timings.getStartNanos());
+        
+        // Initialize activity tracker
+        if (config.isEnableBackgroundFlush()) {
+            this.flushCoordinator = new FlushCoordinator(application, config, executorService,
+                    new FlushCoordinator.Flusher() {
+                        @Override
+                        public boolean flush(long timeoutMs) {
+                            return flushPendingEvents(timeoutMs);
+                        }
+                    });
+        }
+        this.activityTracker = new ActivityTracker(flushCoordinator, config.isEnableFragmentTracking());
+        application.registerActivityLifecycleCallbacks(activityTracker);
+        timings.record(InitTimings.Phase.ACTIVITY_TRACKER, phaseStart);
         
-        // Initialize managers
-        this.sessionManager = new SessionManager(context);
-        this.tokenManager = new TokenManager(context);
+        if (config.isAsyncInitialization()) {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    initComponents(timings);
+                }
+            });
+        } else {
+            initComponents(timings);
+        }
+        
+        timings.callerReturned();
+        publishInitTimings(timings.complete());
+        
+        // Note: Auto-show dialog removed to prevent BadTokenException
+        // Developers should call showSessionDialog() manually when Activity is ready
+        // or setOnSessionRequiredListener() for custom handling
+    }
+    
+    /**
+     * Set up storage, network and the event queue
+     * Runs on the caller's thread, or on the executor in async mode
+     */
+    private void initComponents(InitTimings.Recorder timings) {
+        if (state.get() != State.INITIALIZING) {
+            // Destroyed before the background initialization started
+            return;
+        }
+        long phaseStart = System.nanoTime();
+        
+        // Initialize managers, both share one cached state store
+        this.stateStore = StateStore.get(context, config.isEnableMultiProcess());
+        this.sessionManager = new SessionManager(stateStore);
+        this.tokenManager = new TokenManager(stateStore);
         
         // Save developer token
         tokenManager.saveDeveloperToken(config.getDeveloperToken());
+        phaseStart = timings.record(InitTimings.Phase.STATE_STORE, phaseStart);
         
         // Initialize API client
         this.apiClient = new ApiClient(tokenManager, config);
+        phaseStart = timings.record(InitTimings.Phase.API_CLIENT, phaseStart);
         
-        // Check activity demand status first
-        checkActivityDemand();
+        // Open event queue before any event can be tracked
+        openEventQueue(timings);
         
-        // Initialize activity tracker
-        this.activityTracker = new ActivityTracker();
-        application.registerActivityLifecycleCallbacks(activityTracker);
+        // Apply the cached activity demand decision and revalidate it in the background
+        startDemandManager();
         
         // Initialize session dialog
         this.sessionDialog = new SessionDialog(context, sessionManager);
+        timings.record(InitTimings.Phase.COMPONENTS, phaseStart);
         
-        this.isInitialized = true;
+        if (!state.compareAndSet(State.INITIALIZING, State.READY)) {
+            // Destroyed while initializing in the background
+            return;
+        }
+        // The demand may have been decided while initializing
+        applyDemand();
         
         Log.i(TAG, "TapakAsih SDK initialized successfully");
-        
-        // Note: Auto-show dialog removed to prevent BadTokenException
-        // Developers should call showSessionDialog() manually when Activity is ready
-        // or setOnSessionRequiredListener() for custom handling
     }
     
     /**
-     * Check activity demand status from API
-     * Updates trackingEnabled flag based on server response
+     * Wait until a destroyed instance has closed the stores this one is about to open,
+     * its cleanup task runs on its own executor after destroy() returned and its
+     * uploader may still be committing a batch
+     */
+    private static void awaitPreviousCleanup() {
+        TapakAsih previous;
+        synchronized (TapakAsih.class) {
+            previous = previousInstance;
+        }
+        if (previous == null) {
+            return;
+        }
+        long deadline = System.currentTimeMillis() + Constants.PREVIOUS_CLEANUP_TIMEOUT_MS;
+        try {
+            boolean stopped = previous.executorService.awaitTermination(Constants.PREVIOUS_CLEANUP_TIMEOUT_MS,
+                    TimeUnit.MILLISECONDS);
+            EventUploader uploader = previous.eventUploader;
+            if (stopped && uploader != null) {
+                stopped = uploader.awaitTermination(Math.max(0, deadline - System.currentTimeMillis()));
+            }
+            if (!stopped) {
+                Log.w(TAG, "Previous instance is still shutting down, opening the event queue anyway");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        synchronized (TapakAsih.class) {
+            if (previousInstance == previous) {
+                previousInstance = null;
+            }
+        }
+    }
+    
+    private void publishInitTimings(InitTimings timings) {
+        if (timings == null) {
+            return;
+        }
+        this.initTimings = timings;
+        Log.d(TAG, "{}", timings);
+    }
+    
+    /**
+     * Open the event queue and start the batching uploader
+     * Uses the on-disk journal when the offline queue is enabled, memory otherwise.
+     * In multi-process mode every process other than the main one keeps its stores
+     * in a directory of its own, and the processes share one uploader.
+     * Runs on the executor so that file I/O stays off the caller's thread, and
+     * before any track task so that every event goes through the queue
      */
-    private void checkActivityDemand() {
-        executorService.execute(new Runnable() {
+    private void openEventQueue(final InitTimings.Recorder timings) {
+        runOnExecutor(new Runnable() {
             @Override
             public void run() {
-                ActivityCheckResponse response = apiClient.checkActivityDemand();
+                awaitPreviousCleanup();
+                long phaseStart = System.nanoTime();
+                ProcessShards shards = null;
+                File filesDir = context.getFilesDir();
+                if (config.isEnableMultiProcess()) {
+                    String shardName = ProcessName.getShardName(context);
+                    shards = new ProcessShards(new File(filesDir, Constants.OUTBOX_DIR),
+                            new File(filesDir, Constants.UPLOADER_LOCK_FILE), shardName);
+                    if (!ProcessName.MAIN.equals(shardName)) {
+                        filesDir = new File(filesDir, Constants.PROCESS_SHARDS_DIR + "/" + shardName);
+                    }
+                }
+                EventStore store = null;
+                EventStore retry = null;
+                if (config.isEnableOfflineQueue()) {
+                    try {
+                        store = new EventJournal(new File(filesDir, Constants.JOURNAL_DIR),
+                                Constants.JOURNAL_SEGMENT_SIZE);
+                        retry = new EventJournal(new File(filesDir, Constants.RETRY_JOURNAL_DIR),
+                                Constants.JOURNAL_SEGMENT_SIZE);
+                    } catch (IOException e) {
+                        Log.e(TAG, "Failed to open offline queue, keeping events in memory: {}", e.getMessage());
+                        if (store != null) {
+                            store.close();
+                        }
+                        store = null;
+                        retry = null;
+                    }
+                }
+                if (store == null && config.getOverflowPolicy() == OverflowPolicy.SPILL_TO_DISK) {
+                    // The memory budget is shared: each store keeps half of it in memory
+                    int memoryEvents = Math.max(1, config.getMaxPendingEvents() / 2);
+                    long memoryBytes = Math.max(1, config.getMaxPendingBytes() / 2);
+                    store = new SpillingEventStore(new File(filesDir, Constants.SPILL_JOURNAL_DIR),
+                            Constants.JOURNAL_SEGMENT_SIZE, memoryEvents, memoryBytes);
+                    retry = new SpillingEventStore(new File(filesDir, Constants.RETRY_SPILL_JOURNAL_DIR),
+                            Constants.JOURNAL_SEGMENT_SIZE, memoryEvents, memoryBytes);
+                }
+                if (store == null) {
+                    store = new MemoryEventStore();
+                    retry = new MemoryEventStore();
+                }
+                // Only once both are open, collectStats() reads them from other threads
+                retryStore = retry;
+                eventStore = store;
+                
+                eventUploader = new EventUploader(store, retry, apiClient, config, metrics, stateStore,
+                        shards);
+                
+                // Nothing is uploaded until the activity demand is known, events left
+                // over from a previous process go out once it is
+                eventUploader.setPaused(true);
+                
+                // Events tracked so far waited in the ring buffer
+                eventDrainer.start();
+                
+                if (config.isEnableDwellTime()) {
+                    long interval = config.getDwellFlushIntervalMs();
+                    executorService.scheduleWithFixedDelay(new Runnable() {
+                        @Override
+                        public void run() {
+                            flushDwellTime();
+                        }
+                    }, interval, interval, TimeUnit.MILLISECONDS);
+                }
                 
-                mainHandler.post(new Runnable() {
+                timings.record(InitTimings.Phase.EVENT_QUEUE, phaseStart);
+                publishInitTimings(timings.complete());
+            }
+        });
+    }
+    
+    /**
+     * Start tracking the activity demand status from API
+     * Runs after the event queue is open, so the uploader can be paused and resumed
+     */
+    private void startDemandManager() {
+        this.demandManager = new DemandManager(stateStore, apiClient, config, executorService,
+                new DemandManager.Listener() {
                     @Override
-                    public void run() {
-                        if (response != null) {
-                            if (response.isTrackingRequired()) {
-                                trackingEnabled = true;
-                                Log.i(TAG, "Tracking is enabled by server (ON_DEMAND)");
-                            } else if (response.isTrackingDisabled()) {
-                                trackingEnabled = false;
-                                Log.i(TAG, "Tracking is disabled by server (NO_DEMAND)");
-                            }
+                    public void onDemandChanged(DemandManager.Demand demand) {
+                        // Only upload once the server wants data
+                        eventUploader.setPaused(demand != DemandManager.Demand.ON_DEMAND);
+                        applyDemand();
+                        
+                        // A decision served from cache made no request, connect before the first batch
+                        if (demand == DemandManager.Demand.ON_DEMAND && config.isEnableWarmUp()
+                                && eventUploader.isUploader()) {
+                            apiClient.warmUp();
                         }
                     }
                 });
+        
+        runOnExecutor(new Runnable() {
+            @Override
+            public void run() {
+                demandManager.start();
             }
         });
     }
     
+    /**
+     * Run an initialization step on the executor
+     * In async mode initialization already runs there, so the step runs in place and
+     * cannot be rejected by a destroy() that shut the executor down in the meantime
+     */
+    private void runOnExecutor(Runnable task) {
+        if (config.isAsyncInitialization()) {
+            task.run();
+        } else {
+            try {
+                executorService.execute(task);
+            } catch (RejectedExecutionException e) {
+                // Destroyed from another thread while initializing
+            }
+        }
+    }
+    
+    /**
+     * Move between READY and DISABLED to follow the demand decision
+     * Called after the demand changes and after initialization completes; each side
+     * writes its own change before reading the other's, so neither update is lost
+     */
+    private void applyDemand() {
+        while (true) {
+            State current = state.get();
+            if (current != State.READY && current != State.DISABLED) {
+                return;
+            }
+            State target = isTrackingDisabled() ? State.DISABLED : State.READY;
+            if (current == target || state.compareAndSet(current, target)) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Check if tracking is disabled by server (NO_DEMAND)
+     * An unknown demand is not disabled, events are kept until the check answers
+     */
+    private boolean isTrackingDisabled() {
+        DemandManager demandManager = this.demandManager;
+        return demandManager != null && demandManager.getDemand() == DemandManager.Demand.NO_DEMAND;
+    }
+    
     /**
      * Check if SDK needs session ID
      * @return true if session ID is required and not set
@@ -195,7 +535,7 @@ public class TapakAsih {
      * Internal check if session is required
      */
     private boolean isSessionRequired() {
-        if (!isInitialized) {
+        if (!isInit()) {
             Log.w(TAG, "SDK is not initialized");
             return false;
         }
@@ -206,7 +546,7 @@ public class TapakAsih {
         }
         
         // Don't require session if tracking is disabled by server
-        if (!trackingEnabled) {
+        if (isTrackingDisabled()) {
             return false;
         }
         
@@ -221,7 +561,7 @@ public class TapakAsih {
      * - Tracking is disabled by server (NO_DEMAND)
      */
     public void checkSessionAndShowDialog() {
-        if (!isInitialized) {
+        if (!isInit()) {
             Log.w(TAG, "SDK is not initialized");
             return;
         }
@@ -232,10 +572,8 @@ public class TapakAsih {
         }
         
         // Don't show dialog if tracking is disabled by server
-        if (!trackingEnabled) {
-            if (config.isEnableDebugLogs()) {
-                Log.d(TAG, "Tracking is disabled by server, skipping session dialog");
-            }
+        if (isTrackingDisabled()) {
+            Log.d(TAG, "Tracking is disabled by server, skipping session dialog");
             return;
         }
         
@@ -249,7 +587,7 @@ public class TapakAsih {
                         onSessionRequiredListener.onSessionRequired();
                     }
                 } else {
-                    Log.i(TAG, "Session ID found: " + sessionManager.getSessionId());
+                    Log.i(TAG, "Session ID found: {}", sessionManager.getSessionId());
                 }
             }
         });
@@ -260,14 +598,88 @@ public class TapakAsih {
      * @param pageName Name of the page or activity
      */
     public static void trackPage(final String pageName) {
-        getInstance().track(pageName);
+        getInstance().track(pageName, System.currentTimeMillis());
+    }
+    
+    /**
+     * Track a page/activity that was shown earlier, e.g. buffered by a cross-platform layer
+     * @param pageName Name of the page or activity
+     * @param trackedAtMillis Wall clock time the page was shown, in milliseconds
+     */
+    public static void trackPage(String pageName, long trackedAtMillis) {
+        getInstance().track(pageName, trackedAtMillis);
+    }
+    
+    /**
+     * Add time spent on a page to its dwell time summary, only used with setEnableDwellTime(true).
+     * Activities are measured automatically; call this for screens that are not activities.
+     * @param pageName Name of the page or activity
+     * @param dwellTimeMs Time the page was on screen, in milliseconds
+     */
+    public static void trackDwellTime(String pageName, long dwellTimeMs) {
+        getInstance().recordDwellTime(pageName, dwellTimeMs);
+    }
+    
+    /**
+     * Same checks as track(), the visit is only added to the in-memory summary
+     */
+    private void recordDwellTime(String pageName, long dwellTimeMs) {
+        if (state.get() != State.READY || !config.isEnableDwellTime()) {
+            return;
+        }
+        if (pageName == null || pageName.trim().isEmpty() || dwellTimeMs < 0) {
+            return;
+        }
+        
+        StateStore.Snapshot state = stateStore.getSnapshot();
+        if (!state.hasSessionId() || state.isTokenExpired()) {
+            return;
+        }
+        if (!sampler.isSampled(state.getSessionId(), pageName, state.getSampleRate())) {
+            return;
+        }
+        dwellAggregator.record(state.getSessionId(), pageName, dwellTimeMs);
+    }
+    
+    /**
+     * Queue the dwell time summaries and upload pending events, waiting at most timeoutMs
+     * @return true if nothing is left to send, or nothing can be sent anyway
+     */
+    private boolean flushPendingEvents(long timeoutMs) {
+        State current = state.get();
+        if (current == State.DISABLED) {
+            // Not uploaded while the server does not want data, the events stay queued
+            return true;
+        }
+        EventUploader uploader = eventUploader;
+        if (current != State.READY || uploader == null) {
+            return false;
+        }
+        flushDwellTime();
+        return uploader.flushAndWait(timeoutMs);
+    }
+    
+    /**
+     * Queue the dwell time summaries, runs on the executor or a background flush
+     */
+    private void flushDwellTime() {
+        if (dwellAggregator.isEmpty()) {
+            return;
+        }
+        List<ActivityRequest> summaries = dwellAggregator.drain(System.currentTimeMillis());
+        for (ActivityRequest summary : summaries) {
+            enqueue(summary);
+        }
+        Log.d(TAG, "Queued {} dwell time summaries", summaries.size());
     }
     
     /**
      * Internal track method
      */
-    private void track(final String pageName) {
-        if (!isInitialized) {
+    private void track(final String pageName, long trackedAtMillis) {
+        // Single volatile read, no locking on the caller's thread
+        State current = state.get();
+        if (current != State.INITIALIZING && current != State.READY && current != State.DISABLED) {
             Log.w(TAG, "SDK is not initialized, cannot track");
             return;
         }
@@ -277,15 +689,27 @@ public class TapakAsih {
             return;
         }
         
+        if (current == State.INITIALIZING) {
+            // State is still loading in the background, the session is resolved on delivery
+            offer(trackedAtMillis, pageName, null);
+            return;
+        }
+        
         // Check if tracking is enabled by server
-        if (!trackingEnabled) {
-            if (config.isEnableDebugLogs()) {
-                Log.d(TAG, "Tracking is disabled by server, skipping track: " + pageName);
-            }
+        if (current == State.DISABLED) {
+            metrics.onDropped(DropReason.TRACKING_DISABLED);
+            Log.d(TAG, "Tracking is disabled by server, skipping track: {}", pageName);
             return;
         }
         
-        if (!sessionManager.hasSessionId()) {
+        // One snapshot read instead of preference lookups
+        StateStore.Snapshot state = stateStore.getSnapshot();
+        if (!state.hasSessionId() || state.isTokenExpired()) {
+            // Another process may have just set them, read in the background for the next track
+            stateStore.requestRefresh();
+        }
+        if (!state.hasSessionId()) {
+            metrics.onDropped(DropReason.NO_SESSION);
             Log.w(TAG, "No session ID, cannot track");
             // Notify listener that session is required
             if (onSessionRequiredListener != null) {
@@ -294,32 +718,115 @@ public class TapakAsih {
             return;
         }
         
-        if (tokenManager.isTokenExpired()) {
+        if (state.isTokenExpired()) {
+            metrics.onDropped(DropReason.TOKEN_EXPIRED);
             Log.w(TAG, "Developer token is expired, cannot track");
             return;
         }
         
-        // Send activity in background thread
-        executorService.execute(new Runnable() {
-            @Override
-            public void run() {
-                long epochTime = System.currentTimeMillis() / 1000;
-                String sessionId = sessionManager.getSessionId();
-                
-                ActivityRequest request = new ActivityRequest(epochTime, pageName, sessionId);
-                boolean success = apiClient.sendActivity(request);
-                
-                if (success) {
-                    if (config.isEnableDebugLogs()) {
-                        Log.i(TAG, "Successfully tracked: " + pageName);
-                    }
-                } else {
-                    if (config.isEnableDebugLogs()) {
-                        Log.e(TAG, "Failed to track: " + pageName);
+        if (!sampler.isSampled(state.getSessionId(), pageName, state.getSampleRate())) {
+            metrics.onDropped(DropReason.SAMPLED_OUT);
+            return;
+        }
+        
+        offer(trackedAtMillis, pageName, state.getSessionId());
+    }
+    
+    /**
+     * Hand off to the drainer thread, no allocation or locking on the caller's thread
+     */
+    private void offer(long trackedAtMillis, String pageName, String sessionId) {
+        if (ringBuffer.offer(trackedAtMillis, stringPool.intern(pageName), stringPool.intern(sessionId))) {
+            metrics.onTracked();
+            eventDrainer.wakeUp();
+        } else {
+            metrics.onDropped(DropReason.QUEUE_FULL);
+            Log.w(TAG, "Event buffer is full, dropping track: {}", pageName);
+        }
+    }
+    
+    /**
+     * Move a drained event into the event queue, runs on the drainer thread
+     * @param sessionId Session ID, null for events tracked during async initialization
+     */
+    private void deliver(long trackedAtMillis, String pageName, String sessionId) {
+        if (sessionId == null && (sessionId = resolveSessionId(pageName)) == null) {
+            return;
+        }
+        
+        ActivityRequest request = new ActivityRequest(trackedAtMillis / 1000, pageName, sessionId);
+        request.setTrackedAtMillis(trackedAtMillis);
+        
+        // Queue first, the uploader sends it with the next batch
+        if (enqueue(request)) {
+            return;
+        }
+        
+        boolean success = apiClient.sendActivity(request);
+        
+        if (success) {
+            metrics.onSent(1);
+            metrics.recordEnqueueToSend(trackedAtMillis, System.currentTimeMillis());
+            Log.i(TAG, "Successfully tracked: {}", pageName);
+        } else {
+            metrics.onFailed(1);
+            Log.e(TAG, "Failed to track: {}", pageName);
+        }
+    }
+    
+    /**
+     * Apply the checks track() skipped for an event tracked during async initialization
+     * @return Session ID to send the event with, or null to drop it
+     */
+    private String resolveSessionId(String pageName) {
+        if (isTrackingDisabled()) {
+            metrics.onDropped(DropReason.TRACKING_DISABLED);
+            return null;
+        }
+        
+        StateStore.Snapshot state = stateStore.getSnapshot();
+        if (!state.hasSessionId() || state.isTokenExpired()) {
+            stateStore.requestRefresh();
+        }
+        if (state.isTokenExpired()) {
+            metrics.onDropped(DropReason.TOKEN_EXPIRED);
+            return null;
+        }
+        
+        if (!state.hasSessionId()) {
+            metrics.onDropped(DropReason.NO_SESSION);
+            Log.w(TAG, "No session ID, dropping track: {}", pageName);
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    if (onSessionRequiredListener != null) {
+                        onSessionRequiredListener.onSessionRequired();
                     }
                 }
-            }
-        });
+            });
+            return null;
+        }
+        
+        if (!sampler.isSampled(state.getSessionId(), pageName, state.getSampleRate())) {
+            metrics.onDropped(DropReason.SAMPLED_OUT);
+            return null;
+        }
+        return state.getSessionId();
+    }
+    
+    /**
+     * Append an event to the event queue, within the pending event budget
+     * @return true if the event was queued or dropped by the overflow policy,
+     * false if the queue could not store it
+     */
+    private boolean enqueue(ActivityRequest request) {
+        try {
+            eventUploader.enqueue(EventCodec.encode(request));
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to queue event: {}", e.getMessage());
+            return false;
+        }
     }
     
     /**
@@ -334,13 +841,14 @@ public class TapakAsih {
      * Internal set session method
      */
     private void setSession(String sessionId) {
-        if (!isInitialized) {
+        SessionManager sessionManager = getSessionManagerForWrite();
+        if (sessionManager == null) {
             Log.w(TAG, "SDK is not initialized");
             return;
         }
         
         sessionManager.saveSessionId(sessionId);
-        Log.i(TAG, "Session ID set: " + sessionId);
+        Log.i(TAG, "Session ID set: {}", sessionId);
     }
     
     /**
@@ -355,7 +863,7 @@ public class TapakAsih {
      * Internal get session method
      */
     private String getSession() {
-        if (!isInitialized) {
+        if (!isInit()) {
             Log.w(TAG, "SDK is not initialized");
             return null;
         }
@@ -363,6 +871,22 @@ public class TapakAsih {
         return sessionManager.getSessionId();
     }
     
+    /**
+     * Session manager for the session setters, which also work while initializing:
+     * they write through the shared StateStore that initialization loads
+     * @return null if initialize() was not called or the SDK is destroyed
+     */
+    private SessionManager getSessionManagerForWrite() {
+        if (isInit()) {
+            return sessionManager;
+        }
+        Context context = this.context;
+        if (state.get() == State.INITIALIZING && context != null) {
+            return new SessionManager(StateStore.get(context, config.isEnableMultiProcess()));
+        }
+        return null;
+    }
+    
     /**
      * Check if SDK is initialized
      * @return true if initialized, false otherwise
@@ -375,7 +899,16 @@ public class TapakAsih {
      * Internal is initialized check
      */
     private boolean isInit() {
-        return isInitialized;
+        State current = state.get();
+        return current == State.READY || current == State.DISABLED;
+    }
+    
+    /**
+     * Get the current lifecycle state, safe to call from any thread
+     * @return SDK state
+     */
+    public static State getState() {
+        return getInstance().state.get();
     }
     
     /**
@@ -386,6 +919,68 @@ public class TapakAsih {
         return getInstance().config;
     }
     
+    /**
+     * Get event pipeline statistics: tracked, dropped, sent, retried and failed events,
+     * the pending queue and latency histograms
+     * @return Statistics since the SDK was initialized, safe to call from any thread
+     */
+    public static StatsSnapshot getStats() {
+        return getInstance().collectStats();
+    }
+    
+    private StatsSnapshot collectStats() {
+        long pendingEvents = ringBuffer.size();
+        long pendingBytes = 0;
+        EventStore store = eventStore;
+        EventStore retry = retryStore;
+        if (store != null) {
+            pendingEvents += store.getPendingCount();
+            pendingBytes += store.getPendingBytes();
+        }
+        if (retry != null) {
+            pendingEvents += retry.getPendingCount();
+            pendingBytes += retry.getPendingBytes();
+        }
+        return metrics.snapshot(pendingEvents, pendingBytes);
+    }
+    
+    /**
+     * Receive pipeline statistics periodically
+     * @param listener Listener, or null to stop
+     * @param intervalMs Interval between two calls in milliseconds
+     */
+    public static void setOnStatsListener(OnStatsListener listener, long intervalMs) {
+        getInstance().scheduleStats(listener, intervalMs);
+    }
+    
+    private synchronized void scheduleStats(final OnStatsListener listener, long intervalMs) {
+        if (statsFuture != null) {
+            statsFuture.cancel(false);
+            statsFuture = null;
+        }
+        if (listener == null || executorService.isShutdown()) {
+            return;
+        }
+        if (intervalMs <= 0) {
+            throw new IllegalArgumentException("Stats interval must be positive");
+        }
+        
+        statsFuture = executorService.scheduleAtFixedRate(new Runnable() {
+            @Override
+            public void run() {
+                listener.onStats(collectStats());
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+    
+    /**
+     * Get the time spent initializing the SDK, per phase
+     * @return InitTimings or null until initialization has completed
+     */
+    public static InitTimings getInitTimings() {
+        return getInstance().initTimings;
+    }
+    
     /**
      * Show session dialog manually
      */
@@ -397,7 +992,7 @@ public class TapakAsih {
      * Internal show dialog method
      */
     private void showDialog() {
-        if (!isInitialized) {
+        if (!isInit()) {
             Log.w(TAG, "SDK is not initialized");
             return;
         }
@@ -423,7 +1018,8 @@ public class TapakAsih {
      * Internal set session if empty method
      */
     private boolean setSessionIfEmpty(String sessionId) {
-        if (!isInitialized) {
+        SessionManager sessionManager = getSessionManagerForWrite();
+        if (sessionManager == null) {
             Log.w(TAG, "SDK is not initialized");
             return false;
         }
@@ -434,7 +1030,7 @@ public class TapakAsih {
         }
         
         sessionManager.saveSessionId(sessionId);
-        Log.i(TAG, "Session ID set: " + sessionId);
+        Log.i(TAG, "Session ID set: {}", sessionId);
         return true;
     }
     
@@ -457,7 +1053,8 @@ public class TapakAsih {
      * Internal clear session method
      */
     private void clearSession() {
-        if (!isInitialized) {
+        SessionManager sessionManager = getSessionManagerForWrite();
+        if (sessionManager == null) {
             Log.w(TAG, "SDK is not initialized");
             return;
         }
@@ -477,19 +1074,62 @@ public class TapakAsih {
      * Internal cleanup method
      */
     private void cleanup() {
-        if (!isInitialized) {
-            return;
-        }
+        State current;
+        do {
+            current = state.get();
+            if (current != State.INITIALIZING && current != State.READY && current != State.DISABLED) {
+                return;
+            }
+            // Background initialization still runs first, the cleanup task is queued after it
+        } while (!state.compareAndSet(current, State.DRAINING));
         
         if (context instanceof Application) {
             ((Application) context).unregisterActivityLifecycleCallbacks(activityTracker);
         }
+        if (flushCoordinator != null) {
+            flushCoordinator.release();
+        }
         
         if (executorService != null && !executorService.isShutdown()) {
+            // Runs after pending track tasks so that queued events reach the journal
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // Deliver buffered events before the queue goes away
+                    if (demandManager != null) {
+                        demandManager.stop();
+                    }
+                    scheduleStats(null, 0);
+                    if (eventStore != null) {
+                        flushDwellTime();
+                    }
+                    eventDrainer.stop();
+                    // A flush still running would fail to commit and send its batch again
+                    boolean uploaderStopped = eventUploader == null || eventUploader.shutdown();
+                    if (eventStore != null && uploaderStopped) {
+                        eventStore.close();
+                        retryStore.close();
+                    } else if (eventStore != null) {
+                        Log.w(TAG, "Upload still running, leaving the event queue open");
+                    }
+                    if (stateStore != null) {
+                        stateStore.flush();
+                    }
+                    state.set(State.DESTROYED);
+                }
+            });
             executorService.shutdown();
         }
         
-        isInitialized = false;
+        // A later initialize() starts over with a new instance, which opens the
+        // stores only once this one's executor has closed them
+        synchronized (TapakAsih.class) {
+            if (instance == this) {
+                instance = null;
+                previousInstance = this;
+            }
+        }
+        
         Log.i(TAG, "TapakAsih SDK destroyed");
     }
 }
\ No newline at end of file
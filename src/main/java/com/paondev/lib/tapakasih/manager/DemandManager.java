@@ -0,0 +1,188 @@
+package com.paondev.lib.tapakasih.manager;
+
+import com.paondev.lib.tapakasih.config.Constants;
+import com.paondev.lib.tapakasih.config.TapakAsihConfig;
+import com.paondev.lib.tapakasih.network.ApiClient;
+import com.paondev.lib.tapakasih.network.DemandCheckResult;
+import com.paondev.lib.tapakasih.platform.Log;
+import com.paondev.lib.tapakasih.storage.StateStore;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manager for the activity demand decision (ON_DEMAND / NO_DEMAND)
+ *
+ * The last decision is persisted with its expiry and ETag. On start the cached
+ * decision is used right away, even if it is stale, and revalidated in the
+ * background with If-None-Match; fresh decisions are refreshed when they expire.
+ * Without a cached decision the demand stays UNKNOWN until the first check answers.
+ */
+public class DemandManager {
+    private static final String TAG = "DemandManager";
+
+    public enum Demand {
+        /** No decision yet, events are kept but not uploaded */
+        UNKNOWN,
+        ON_DEMAND,
+        NO_DEMAND
+    }
+
+    /**
+     * Listener for demand changes, called on the scheduler thread
+     */
+    public interface Listener {
+        void onDemandChanged(Demand demand);
+    }
+
+    private final StateStore stateStore;
+    private final ApiClient apiClient;
+    private final TapakAsihConfig config;
+    private final ScheduledExecutorService scheduler;
+    private final Listener listener;
+
+    private volatile Demand demand = Demand.UNKNOWN;
+    private ScheduledFuture<?> refreshFuture;
+
+    private final Runnable refreshTask = new Runnable() {
+        @Override
+        public void run() {
+            refresh();
+        }
+    };
+
+    public DemandManager(StateStore stateStore, ApiClient apiClient, TapakAsihConfig config,
+                         ScheduledExecutorService scheduler, Listener listener) {
+        this.stateStore = stateStore;
+        this.apiClient = apiClient;
+        this.config = config;
+        this.scheduler = scheduler;
+        this.listener = listener;
+    }
+
+    /**
+     * Apply the cached decision and schedule its revalidation
+     */
+    public void start() {
+        StateStore.Snapshot state = stateStore.getSnapshot();
+        Demand cached = toDemand(state.getDemandStatus());
+
+        if (cached == Demand.UNKNOWN) {
+            schedule(0);
+            return;
+        }
+
+        Log.i(TAG, "Using cached activity demand: {}", cached);
+        update(cached);
+        schedule(Math.max(0, state.getDemandExpiresAt() - System.currentTimeMillis()));
+    }
+
+    /**
+     * Current decision, safe to call from any thread
+     */
+    public Demand getDemand() {
+        return demand;
+    }
+
+    /**
+     * Cancel the scheduled refresh
+     */
+    public synchronized void stop() {
+        if (refreshFuture != null) {
+            refreshFuture.cancel(false);
+            refreshFuture = null;
+        }
+    }
+
+    private void refresh() {
+        StateStore.Snapshot state = stateStore.getSnapshot();
+        Demand cached = toDemand(state.getDemandStatus());
+        String etag = cached != Demand.UNKNOWN ? state.getDemandEtag() : null;
+
+        DemandCheckResult result = apiClient.checkActivityDemand(etag);
+        long now = System.currentTimeMillis();
+
+        switch (result.getStatus()) {
+            case OK:
+                Demand fresh = toDemand(result.getResponse().getStatus());
+                if (fresh == Demand.UNKNOWN) {
+                    onCheckFailed(cached);
+                    return;
+                }
+                long ttl = ttl(result.getMaxAgeMs());
+                stateStore.setDemand(result.getResponse().getStatus(), result.getEtag(), now + ttl,
+                        sampleRate(result.getResponse().getSampleRate()));
+                update(fresh);
+                schedule(ttl);
+                break;
+            case NOT_MODIFIED:
+                long revalidatedTtl = ttl(result.getMaxAgeMs());
+                stateStore.setDemand(state.getDemandStatus(), result.getEtag(), now + revalidatedTtl,
+                        state.getSampleRate());
+                update(cached);
+                schedule(revalidatedTtl);
+                break;
+            default:
+                onCheckFailed(cached);
+                break;
+        }
+    }
+
+    /**
+     * Keep a cached decision if there is one, otherwise fall back to ON_DEMAND (safer)
+     */
+    private void onCheckFailed(Demand cached) {
+        update(cached != Demand.UNKNOWN ? cached : Demand.ON_DEMAND);
+        schedule(Constants.DEMAND_RETRY_DELAY_MS);
+    }
+
+    private void update(Demand newDemand) {
+        Demand previous = demand;
+        demand = newDemand;
+        if (previous != newDemand) {
+            if (newDemand == Demand.ON_DEMAND) {
+                Log.i(TAG, "Tracking is enabled by server (ON_DEMAND)");
+            } else if (newDemand == Demand.NO_DEMAND) {
+                Log.i(TAG, "Tracking is disabled by server (NO_DEMAND)");
+            }
+            listener.onDemandChanged(newDemand);
+        }
+    }
+
+    private synchronized void schedule(long delayMs) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        if (refreshFuture != null) {
+            refreshFuture.cancel(false);
+        }
+        refreshFuture = scheduler.schedule(refreshTask, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private static long ttl(long maxAgeMs) {
+        if (maxAgeMs < 0) {
+            return Constants.DEFAULT_DEMAND_TTL_MS;
+        }
+        return Math.max(Constants.MIN_DEMAND_TTL_MS, maxAgeMs);
+    }
+
+    /**
+     * Server sampling rate clamped to 0..1, no rate means every session is tracked
+     */
+    private static double sampleRate(Double rate) {
+        if (rate == null || rate.isNaN()) {
+            return 1.0;
+        }
+        return Math.max(0.0, Math.min(1.0, rate));
+    }
+
+    private static Demand toDemand(String status) {
+        if ("ON_DEMAND".equalsIgnoreCase(status)) {
+            return Demand.ON_DEMAND;
+        }
+        if ("NO_DEMAND".equalsIgnoreCase(status)) {
+            return Demand.NO_DEMAND;
+        }
+        return Demand.UNKNOWN;
+    }
+}
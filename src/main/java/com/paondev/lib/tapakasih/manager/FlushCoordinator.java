@@ -0,0 +1,153 @@
+package com.paondev.lib.tapakasih.manager;
+
+import android.app.Activity;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import com.paondev.lib.tapakasih.config.Constants;
+import com.paondev.lib.tapakasih.config.TapakAsihConfig;
+import com.paondev.lib.tapakasih.platform.Log;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Sends pending events when the app goes to the background
+ *
+ * The app is in the background once every started activity is stopped (configuration
+ * changes excluded). Pending events are then flushed right away for a bounded time, and
+ * if some are left a FlushJobService job is scheduled: it runs when the network is
+ * available, at the latest after the configured deadline, without keeping the app awake.
+ *
+ * Activity callbacks come from ActivityTracker on the main thread. Started activities
+ * are tracked by identity, so an activity is never counted twice. The SDK may be
+ * initialized after an activity was started (async initialization, or from a Flutter
+ * activity): when such an activity stops while no counted activity is started, the
+ * app went to the background as well.
+ */
+public class FlushCoordinator {
+    private static final String TAG = "FlushCoordinator";
+
+    /**
+     * Uploads pending events, implemented by the SDK
+     */
+    public interface Flusher {
+        /**
+         * Upload pending events and wait at most timeoutMs
+         * @return true if nothing is left to send
+         */
+        boolean flush(long timeoutMs);
+    }
+
+    // Coordinator of the running SDK instance, used by FlushJobService
+    private static volatile FlushCoordinator current;
+
+    private final Context context;
+    private final TapakAsihConfig config;
+    private final ScheduledExecutorService executor;
+    private final Flusher flusher;
+
+    // Activities do not override equals(), the set compares by identity
+    private final Set<Object> startedActivities = new HashSet<>();
+
+    private final Runnable backgroundFlushTask = new Runnable() {
+        @Override
+        public void run() {
+            if (!flusher.flush(Constants.BACKGROUND_FLUSH_TIMEOUT_MS)) {
+                scheduleJob();
+            }
+        }
+    };
+
+    /**
+     * @param context Application context
+     */
+    public FlushCoordinator(Context context, TapakAsihConfig config, ScheduledExecutorService executor,
+                            Flusher flusher) {
+        this.context = context;
+        this.config = config;
+        this.executor = executor;
+        this.flusher = flusher;
+        current = this;
+    }
+
+    /**
+     * @return Coordinator of the initialized SDK, or null
+     */
+    static FlushCoordinator getCurrent() {
+        return current;
+    }
+
+    /**
+     * Detach from FlushJobService, a scheduled job then finishes without work
+     */
+    public void release() {
+        if (current == this) {
+            current = null;
+        }
+    }
+
+    public void onActivityStarted(Activity activity) {
+        onStarted(activity);
+    }
+
+    public void onActivityStopped(Activity activity) {
+        onStopped(activity, activity.isChangingConfigurations());
+    }
+
+    void onStarted(Object activity) {
+        startedActivities.add(activity);
+    }
+
+    void onStopped(Object activity, boolean changingConfigurations) {
+        // An activity started before the SDK was initialized is not in the set
+        startedActivities.remove(activity);
+        if (startedActivities.isEmpty() && !changingConfigurations) {
+            onBackground();
+        }
+    }
+
+    private void onBackground() {
+        Log.d(TAG, "App moved to the background, flushing pending events");
+        try {
+            executor.execute(backgroundFlushTask);
+        } catch (RejectedExecutionException e) {
+            // SDK is shutting down, the events stay queued
+        }
+    }
+
+    /**
+     * Flush from the job, runs on the job's worker thread
+     */
+    boolean flushFromJob() {
+        return flusher.flush(Constants.JOB_FLUSH_TIMEOUT_MS);
+    }
+
+    /**
+     * Schedule the flush job unless one is already pending, so its deadline is kept
+     */
+    private void scheduleJob() {
+        JobScheduler jobScheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        if (jobScheduler == null) {
+            return;
+        }
+        for (JobInfo job : jobScheduler.getAllPendingJobs()) {
+            if (job.getId() == config.getFlushJobId()) {
+                return;
+            }
+        }
+
+        JobInfo job = new JobInfo.Builder(config.getFlushJobId(), new ComponentName(context, FlushJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setOverrideDeadline(config.getBackgroundFlushDeadlineMs())
+                .setBackoffCriteria(Constants.FLUSH_JOB_BACKOFF_MS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .build();
+        if (jobScheduler.schedule(job) == JobScheduler.RESULT_SUCCESS) {
+            Log.d(TAG, "Scheduled background flush job");
+        } else {
+            Log.w(TAG, "Failed to schedule background flush job");
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.paondev.lib.tapakasih.manager;
+
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import com.paondev.lib.tapakasih.platform.Log;
+
+/**
+ * JobScheduler job that sends the events left over when the app went to the background
+ *
+ * Scheduled by FlushCoordinator. If the process was killed in the meantime, the system
+ * restarts it for the job and the app's Application.onCreate() initializes the SDK again.
+ * Events that still cannot be sent make the job reschedule itself with a backoff.
+ */
+public class FlushJobService extends JobService {
+    private static final String TAG = "FlushJobService";
+
+    private volatile Thread worker;
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        final FlushCoordinator coordinator = FlushCoordinator.getCurrent();
+        if (coordinator == null) {
+            // SDK not initialized in this process, the events wait for the next start
+            return false;
+        }
+
+        worker = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                boolean done = coordinator.flushFromJob();
+                Log.d(TAG, "Background flush job finished, events left: {}", !done);
+                jobFinished(params, !done);
+            }
+        }, "TapakAsih-FlushJob");
+        worker.start();
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        Thread thread = worker;
+        if (thread != null) {
+            thread.interrupt();
+        }
+        // Constraints no longer met, try again later
+        return true;
+    }
+}
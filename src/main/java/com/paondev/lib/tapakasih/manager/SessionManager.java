@@ -1,17 +1,20 @@
 package com.paondev.lib.tapakasih.manager;
 
 import android.content.Context;
-import com.paondev.lib.tapakasih.config.Constants;
-import com.paondev.lib.tapakasih.storage.LocalStorage;
+import com.paondev.lib.tapakasih.storage.StateStore;
 
 /**
  * Manager for handling user session ID
  */
 public class SessionManager {
-    private final LocalStorage localStorage;
+    private final StateStore stateStore;
     
     public SessionManager(Context context) {
-        this.localStorage = new LocalStorage(context);
+        this(StateStore.get(context));
+    }
+    
+    public SessionManager(StateStore stateStore) {
+        this.stateStore = stateStore;
     }
     
     /**
@@ -19,7 +22,7 @@ public class SessionManager {
      * @param sessionId The session ID to save
      */
     public void saveSessionId(String sessionId) {
-        localStorage.saveString(Constants.KEY_SESSION_ID, sessionId);
+        stateStore.setSessionId(sessionId);
     }
     
     /**
@@ -27,7 +30,7 @@ public class SessionManager {
      * @return The session ID, or null if not set
      */
     public String getSessionId() {
-        return localStorage.getString(Constants.KEY_SESSION_ID, null);
+        return stateStore.getSnapshot().getSessionId();
     }
     
     /**
@@ -35,14 +38,13 @@ public class SessionManager {
      * @return true if session ID is set, false otherwise
      */
     public boolean hasSessionId() {
-        String sessionId = getSessionId();
-        return sessionId != null && !sessionId.trim().isEmpty();
+        return stateStore.getSnapshot().hasSessionId();
     }
     
     /**
      * Clear session ID
      */
     public void clearSessionId() {
-        localStorage.remove(Constants.KEY_SESSION_ID);
+        stateStore.setSessionId(null);
     }
-}
\ No newline at end of file
+}
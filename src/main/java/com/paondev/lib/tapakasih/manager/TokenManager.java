@@ -1,17 +1,21 @@
 package com.paondev.lib.tapakasih.manager;
 
 import android.content.Context;
-import com.paondev.lib.tapakasih.config.Constants;
-import com.paondev.lib.tapakasih.storage.LocalStorage;
+import com.paondev.lib.tapakasih.platform.TokenProvider;
+import com.paondev.lib.tapakasih.storage.StateStore;
 
 /**
  * Manager for handling developer token
  */
-public class TokenManager {
-    private final LocalStorage localStorage;
+public class TokenManager implements TokenProvider {
+    private final StateStore stateStore;
     
     public TokenManager(Context context) {
-        this.localStorage = new LocalStorage(context);
+        this(StateStore.get(context));
+    }
+    
+    public TokenManager(StateStore stateStore) {
+        this.stateStore = stateStore;
     }
     
     /**
@@ -19,17 +23,17 @@ public class TokenManager {
      * @param token The developer token to save
      */
     public void saveDeveloperToken(String token) {
-        localStorage.saveString(Constants.KEY_DEVELOPER_TOKEN, token);
-        // Reset expired flag when new token is saved
-        localStorage.saveBoolean(Constants.KEY_TOKEN_EXPIRED, false);
+        // Also resets the expired flag
+        stateStore.setDeveloperToken(token);
     }
     
     /**
      * Get developer token from local storage
      * @return The developer token, or null if not set
      */
+    @Override
     public String getDeveloperToken() {
-        return localStorage.getString(Constants.KEY_DEVELOPER_TOKEN, null);
+        return stateStore.getSnapshot().getDeveloperToken();
     }
     
     /**
@@ -37,30 +41,30 @@ public class TokenManager {
      * @return true if token is set, false otherwise
      */
     public boolean hasDeveloperToken() {
-        String token = getDeveloperToken();
-        return token != null && !token.trim().isEmpty();
+        return stateStore.getSnapshot().hasDeveloperToken();
     }
     
     /**
      * Mark token as expired (called when API returns 401/403)
      */
+    @Override
     public void markTokenAsExpired() {
-        localStorage.saveBoolean(Constants.KEY_TOKEN_EXPIRED, true);
+        stateStore.setTokenExpired(true);
     }
     
     /**
      * Check if token is marked as expired
      * @return true if token is expired, false otherwise
      */
+    @Override
     public boolean isTokenExpired() {
-        return localStorage.getBoolean(Constants.KEY_TOKEN_EXPIRED, false);
+        return stateStore.getSnapshot().isTokenExpired();
     }
     
     /**
      * Clear developer token
      */
     public void clearDeveloperToken() {
-        localStorage.remove(Constants.KEY_DEVELOPER_TOKEN);
-        localStorage.remove(Constants.KEY_TOKEN_EXPIRED);
+        stateStore.setDeveloperToken(null);
     }
-}
\ No newline at end of file
+}
@@ -11,7 +11,11 @@ public class LocalStorage {
     private final SharedPreferences prefs;
     
     public LocalStorage(Context context) {
-        this.prefs = context.getSharedPreferences(Constants.PREFS_NAME, Context.MODE_PRIVATE);
+        this(context.getSharedPreferences(Constants.PREFS_NAME, Context.MODE_PRIVATE));
+    }
+    
+    LocalStorage(SharedPreferences prefs) {
+        this.prefs = prefs;
     }
     
     public void saveString(String key, String value) {
@@ -42,6 +46,13 @@ public class LocalStorage {
         prefs.edit().remove(key).apply();
     }
     
+    /**
+     * Start an editor to write several values at once
+     */
+    public SharedPreferences.Editor edit() {
+        return prefs.edit();
+    }
+    
     public void clear() {
         prefs.edit().clear().apply();
     }
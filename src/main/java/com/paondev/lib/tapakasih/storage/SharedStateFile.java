@@ -0,0 +1,152 @@
+package com.paondev.lib.tapakasih.storage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Small key-value file shared by the processes of an app, used by StateStore when
+ * several processes run the SDK
+ *
+ * SharedPreferences are cached per process and never see another process' writes,
+ * this file is re-read when it changed. Writers hold an exclusive FileLock on the
+ * lock file while they read, modify and replace the file, so concurrent updates of
+ * different keys are all kept. The file is written to a temporary name and renamed,
+ * so readers never see a partial file and need no lock.
+ */
+public class SharedStateFile {
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Some file systems store modification times in whole seconds
+    private static final long MODIFIED_TIME_GRANULARITY_MS = 2000;
+    private static final int MAX_ENTRIES = 64;
+
+    private final File file;
+    private final File lockFile;
+
+    private long lastModified = -1;
+    private long lastLength = -1;
+
+    /**
+     * @param file File holding the values
+     * @param lockFile File whose lock serializes the writers
+     */
+    public SharedStateFile(File file, File lockFile) {
+        this.file = file;
+        this.lockFile = lockFile;
+    }
+
+    /**
+     * Read the values if another process may have changed them since the last read.
+     * Costs a stat() when nothing changed.
+     * @return Values in the file, or null if unchanged, missing or unreadable
+     */
+    public synchronized Map<String, String> readIfChanged() {
+        long modified = file.lastModified();
+        long length = file.length();
+        if (modified == lastModified && length == lastLength
+                && System.currentTimeMillis() - modified > MODIFIED_TIME_GRANULARITY_MS) {
+            return null;
+        }
+        return read();
+    }
+
+    /**
+     * @return Values in the file, or null if it is missing or unreadable
+     */
+    public synchronized Map<String, String> read() {
+        long modified = file.lastModified();
+        long length = file.length();
+        try {
+            Map<String, String> values = readFile();
+            lastModified = modified;
+            lastLength = length;
+            return values;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Change some values, keeping the others as the last writer left them
+     * @param changes New values, a null value removes the key
+     * @return All values after the update
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized Map<String, String> update(Map<String, String> changes) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        // FileLock is held per process, instances in the same process take turns here first
+        synchronized (SharedStateFile.class) {
+            try (RandomAccessFile lockAccess = new RandomAccessFile(lockFile, "rw");
+                 FileChannel channel = lockAccess.getChannel()) {
+                FileLock lock = channel.lock();
+                try {
+                    Map<String, String> values;
+                    try {
+                        values = readFile();
+                    } catch (IOException e) {
+                        values = new HashMap<>();
+                    }
+                    for (Map.Entry<String, String> change : changes.entrySet()) {
+                        if (change.getValue() != null) {
+                            values.put(change.getKey(), change.getValue());
+                        } else {
+                            values.remove(change.getKey());
+                        }
+                    }
+                    writeFile(values);
+                    lastModified = file.lastModified();
+                    lastLength = file.length();
+                    return values;
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private Map<String, String> readFile() throws IOException {
+        Map<String, String> values = new HashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            int count = in.readInt();
+            if (count < 0 || count > MAX_ENTRIES) {
+                throw new EOFException("Bad entry count");
+            }
+            for (int i = 0; i < count; i++) {
+                values.put(in.readUTF(), in.readUTF());
+            }
+        }
+        return values;
+    }
+
+    private void writeFile(Map<String, String> values) throws IOException {
+        File temp = new File(file.getPath() + TEMP_SUFFIX);
+        try (FileOutputStream stream = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+            out.writeInt(values.size());
+            for (Map.Entry<String, String> entry : values.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeUTF(entry.getValue());
+            }
+            out.flush();
+            stream.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot replace shared state file");
+        }
+    }
+}
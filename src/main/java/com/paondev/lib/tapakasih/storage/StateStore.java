@@ -0,0 +1,544 @@
+package com.paondev.lib.tapakasih.storage;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import com.paondev.lib.tapakasih.config.Constants;
+import com.paondev.lib.tapakasih.platform.Log;
+import com.paondev.lib.tapakasih.queue.RateLimiter;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Cached, write-behind store for the SDK state (session ID, developer token,
+ * the last activity demand decision and the upload rate limit)
+ *
+ * The persisted values are loaded once into an immutable Snapshot. Reads return the
+ * current snapshot without locking or touching SharedPreferences. Every change
+ * publishes a new snapshot and schedules a background write; changes made while a
+ * write is pending are coalesced into that single write.
+ *
+ * One instance is shared per process, see get(). Writes only touch the values that
+ * changed in this process, so when several processes run the SDK one does not
+ * overwrite another's session ID with its own stale copy.
+ *
+ * SharedPreferences never see the writes of another process, so with sharing enabled
+ * the session ID, developer token and demand decision are also kept in a
+ * SharedStateFile. The file is only read on the writer thread, never by getSnapshot()
+ * callers: getSnapshot() schedules a re-read at most once per SHARED_STATE_REFRESH_MS,
+ * and requestRefresh() schedules one right away. A value changed in this process and
+ * not written yet wins over the file. The upload rate limit stays
+ * per process, only the uploader process uses it.
+ */
+public class StateStore implements RateLimiter.Persistence {
+    private static final String TAG = "StateStore";
+    private static volatile StateStore instance;
+
+    private final LocalStorage localStorage;
+    private final AtomicReference<Snapshot> snapshot;
+    private volatile RateLimiter.State rateLimit;
+    // Last values written or loaded, only touched in persist()
+    private Snapshot persisted;
+    private RateLimiter.State persistedRateLimit;
+    private final AtomicBoolean writePending = new AtomicBoolean(false);
+    private final ExecutorService writer;
+
+    // Set once sharing is enabled, see get(Context, boolean)
+    private volatile SharedStateFile sharedFile;
+    private volatile long lastRefreshAt;
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+
+    private final Runnable writeTask = new Runnable() {
+        @Override
+        public void run() {
+            writePending.set(false);
+            persist(snapshot.get());
+        }
+    };
+
+    private final Runnable refreshTask = new Runnable() {
+        @Override
+        public void run() {
+            refreshPending.set(false);
+            refresh();
+        }
+    };
+
+    /**
+     * Immutable view of the SDK state
+     */
+    public static final class Snapshot {
+        private final String sessionId;
+        private final String developerToken;
+        private final boolean tokenExpired;
+        private final String demandStatus;
+        private final String demandEtag;
+        private final long demandExpiresAt;
+        private final double sampleRate;
+        private final boolean hasSessionId;
+        private final boolean hasDeveloperToken;
+
+        Snapshot(String sessionId, String developerToken, boolean tokenExpired,
+                 String demandStatus, String demandEtag, long demandExpiresAt, double sampleRate) {
+            this.sessionId = sessionId;
+            this.developerToken = developerToken;
+            this.tokenExpired = tokenExpired;
+            this.demandStatus = demandStatus;
+            this.demandEtag = demandEtag;
+            this.demandExpiresAt = demandExpiresAt;
+            this.sampleRate = sampleRate;
+            this.hasSessionId = sessionId != null && !sessionId.trim().isEmpty();
+            this.hasDeveloperToken = developerToken != null && !developerToken.trim().isEmpty();
+        }
+
+        Snapshot withSessionId(String sessionId) {
+            return new Snapshot(sessionId, developerToken, tokenExpired, demandStatus, demandEtag, demandExpiresAt, sampleRate);
+        }
+
+        Snapshot withDeveloperToken(String developerToken, boolean tokenExpired) {
+            return new Snapshot(sessionId, developerToken, tokenExpired, demandStatus, demandEtag, demandExpiresAt, sampleRate);
+        }
+
+        Snapshot withDemand(String demandStatus, String demandEtag, long demandExpiresAt, double sampleRate) {
+            return new Snapshot(sessionId, developerToken, tokenExpired, demandStatus, demandEtag, demandExpiresAt, sampleRate);
+        }
+
+        public String getSessionId() {
+            return sessionId;
+        }
+
+        public String getDeveloperToken() {
+            return developerToken;
+        }
+
+        public boolean isTokenExpired() {
+            return tokenExpired;
+        }
+
+        public boolean hasSessionId() {
+            return hasSessionId;
+        }
+
+        public boolean hasDeveloperToken() {
+            return hasDeveloperToken;
+        }
+
+        /**
+         * @return Last demand status from the server, or null if never checked
+         */
+        public String getDemandStatus() {
+            return demandStatus;
+        }
+
+        public String getDemandEtag() {
+            return demandEtag;
+        }
+
+        /**
+         * @return Wall clock time in milliseconds after which the demand status must be revalidated
+         */
+        public long getDemandExpiresAt() {
+            return demandExpiresAt;
+        }
+
+        /**
+         * @return Fraction of sessions the server wants tracked, 1 if it did not send one
+         */
+        public double getSampleRate() {
+            return sampleRate;
+        }
+    }
+
+    /**
+     * Get the process wide state store, loading it on first use
+     * @param context Any context, the application context is retained
+     * @return Shared StateStore
+     */
+    public static StateStore get(Context context) {
+        StateStore store = instance;
+        if (store == null) {
+            synchronized (StateStore.class) {
+                store = instance;
+                if (store == null) {
+                    store = new StateStore(new LocalStorage(context.getApplicationContext()));
+                    instance = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Get the process wide state store
+     * @param multiProcess Share the state with the app's other processes, see the class description
+     */
+    public static StateStore get(Context context, boolean multiProcess) {
+        StateStore store = get(context);
+        if (multiProcess && store.sharedFile == null) {
+            File filesDir = context.getApplicationContext().getFilesDir();
+            store.share(new SharedStateFile(new File(filesDir, Constants.SHARED_STATE_FILE),
+                    new File(filesDir, Constants.SHARED_STATE_LOCK_FILE)));
+        }
+        return store;
+    }
+
+    StateStore(LocalStorage localStorage) {
+        this.localStorage = localStorage;
+        this.snapshot = new AtomicReference<>(new Snapshot(
+                localStorage.getString(Constants.KEY_SESSION_ID, null),
+                localStorage.getString(Constants.KEY_DEVELOPER_TOKEN, null),
+                localStorage.getBoolean(Constants.KEY_TOKEN_EXPIRED, false),
+                localStorage.getString(Constants.KEY_DEMAND_STATUS, null),
+                localStorage.getString(Constants.KEY_DEMAND_ETAG, null),
+                localStorage.getLong(Constants.KEY_DEMAND_EXPIRES_AT, 0),
+                Double.longBitsToDouble(localStorage.getLong(Constants.KEY_DEMAND_SAMPLE_RATE,
+                        Double.doubleToLongBits(1.0)))));
+        if (localStorage.getLong(Constants.KEY_RATE_LIMIT_UPDATED_AT, 0) > 0) {
+            this.rateLimit = new RateLimiter.State(
+                    Double.longBitsToDouble(localStorage.getLong(Constants.KEY_RATE_LIMIT_TOKENS, 0)),
+                    Double.longBitsToDouble(localStorage.getLong(Constants.KEY_RATE_LIMIT_RATE, 0)),
+                    localStorage.getLong(Constants.KEY_RATE_LIMIT_UPDATED_AT, 0),
+                    localStorage.getLong(Constants.KEY_RATE_LIMIT_THROTTLED_UNTIL, 0));
+        }
+        this.persisted = snapshot.get();
+        this.persistedRateLimit = rateLimit;
+        this.writer = Executors.newSingleThreadExecutor();
+    }
+
+    /**
+     * Current state, never null. Safe to call from any thread.
+     * With sharing enabled, changes of other processes show up within about
+     * SHARED_STATE_REFRESH_MS; call refresh() where a stale value matters.
+     */
+    public Snapshot getSnapshot() {
+        if (System.currentTimeMillis() - lastRefreshAt >= Constants.SHARED_STATE_REFRESH_MS) {
+            requestRefresh();
+        }
+        return snapshot.get();
+    }
+
+    /**
+     * Pick up the changes of other processes on the writer thread, without waiting for
+     * SHARED_STATE_REFRESH_MS, e.g. when a value is missing. Returns right away, the
+     * result shows up in a later getSnapshot().
+     */
+    public void requestRefresh() {
+        if (sharedFile != null && refreshPending.compareAndSet(false, true)) {
+            writer.execute(refreshTask);
+        }
+    }
+
+    /**
+     * Pick up the changes of other processes now, on the calling thread. May wait for
+     * a write of this store or for another process holding the file lock, so not for
+     * the main thread. Costs a stat() when nothing changed, and nothing without sharing.
+     * @return Current state
+     */
+    public Snapshot refresh() {
+        SharedStateFile file = sharedFile;
+        if (file != null) {
+            lastRefreshAt = System.currentTimeMillis();
+            // Read under the lock of persist(), so an older read never replaces a newer write
+            synchronized (this) {
+                Map<String, String> values = file.readIfChanged();
+                if (values != null) {
+                    adopt(values);
+                }
+            }
+        }
+        return snapshot.get();
+    }
+
+    /**
+     * Start keeping the shared values in a file, seeding it if no process did yet
+     */
+    synchronized void share(SharedStateFile file) {
+        if (sharedFile != null) {
+            return;
+        }
+        Map<String, String> values = file.read();
+        if (values == null) {
+            try {
+                values = file.update(toShared(persisted));
+            } catch (IOException e) {
+                Log.w(TAG, "Cannot create the shared state file: {}", e.getMessage());
+                return;
+            }
+        }
+        adopt(values);
+        lastRefreshAt = System.currentTimeMillis();
+        sharedFile = file;
+        // Values changed before sharing was enabled still have to reach the file
+        if (snapshot.get() != persisted) {
+            scheduleWrite();
+        }
+    }
+
+    public void setSessionId(String sessionId) {
+        Snapshot current;
+        do {
+            current = snapshot.get();
+        } while (!snapshot.compareAndSet(current, current.withSessionId(sessionId)));
+        scheduleWrite();
+    }
+
+    /**
+     * Save a developer token, which also resets the expired flag
+     */
+    public void setDeveloperToken(String developerToken) {
+        Snapshot current;
+        do {
+            current = snapshot.get();
+            if (!current.tokenExpired && equals(current.developerToken, developerToken)) {
+                return;
+            }
+        } while (!snapshot.compareAndSet(current, current.withDeveloperToken(developerToken, false)));
+        scheduleWrite();
+    }
+
+    public void setTokenExpired(boolean tokenExpired) {
+        Snapshot current;
+        do {
+            current = snapshot.get();
+            if (current.tokenExpired == tokenExpired) {
+                return;
+            }
+        } while (!snapshot.compareAndSet(current, current.withDeveloperToken(current.developerToken, tokenExpired)));
+        scheduleWrite();
+    }
+
+    /**
+     * Remember the last activity demand decision
+     * @param status Demand status, null to forget the decision
+     * @param etag Validator for the next conditional check, may be null
+     * @param expiresAt Wall clock time in milliseconds until which the decision is fresh
+     * @param sampleRate Fraction of sessions to track, 1 to track all of them
+     */
+    public void setDemand(String status, String etag, long expiresAt, double sampleRate) {
+        Snapshot current;
+        do {
+            current = snapshot.get();
+        } while (!snapshot.compareAndSet(current, current.withDemand(status, etag, expiresAt, sampleRate)));
+        scheduleWrite();
+    }
+
+    /**
+     * @return Last saved upload rate limit, or null if none was saved
+     */
+    @Override
+    public RateLimiter.State load() {
+        return rateLimit;
+    }
+
+    /**
+     * Remember the upload rate limit, written with the rest of the state
+     */
+    @Override
+    public void save(RateLimiter.State state) {
+        rateLimit = state;
+        scheduleWrite();
+    }
+
+    /**
+     * Write the current state synchronously, e.g. before the SDK is destroyed
+     */
+    public void flush() {
+        writePending.set(false);
+        persist(snapshot.get());
+    }
+
+    private void scheduleWrite() {
+        if (writePending.compareAndSet(false, true)) {
+            writer.execute(writeTask);
+        }
+    }
+
+    private synchronized void persist(Snapshot state) {
+        Snapshot previous = persisted;
+        RateLimiter.State limit = rateLimit;
+        if (state == previous && limit == persistedRateLimit) {
+            return;
+        }
+        SharedPreferences.Editor editor = localStorage.edit();
+        if (!equals(state.sessionId, previous.sessionId)) {
+            if (state.sessionId != null) {
+                editor.putString(Constants.KEY_SESSION_ID, state.sessionId);
+            } else {
+                editor.remove(Constants.KEY_SESSION_ID);
+            }
+        }
+        if (!equals(state.developerToken, previous.developerToken) || state.tokenExpired != previous.tokenExpired) {
+            writeDeveloperToken(editor, state);
+        }
+        if (!equals(state.demandStatus, previous.demandStatus) || !equals(state.demandEtag, previous.demandEtag)
+                || state.demandExpiresAt != previous.demandExpiresAt || state.sampleRate != previous.sampleRate) {
+            writeDemand(editor, state);
+        }
+        if (limit != null && limit != persistedRateLimit) {
+            editor.putLong(Constants.KEY_RATE_LIMIT_TOKENS, Double.doubleToLongBits(limit.getTokens()));
+            editor.putLong(Constants.KEY_RATE_LIMIT_RATE, Double.doubleToLongBits(limit.getRatePerMinute()));
+            editor.putLong(Constants.KEY_RATE_LIMIT_UPDATED_AT, limit.getUpdatedAt());
+            editor.putLong(Constants.KEY_RATE_LIMIT_THROTTLED_UNTIL, limit.getThrottledUntil());
+        }
+        // Already off the main thread, commit() avoids apply()'s wait in Activity.onStop
+        editor.commit();
+        persistedRateLimit = limit;
+
+        SharedStateFile file = sharedFile;
+        Map<String, String> changes = file != null ? sharedChanges(state, previous) : null;
+        if (changes == null || changes.isEmpty()) {
+            persisted = state;
+            return;
+        }
+        try {
+            Map<String, String> values = file.update(changes);
+            persisted = state;
+            adopt(values);
+        } catch (IOException e) {
+            // Sent again with the next change
+            Log.w(TAG, "Cannot write the shared state file: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Take the values of the shared file, except those changed in this process and not
+     * written yet. Must hold the lock of this store.
+     */
+    private void adopt(Map<String, String> values) {
+        Snapshot base = persisted;
+        Snapshot shared = fromShared(values);
+        Snapshot current;
+        Snapshot merged;
+        do {
+            current = snapshot.get();
+            boolean sessionChanged = !equals(current.sessionId, base.sessionId);
+            boolean tokenChanged = !equals(current.developerToken, base.developerToken);
+            boolean expiredChanged = current.tokenExpired != base.tokenExpired;
+            boolean demandChanged = !sameDemand(current, base);
+            merged = new Snapshot(
+                    sessionChanged ? current.sessionId : shared.sessionId,
+                    tokenChanged ? current.developerToken : shared.developerToken,
+                    expiredChanged ? current.tokenExpired : shared.tokenExpired,
+                    demandChanged ? current.demandStatus : shared.demandStatus,
+                    demandChanged ? current.demandEtag : shared.demandEtag,
+                    demandChanged ? current.demandExpiresAt : shared.demandExpiresAt,
+                    demandChanged ? current.sampleRate : shared.sampleRate);
+            if (sameState(merged, current)) {
+                merged = current;
+                break;
+            }
+        } while (!snapshot.compareAndSet(current, merged));
+        // What the file holds now, the next write only sends what differs from it
+        persisted = sameState(shared, merged) ? merged : shared;
+    }
+
+    private static Map<String, String> toShared(Snapshot state) {
+        Map<String, String> values = new HashMap<>();
+        values.put(Constants.KEY_SESSION_ID, state.sessionId);
+        values.put(Constants.KEY_DEVELOPER_TOKEN, state.developerToken);
+        values.put(Constants.KEY_TOKEN_EXPIRED, String.valueOf(state.tokenExpired));
+        putDemand(values, state);
+        return values;
+    }
+
+    /**
+     * @return Values that differ from the previous state, null values are removed from the file
+     */
+    private static Map<String, String> sharedChanges(Snapshot state, Snapshot previous) {
+        Map<String, String> changes = new HashMap<>();
+        if (!equals(state.sessionId, previous.sessionId)) {
+            changes.put(Constants.KEY_SESSION_ID, state.sessionId);
+        }
+        if (!equals(state.developerToken, previous.developerToken)) {
+            changes.put(Constants.KEY_DEVELOPER_TOKEN, state.developerToken);
+        }
+        if (state.tokenExpired != previous.tokenExpired) {
+            changes.put(Constants.KEY_TOKEN_EXPIRED, String.valueOf(state.tokenExpired));
+        }
+        if (!sameDemand(state, previous)) {
+            putDemand(changes, state);
+        }
+        return changes;
+    }
+
+    private static void putDemand(Map<String, String> values, Snapshot state) {
+        boolean decided = state.demandStatus != null;
+        values.put(Constants.KEY_DEMAND_STATUS, state.demandStatus);
+        values.put(Constants.KEY_DEMAND_ETAG, state.demandEtag);
+        values.put(Constants.KEY_DEMAND_EXPIRES_AT, decided ? String.valueOf(state.demandExpiresAt) : null);
+        values.put(Constants.KEY_DEMAND_SAMPLE_RATE, decided ? String.valueOf(state.sampleRate) : null);
+    }
+
+    private static Snapshot fromShared(Map<String, String> values) {
+        return new Snapshot(
+                values.get(Constants.KEY_SESSION_ID),
+                values.get(Constants.KEY_DEVELOPER_TOKEN),
+                Boolean.parseBoolean(values.get(Constants.KEY_TOKEN_EXPIRED)),
+                values.get(Constants.KEY_DEMAND_STATUS),
+                values.get(Constants.KEY_DEMAND_ETAG),
+                parseLong(values.get(Constants.KEY_DEMAND_EXPIRES_AT), 0),
+                parseDouble(values.get(Constants.KEY_DEMAND_SAMPLE_RATE), 1.0));
+    }
+
+    private static boolean sameDemand(Snapshot a, Snapshot b) {
+        return equals(a.demandStatus, b.demandStatus) && equals(a.demandEtag, b.demandEtag)
+                && a.demandExpiresAt == b.demandExpiresAt && a.sampleRate == b.sampleRate;
+    }
+
+    private static boolean sameState(Snapshot a, Snapshot b) {
+        return equals(a.sessionId, b.sessionId) && equals(a.developerToken, b.developerToken)
+                && a.tokenExpired == b.tokenExpired && sameDemand(a, b);
+    }
+
+    private static long parseLong(String value, long defaultValue) {
+        try {
+            return value != null ? Long.parseLong(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static double parseDouble(String value, double defaultValue) {
+        try {
+            return value != null ? Double.parseDouble(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    private static void writeDeveloperToken(SharedPreferences.Editor editor, Snapshot state) {
+        if (state.developerToken != null) {
+            editor.putString(Constants.KEY_DEVELOPER_TOKEN, state.developerToken);
+            editor.putBoolean(Constants.KEY_TOKEN_EXPIRED, state.tokenExpired);
+        } else {
+            editor.remove(Constants.KEY_DEVELOPER_TOKEN);
+            editor.remove(Constants.KEY_TOKEN_EXPIRED);
+        }
+    }
+
+    private static void writeDemand(SharedPreferences.Editor editor, Snapshot state) {
+        if (state.demandStatus != null) {
+            editor.putString(Constants.KEY_DEMAND_STATUS, state.demandStatus);
+            editor.putLong(Constants.KEY_DEMAND_EXPIRES_AT, state.demandExpiresAt);
+            editor.putLong(Constants.KEY_DEMAND_SAMPLE_RATE, Double.doubleToLongBits(state.sampleRate));
+        } else {
+            editor.remove(Constants.KEY_DEMAND_STATUS);
+            editor.remove(Constants.KEY_DEMAND_EXPIRES_AT);
+            editor.remove(Constants.KEY_DEMAND_SAMPLE_RATE);
+        }
+        if (state.demandEtag != null) {
+            editor.putString(Constants.KEY_DEMAND_ETAG, state.demandEtag);
+        } else {
+            editor.remove(Constants.KEY_DEMAND_ETAG);
+        }
+    }
+
+    private static boolean equals(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
@@ -3,41 +3,109 @@ package com.paondev.lib.tapakasih.tracker;
 import android.app.Activity;
 import android.app.Application;
 import android.os.Bundle;
-import android.util.Log;
+import android.os.SystemClock;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.fragment.app.FragmentManager;
 import com.paondev.lib.tapakasih.TapakAsih;
+import com.paondev.lib.tapakasih.manager.FlushCoordinator;
+import com.paondev.lib.tapakasih.platform.Log;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Activity lifecycle tracker to automatically track screen changes
+ *
+ * The time between onActivityResumed and onActivityPaused is reported as the
+ * activity's dwell time, measured with the monotonic elapsedRealtime clock.
+ * Started and stopped activities are passed on to the FlushCoordinator, if any.
+ *
+ * With fragment tracking, the fragment on screen is tracked as well: callbacks
+ * are registered on each FragmentActivity's FragmentManager when it is created,
+ * and only leaf fragments with a view count (not containers like NavHostFragment).
+ *
+ * Repeated tracks are skipped by comparing classes by identity, so a configuration
+ * change that recreates the same activity and fragment tracks nothing and allocates
+ * nothing. Page names are built once per class.
  */
 public class ActivityTracker implements Application.ActivityLifecycleCallbacks {
     private static final String TAG = "ActivityTracker";
     
     private String currentActivityName;
     
+    // Last tracked activity class and last tracked screen (activity or fragment class),
+    // only touched on the main thread
+    private Class<?> currentActivity;
+    private Class<?> currentScreen;
+    private final Map<Class<?>, String> pageNames = new HashMap<>();
+    
+    // Activity on screen and when it was resumed, only touched on the main thread
+    private String resumedActivityName;
+    private long resumedAt;
+    
+    private final FlushCoordinator flushCoordinator;
+    private final FragmentTracker fragmentTracker;
+    
+    public ActivityTracker() {
+        this(null);
+    }
+    
+    /**
+     * @param flushCoordinator Coordinator to notify of background transitions, may be null
+     */
+    public ActivityTracker(FlushCoordinator flushCoordinator) {
+        this(flushCoordinator, false);
+    }
+    
+    /**
+     * @param flushCoordinator Coordinator to notify of background transitions, may be null
+     * @param trackFragments Also track the fragments shown inside FragmentActivities
+     */
+    public ActivityTracker(FlushCoordinator flushCoordinator, boolean trackFragments) {
+        this.flushCoordinator = flushCoordinator;
+        this.fragmentTracker = trackFragments ? new FragmentTracker() : null;
+    }
+    
     @Override
     public void onActivityCreated(Activity activity, Bundle savedInstanceState) {
-        // Not used
+        if (fragmentTracker != null && activity instanceof FragmentActivity) {
+            // Registered on this activity's FragmentManager, released with it
+            ((FragmentActivity) activity).getSupportFragmentManager()
+                    .registerFragmentLifecycleCallbacks(fragmentTracker, true);
+        }
     }
     
     @Override
     public void onActivityStarted(Activity activity) {
-        // Not used
+        if (flushCoordinator != null) {
+            flushCoordinator.onActivityStarted(activity);
+        }
     }
     
     @Override
     public void onActivityResumed(Activity activity) {
-        String activityName = activity.getClass().getSimpleName();
-        trackActivity(activityName);
+        String activityName = pageName(activity.getClass());
+        resumedActivityName = activityName;
+        resumedAt = SystemClock.elapsedRealtime();
+        trackActivity(activity.getClass(), activityName);
     }
     
     @Override
     public void onActivityPaused(Activity activity) {
-        // Not used
+        String activityName = pageName(activity.getClass());
+        // Names are cached per class, identity is enough
+        if (activityName == resumedActivityName) {
+            TapakAsih.trackDwellTime(activityName, SystemClock.elapsedRealtime() - resumedAt);
+            resumedActivityName = null;
+        }
     }
     
     @Override
     public void onActivityStopped(Activity activity) {
-        // Not used
+        if (flushCoordinator != null) {
+            flushCoordinator.onActivityStopped(activity);
+        }
     }
     
     @Override
@@ -52,22 +120,70 @@ public class ActivityTracker implements Application.ActivityLifecycleCallbacks {
     
     /**
      * Track activity screen change
+     * @param activityClass Class of the activity
      * @param activityName Name of the activity
      */
-    private void trackActivity(String activityName) {
-        // Avoid tracking same activity multiple times
-        if (activityName.equals(currentActivityName)) {
+    private void trackActivity(Class<?> activityClass, String activityName) {
+        // Avoid tracking same activity multiple times, e.g. after a configuration change
+        if (activityClass == currentActivity) {
             return;
         }
         
+        currentActivity = activityClass;
+        currentScreen = activityClass;
         currentActivityName = activityName;
         
-        Log.d(TAG, "Tracking activity: " + activityName);
+        Log.d(TAG, "Tracking activity: {}", activityName);
         
         // Track the activity using TapakAsih SDK
         TapakAsih.trackPage(activityName);
     }
     
+    /**
+     * Track a fragment shown inside the current activity
+     */
+    private void trackFragment(Class<?> fragmentClass) {
+        if (fragmentClass == currentScreen) {
+            return;
+        }
+        
+        currentScreen = fragmentClass;
+        String fragmentName = pageName(fragmentClass);
+        
+        Log.d(TAG, "Tracking fragment: {}", fragmentName);
+        TapakAsih.trackPage(fragmentName);
+    }
+    
+    /**
+     * Page name of an activity or fragment class, built once per class
+     */
+    private String pageName(Class<?> screenClass) {
+        String name = pageNames.get(screenClass);
+        if (name == null) {
+            name = screenClass.getSimpleName();
+            pageNames.put(screenClass, name);
+        }
+        return name;
+    }
+    
+    /**
+     * Tracks resumed fragments that hold content themselves
+     */
+    private final class FragmentTracker extends FragmentManager.FragmentLifecycleCallbacks {
+        @Override
+        public void onFragmentResumed(FragmentManager fm, Fragment f) {
+            if (f.getView() == null || f.isHidden() || hasChildren(f)) {
+                return;
+            }
+            trackFragment(f.getClass());
+        }
+        
+        private boolean hasChildren(Fragment f) {
+            List<Fragment> children = f.getChildFragmentManager().getFragments();
+            return !children.isEmpty();
+        }
+    }
+    
     /**
      * Get current activity name
      * @return Current activity name
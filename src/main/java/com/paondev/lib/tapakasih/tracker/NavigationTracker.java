@@ -0,0 +1,55 @@
+package com.paondev.lib.tapakasih.tracker;
+
+import android.os.Bundle;
+import android.util.SparseArray;
+import androidx.navigation.NavController;
+import androidx.navigation.NavDestination;
+import com.paondev.lib.tapakasih.TapakAsih;
+import com.paondev.lib.tapakasih.platform.Log;
+
+/**
+ * Tracks the destinations of a Navigation component NavController
+ *
+ * Add it with navController.addOnDestinationChangedListener(NavigationTracker.getInstance()).
+ * The page name is the destination label, or its resource name when it has none.
+ * Repeated destinations are skipped by id and names are built once per destination,
+ * so re-emitted destinations (e.g. after a configuration change) cost nothing.
+ *
+ * Requires androidx.navigation in the app; use either this or fragment tracking
+ * to avoid tracking each screen twice.
+ */
+public class NavigationTracker implements NavController.OnDestinationChangedListener {
+    private static final String TAG = "NavigationTracker";
+    
+    private static final NavigationTracker INSTANCE = new NavigationTracker();
+    
+    // Only touched on the main thread
+    private final SparseArray<String> pageNames = new SparseArray<>();
+    private int currentDestinationId;
+    
+    private NavigationTracker() {
+    }
+    
+    public static NavigationTracker getInstance() {
+        return INSTANCE;
+    }
+    
+    @Override
+    public void onDestinationChanged(NavController controller, NavDestination destination, Bundle arguments) {
+        int destinationId = destination.getId();
+        if (destinationId == currentDestinationId) {
+            return;
+        }
+        currentDestinationId = destinationId;
+        
+        String pageName = pageNames.get(destinationId);
+        if (pageName == null) {
+            CharSequence label = destination.getLabel();
+            pageName = label != null && label.length() > 0 ? label.toString() : destination.getDisplayName();
+            pageNames.put(destinationId, pageName);
+        }
+        
+        Log.d(TAG, "Tracking destination: {}", pageName);
+        TapakAsih.trackPage(pageName);
+    }
+}
@@ -0,0 +1,19 @@
+package com.paondev.lib.tapakasih.util;
+
+import android.util.Log;
+import com.paondev.lib.tapakasih.platform.Logger;
+
+/**
+ * Routes the SDK log messages to Logcat, the default Logger on Android
+ */
+public class AndroidLogger implements Logger {
+    @Override
+    public boolean isLoggable(int priority) {
+        return true;
+    }
+
+    @Override
+    public void log(int priority, String tag, String message) {
+        Log.println(priority, tag, message);
+    }
+}
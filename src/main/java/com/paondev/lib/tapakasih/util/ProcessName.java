@@ -0,0 +1,60 @@
+package com.paondev.lib.tapakasih.util;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Build;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+/**
+ * Name of the current process, used to give each process its own event shard
+ */
+public final class ProcessName {
+    /** Shard of the app's main process, which keeps the single-process directories */
+    public static final String MAIN = "main";
+
+    private ProcessName() {
+    }
+
+    /**
+     * @return Name of the current process, e.g. "com.example.app:remote"
+     */
+    public static String get(Context context) {
+        if (Build.VERSION.SDK_INT >= 28) {
+            return Application.getProcessName();
+        }
+        // Older releases have no API for it, the command line is the process name
+        try (FileInputStream in = new FileInputStream("/proc/self/cmdline")) {
+            byte[] buffer = new byte[256];
+            int length = in.read(buffer);
+            int end = 0;
+            while (end < length && buffer[end] != 0) {
+                end++;
+            }
+            if (end > 0) {
+                return new String(buffer, 0, end, Charset.forName("UTF-8"));
+            }
+        } catch (IOException e) {
+            // Fall back to the main process
+        }
+        return context.getPackageName();
+    }
+
+    /**
+     * @return Shard name of the current process, MAIN for the main process and
+     *         the process suffix (e.g. "remote") for the others
+     */
+    public static String getShardName(Context context) {
+        String processName = get(context);
+        String packageName = context.getPackageName();
+        if (processName == null || processName.equals(packageName)) {
+            return MAIN;
+        }
+        String name = processName.startsWith(packageName + ":")
+                ? processName.substring(packageName.length() + 1)
+                : processName;
+        name = name.replaceAll("[^A-Za-z0-9._-]", "_");
+        return MAIN.equals(name) ? "_" + name : name;
+    }
+}
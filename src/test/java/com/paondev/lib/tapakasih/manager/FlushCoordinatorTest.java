@@ -0,0 +1,88 @@
+package com.paondev.lib.tapakasih.manager;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plain objects stand for activities, the coordinator only compares them by identity
+ */
+public class FlushCoordinatorTest {
+    private ScheduledExecutorService executor;
+    private CountDownLatch flushed;
+    private FlushCoordinator coordinator;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        flushed = new CountDownLatch(1);
+        // Nothing left after the flush, so no job is scheduled and no context is needed
+        coordinator = new FlushCoordinator(null, null, executor, new FlushCoordinator.Flusher() {
+            @Override
+            public boolean flush(long timeoutMs) {
+                flushed.countDown();
+                return true;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        coordinator.release();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void flushesWhenTheOnlyActivityStops() throws InterruptedException {
+        Object activity = new Object();
+        coordinator.onStarted(activity);
+        coordinator.onStopped(activity, false);
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void startingTheSameActivityTwiceCountsOnce() throws InterruptedException {
+        Object activity = new Object();
+        coordinator.onStarted(activity);
+        coordinator.onStarted(activity);
+        coordinator.onStopped(activity, false);
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void doesNotFlushWhileAnotherActivityIsStarted() throws InterruptedException {
+        Object first = new Object();
+        Object second = new Object();
+        coordinator.onStarted(first);
+        coordinator.onStarted(second);
+        coordinator.onStopped(first, false);
+
+        assertFalse(flushed.await(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void doesNotFlushOnConfigurationChange() throws InterruptedException {
+        Object activity = new Object();
+        coordinator.onStarted(activity);
+        coordinator.onStopped(activity, true);
+        Object recreated = new Object();
+        coordinator.onStarted(recreated);
+
+        assertFalse(flushed.await(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void flushesWhenAnActivityStartedBeforeRegistrationStops() throws InterruptedException {
+        coordinator.onStopped(new Object(), false);
+
+        assertTrue(flushed.await(5, TimeUnit.SECONDS));
+    }
+}
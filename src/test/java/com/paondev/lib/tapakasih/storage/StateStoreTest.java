@@ -0,0 +1,252 @@
+package com.paondev.lib.tapakasih.storage;
+
+import android.content.SharedPreferences;
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Two StateStores with their own preferences and one shared file stand for two processes
+ */
+public class StateStoreTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void sessionSetInOneProcessIsSeenByTheOther() {
+        StateStore main = newProcess();
+        StateStore remote = newProcess();
+        assertNull(remote.getSnapshot().getSessionId());
+
+        main.setSessionId("session-1");
+        main.flush();
+
+        assertEquals("session-1", remote.refresh().getSessionId());
+    }
+
+    @Test
+    public void tokenAndDemandAreShared() {
+        StateStore main = newProcess();
+        StateStore remote = newProcess();
+
+        main.setDeveloperToken("token");
+        main.setDemand("ACTIVE", "etag", 1234L, 0.5);
+        main.flush();
+        remote.setTokenExpired(true);
+        remote.flush();
+
+        StateStore.Snapshot state = remote.refresh();
+        assertEquals("token", state.getDeveloperToken());
+        assertTrue(state.isTokenExpired());
+        assertEquals("ACTIVE", state.getDemandStatus());
+        assertEquals("etag", state.getDemandEtag());
+        assertEquals(1234L, state.getDemandExpiresAt());
+        assertEquals(0.5, state.getSampleRate(), 0);
+        assertTrue(main.refresh().isTokenExpired());
+    }
+
+    @Test
+    public void unwrittenLocalChangeWinsOverFile() {
+        StateStore main = newProcess();
+        StateStore remote = newProcess();
+        main.setSessionId("from-main");
+        main.flush();
+
+        remote.setSessionId("from-remote");
+        assertEquals("from-remote", remote.refresh().getSessionId());
+        remote.flush();
+
+        assertEquals("from-remote", main.refresh().getSessionId());
+    }
+
+    @Test
+    public void clearingIsShared() {
+        StateStore main = newProcess();
+        StateStore remote = newProcess();
+        main.setSessionId("session");
+        main.flush();
+        assertEquals("session", remote.refresh().getSessionId());
+
+        remote.setSessionId(null);
+        remote.flush();
+        assertFalse(main.refresh().hasSessionId());
+    }
+
+    @Test
+    public void requestedRefreshIsPublishedToSnapshot() throws InterruptedException {
+        StateStore main = newProcess();
+        StateStore remote = newProcess();
+        main.setSessionId("session-1");
+        main.flush();
+
+        remote.requestRefresh();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!remote.getSnapshot().hasSessionId() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("session-1", remote.getSnapshot().getSessionId());
+    }
+
+    @Test
+    public void firstProcessSeedsFileFromItsPreferences() {
+        MemoryPreferences prefs = new MemoryPreferences();
+        prefs.edit().putString("session_id", "old-session").commit();
+        StateStore main = new StateStore(new LocalStorage(prefs));
+        main.share(sharedFile());
+
+        StateStore remote = newProcess();
+        assertEquals("old-session", remote.getSnapshot().getSessionId());
+    }
+
+    private StateStore newProcess() {
+        StateStore store = new StateStore(new LocalStorage(new MemoryPreferences()));
+        store.share(sharedFile());
+        return store;
+    }
+
+    private SharedStateFile sharedFile() {
+        return new SharedStateFile(new File(folder.getRoot(), "state"), new File(folder.getRoot(), "state.lock"));
+    }
+
+    /**
+     * SharedPreferences of one process
+     */
+    private static final class MemoryPreferences implements SharedPreferences {
+        final Map<String, Object> values = new HashMap<>();
+
+        @Override
+        public Map<String, ?> getAll() {
+            return values;
+        }
+
+        @Override
+        public String getString(String key, String defValue) {
+            Object value = values.get(key);
+            return value != null ? (String) value : defValue;
+        }
+
+        @Override
+        public Set<String> getStringSet(String key, Set<String> defValues) {
+            return defValues;
+        }
+
+        @Override
+        public int getInt(String key, int defValue) {
+            Object value = values.get(key);
+            return value != null ? (Integer) value : defValue;
+        }
+
+        @Override
+        public long getLong(String key, long defValue) {
+            Object value = values.get(key);
+            return value != null ? (Long) value : defValue;
+        }
+
+        @Override
+        public float getFloat(String key, float defValue) {
+            Object value = values.get(key);
+            return value != null ? (Float) value : defValue;
+        }
+
+        @Override
+        public boolean getBoolean(String key, boolean defValue) {
+            Object value = values.get(key);
+            return value != null ? (Boolean) value : defValue;
+        }
+
+        @Override
+        public boolean contains(String key) {
+            return values.containsKey(key);
+        }
+
+        @Override
+        public Editor edit() {
+            return new MemoryEditor();
+        }
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        }
+
+        private final class MemoryEditor implements Editor {
+            private final Map<String, Object> changes = new HashMap<>();
+
+            @Override
+            public Editor putString(String key, String value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putStringSet(String key, Set<String> values) {
+                changes.put(key, values);
+                return this;
+            }
+
+            @Override
+            public Editor putInt(String key, int value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putLong(String key, long value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putFloat(String key, float value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor putBoolean(String key, boolean value) {
+                changes.put(key, value);
+                return this;
+            }
+
+            @Override
+            public Editor remove(String key) {
+                changes.put(key, null);
+                return this;
+            }
+
+            @Override
+            public Editor clear() {
+                values.clear();
+                return this;
+            }
+
+            @Override
+            public boolean commit() {
+                synchronized (values) {
+                    for (Map.Entry<String, Object> change : changes.entrySet()) {
+                        if (change.getValue() != null) {
+                            values.put(change.getKey(), change.getValue());
+                        } else {
+                            values.remove(change.getKey());
+                        }
+                    }
+                }
+                return true;
+            }
+
+            @Override
+            public void apply() {
+                commit();
+            }
+        }
+    }
+}
@@ -6,21 +6,34 @@ import android.util.Log
 import com.paondev.lib.tapakasih.TapakAsih
 import com.paondev.lib.tapakasih.config.TapakAsihConfig
 import io.flutter.embedding.engine.plugins.FlutterPlugin
+import io.flutter.plugin.common.BasicMessageChannel
+import io.flutter.plugin.common.BinaryCodec
 import io.flutter.plugin.common.MethodCall
 import io.flutter.plugin.common.MethodChannel
 import io.flutter.plugin.common.MethodChannel.MethodCallHandler
 import io.flutter.plugin.common.MethodChannel.Result
+import java.nio.BufferUnderflowException
+import java.nio.ByteBuffer
+import java.nio.ByteOrder
 
 /** TapakAsihFlutterPlugin */
 class TapakAsihFlutterPlugin : FlutterPlugin, MethodCallHandler {
     private val TAG = "TapakAsihFlutterPlugin"
     
     private lateinit var channel: MethodChannel
+    private lateinit var eventChannel: BasicMessageChannel<ByteBuffer>
     private var applicationContext: Context? = null
 
     override fun onAttachedToEngine(flutterPluginBinding: FlutterPlugin.FlutterPluginBinding) {
         channel = MethodChannel(flutterPluginBinding.binaryMessenger, "tapak_asih")
         channel.setMethodCallHandler(this)
+        // Page views batched by the Dart side, see TapakAsihEventBuffer
+        eventChannel = BasicMessageChannel(flutterPluginBinding.binaryMessenger, "tapak_asih/events",
+            BinaryCodec.INSTANCE_DIRECT)
+        eventChannel.setMessageHandler { message, reply ->
+            trackBatch(message)
+            reply.reply(null)
+        }
         applicationContext = flutterPluginBinding.applicationContext
     }
 
@@ -45,6 +58,7 @@ class TapakAsihFlutterPlugin : FlutterPlugin, MethodCallHandler {
             val enableDebugLogs = args?.get("enableDebugLogs") as? Boolean ?: false
             val enableOfflineQueue = args?.get("enableOfflineQueue") as? Boolean ?: true
             val retryAttempts = args?.get("retryAttempts") as? Int ?: 3
+            val enableDwellTime = args?.get("enableDwellTime") as? Boolean ?: false
 
             if (developerToken == null) {
                 result.error("INVALID_ARGUMENT", "Developer token is required", null)
@@ -61,6 +75,7 @@ class TapakAsihFlutterPlugin : FlutterPlugin, MethodCallHandler {
                 .setEnableDebugLogs(enableDebugLogs)
                 .setEnableOfflineQueue(enableOfflineQueue)
                 .setRetryAttempts(retryAttempts)
+                .setEnableDwellTime(enableDwellTime)
                 .build()
 
             TapakAsih.initialize(context, config)
@@ -89,6 +104,57 @@ class TapakAsihFlutterPlugin : FlutterPlugin, MethodCallHandler {
         }
     }
 
+    /**
+     * Feed a batch of page views and dwell times into the SDK, page views keep
+     * their Dart-side timestamps.
+     * The buffer is only valid during the call, so it is decoded right away.
+     */
+    private fun trackBatch(message: ByteBuffer?) {
+        if (message == null) {
+            return
+        }
+        try {
+            message.order(ByteOrder.BIG_ENDIAN)
+            val version = message.get().toInt() and 0xFF
+            if (version < 1 || version > EVENT_BATCH_VERSION) {
+                Log.w(TAG, "Unsupported event batch version: $version")
+                return
+            }
+
+            val pageCount = message.short.toInt() and 0xFFFF
+            val pages = Array(pageCount) {
+                val bytes = ByteArray(message.short.toInt() and 0xFFFF)
+                message.get(bytes)
+                String(bytes, Charsets.UTF_8)
+            }
+
+            val eventCount = message.short.toInt() and 0xFFFF
+            repeat(eventCount) {
+                val trackedAtMillis = message.long
+                val pageIndex = message.short.toInt() and 0xFFFF
+                if (pageIndex < pageCount) {
+                    TapakAsih.trackPage(pages[pageIndex], trackedAtMillis)
+                }
+            }
+
+            // Version 2 adds the dwell times measured by TapakAsihNavigatorObserver
+            if (version >= 2) {
+                val dwellCount = message.short.toInt() and 0xFFFF
+                repeat(dwellCount) {
+                    val pageIndex = message.short.toInt() and 0xFFFF
+                    val dwellTimeMs = message.int.toLong() and 0xFFFFFFFFL
+                    if (pageIndex < pageCount) {
+                        TapakAsih.trackDwellTime(pages[pageIndex], dwellTimeMs)
+                    }
+                }
+            }
+        } catch (e: BufferUnderflowException) {
+            Log.e(TAG, "Malformed event batch", e)
+        } catch (e: Exception) {
+            Log.e(TAG, "Error tracking event batch", e)
+        }
+    }
+
     private fun setSessionId(call: MethodCall, result: Result) {
         try {
             val args = call.arguments as? Map<String, Any>
@@ -159,5 +225,10 @@ class TapakAsihFlutterPlugin : FlutterPlugin, MethodCallHandler {
 
     override fun onDetachedFromEngine(binding: FlutterPlugin.FlutterPluginBinding) {
         channel.setMethodCallHandler(null)
+        eventChannel.setMessageHandler(null)
+    }
+
+    companion object {
+        private const val EVENT_BATCH_VERSION = 2
     }
 }
\ No newline at end of file
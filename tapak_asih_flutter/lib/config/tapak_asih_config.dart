@@ -5,11 +5,15 @@ class TapakAsihConfig {
   final bool enableOfflineQueue;
   final int retryAttempts;
 
+  /// Send the time spent on each page, measured by [TapakAsihNavigatorObserver]
+  final bool enableDwellTime;
+
   TapakAsihConfig({
     required this.developerToken,
     this.enableDebugLogs = false,
     this.enableOfflineQueue = true,
     this.retryAttempts = 3,
+    this.enableDwellTime = false,
   });
 
   /// Create configuration from map
@@ -19,6 +23,7 @@ class TapakAsihConfig {
       enableDebugLogs: map['enableDebugLogs'] as bool? ?? false,
       enableOfflineQueue: map['enableOfflineQueue'] as bool? ?? true,
       retryAttempts: map['retryAttempts'] as int? ?? 3,
+      enableDwellTime: map['enableDwellTime'] as bool? ?? false,
     );
   }
 
@@ -29,6 +34,7 @@ class TapakAsihConfig {
       'enableDebugLogs': enableDebugLogs,
       'enableOfflineQueue': enableOfflineQueue,
       'retryAttempts': retryAttempts,
+      'enableDwellTime': enableDwellTime,
     };
   }
 }
\ No newline at end of file
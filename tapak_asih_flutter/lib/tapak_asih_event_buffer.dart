@@ -0,0 +1,211 @@
+import 'dart:async';
+import 'dart:convert';
+
+import 'package:flutter/foundation.dart';
+import 'package:flutter/services.dart';
+import 'package:flutter/widgets.dart';
+
+/// Buffers page views and dwell times on the Dart side and sends them to the
+/// platform in one binary message, instead of one method call per page view.
+///
+/// Page views are timestamped when they are added. The buffer is sent once it
+/// holds [maxEvents] entries, [flushDelay] after the first one, and when the
+/// app leaves the foreground. Entries of a failed send are kept for the next
+/// one.
+///
+/// Message layout (big-endian):
+/// ```
+/// u8  version
+/// u16 page count,  then per page:  u16 UTF-8 length, UTF-8 bytes
+/// u16 event count, then per event: i64 timestamp (ms since epoch), u16 page index
+/// u16 dwell count, then per dwell: u16 page index, u32 duration (ms)
+/// ```
+class TapakAsihEventBuffer with WidgetsBindingObserver {
+  /// Name of the channel the batches are sent on
+  static const String channelName = 'tapak_asih/events';
+
+  /// Version of the message layout
+  static const int version = 2;
+
+  /// Number of entries that triggers a send
+  static const int maxEvents = 64;
+
+  /// Most page views, and most dwell times, kept after failed sends
+  static const int maxBuffered = maxEvents * 4;
+
+  /// Longest time an entry waits in the buffer
+  static const Duration flushDelay = Duration(milliseconds: 500);
+
+  @visibleForTesting
+  final BasicMessageChannel<ByteData> channel =
+      const BasicMessageChannel<ByteData>(channelName, BinaryCodec());
+
+  final List<int> _timestamps = <int>[];
+  final List<String> _pages = <String>[];
+  final List<String> _dwellPages = <String>[];
+  final List<int> _dwellDurations = <int>[];
+  Timer? _timer;
+  bool _observing = false;
+
+  /// Add a page view, timestamped now
+  void add(String pageName) {
+    _timestamps.add(DateTime.now().millisecondsSinceEpoch);
+    _pages.add(pageName);
+    _scheduleFlush();
+  }
+
+  /// Add time spent on a page
+  void addDwellTime(String pageName, Duration duration) {
+    if (duration.isNegative) {
+      return;
+    }
+    _dwellPages.add(pageName);
+    _dwellDurations.add(duration.inMilliseconds.clamp(0, 0xFFFFFFFF).toInt());
+    _scheduleFlush();
+  }
+
+  void _scheduleFlush() {
+    if (!_observing) {
+      _observing = true;
+      WidgetsBinding.instance.addObserver(this);
+    }
+
+    if (_pages.length + _dwellPages.length >= maxEvents) {
+      flush();
+    } else {
+      _timer ??= Timer(flushDelay, flush);
+    }
+  }
+
+  /// Send the buffered entries now
+  Future<void> flush() async {
+    _timer?.cancel();
+    _timer = null;
+    if (_pages.isEmpty && _dwellPages.isEmpty) {
+      return;
+    }
+
+    final timestamps = List<int>.of(_timestamps);
+    final pages = List<String>.of(_pages);
+    final dwellPages = List<String>.of(_dwellPages);
+    final dwellDurations = List<int>.of(_dwellDurations);
+    _timestamps.clear();
+    _pages.clear();
+    _dwellPages.clear();
+    _dwellDurations.clear();
+    try {
+      await channel.send(encode(timestamps, pages,
+          dwellPages: dwellPages, dwellDurations: dwellDurations));
+    } catch (e) {
+      _restore(timestamps, pages, dwellPages, dwellDurations);
+      debugPrint('TapakAsih: Failed to send ${pages.length} page views and '
+          '${dwellPages.length} dwell times, kept for the next send: $e');
+    }
+  }
+
+  /// Put entries of a failed send back in front of the newer ones, dropping
+  /// the oldest beyond [maxBuffered]
+  void _restore(List<int> timestamps, List<String> pages,
+      List<String> dwellPages, List<int> dwellDurations) {
+    _timestamps.insertAll(0, timestamps);
+    _pages.insertAll(0, pages);
+    _dwellPages.insertAll(0, dwellPages);
+    _dwellDurations.insertAll(0, dwellDurations);
+    if (_pages.length > maxBuffered) {
+      final excess = _pages.length - maxBuffered;
+      _timestamps.removeRange(0, excess);
+      _pages.removeRange(0, excess);
+    }
+    if (_dwellPages.length > maxBuffered) {
+      final excess = _dwellPages.length - maxBuffered;
+      _dwellPages.removeRange(0, excess);
+      _dwellDurations.removeRange(0, excess);
+    }
+  }
+
+  @override
+  void didChangeAppLifecycleState(AppLifecycleState state) {
+    if (state != AppLifecycleState.resumed) {
+      flush();
+    }
+  }
+
+  /// Encode page views and dwell times into the message layout, each page
+  /// name is written once
+  @visibleForTesting
+  static ByteData encode(List<int> timestamps, List<String> pages,
+      {List<String> dwellPages = const <String>[],
+      List<int> dwellDurations = const <int>[]}) {
+    final indices = <String, int>{};
+    final names = <Uint8List>[];
+
+    int? indexOf(String page) {
+      var index = indices[page];
+      if (index == null) {
+        final bytes = utf8.encode(page);
+        if (bytes.length > 0xFFFF || names.length == 0xFFFF) {
+          return null;
+        }
+        index = names.length;
+        indices[page] = index;
+        names.add(bytes);
+      }
+      return index;
+    }
+
+    final eventIndices = <int>[];
+    final eventTimestamps = <int>[];
+    for (var i = 0; i < pages.length; i++) {
+      final index = indexOf(pages[i]);
+      if (index != null) {
+        eventIndices.add(index);
+        eventTimestamps.add(timestamps[i]);
+      }
+    }
+
+    final dwellIndices = <int>[];
+    final durations = <int>[];
+    for (var i = 0; i < dwellPages.length; i++) {
+      final index = indexOf(dwellPages[i]);
+      if (index != null) {
+        dwellIndices.add(index);
+        durations.add(dwellDurations[i]);
+      }
+    }
+
+    var size = 1 + 2 + 2 + eventIndices.length * 10 + 2 + dwellIndices.length * 6;
+    for (final name in names) {
+      size += 2 + name.length;
+    }
+
+    final data = ByteData(size);
+    var offset = 0;
+    data.setUint8(offset, version);
+    offset += 1;
+    data.setUint16(offset, names.length);
+    offset += 2;
+    for (final name in names) {
+      data.setUint16(offset, name.length);
+      offset += 2;
+      data.buffer.asUint8List().setAll(offset, name);
+      offset += name.length;
+    }
+    data.setUint16(offset, eventIndices.length);
+    offset += 2;
+    for (var i = 0; i < eventIndices.length; i++) {
+      data.setInt64(offset, eventTimestamps[i]);
+      offset += 8;
+      data.setUint16(offset, eventIndices[i]);
+      offset += 2;
+    }
+    data.setUint16(offset, dwellIndices.length);
+    offset += 2;
+    for (var i = 0; i < dwellIndices.length; i++) {
+      data.setUint16(offset, dwellIndices[i]);
+      offset += 2;
+      data.setUint32(offset, durations[i]);
+      offset += 4;
+    }
+    return data;
+  }
+}
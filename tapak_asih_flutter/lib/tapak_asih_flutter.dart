@@ -1,6 +1,8 @@
 import 'tapak_asih_platform_interface.dart';
 import 'config/tapak_asih_config.dart';
 
+export 'tapak_asih_navigator_observer.dart';
+
 /// TapakAsih Flutter SDK - Activity Tracking SDK
 ///
 /// Main class for initializing and using the TapakAsih SDK in Flutter apps.
@@ -17,6 +19,9 @@ import 'config/tapak_asih_config.dart';
 /// // Track page
 /// await TapAsih.trackPage('HomePage');
 ///
+/// // Or track routes automatically
+/// MaterialApp(navigatorObservers: [TapakAsihNavigatorObserver()]);
+///
 /// // Set session ID
 /// await TapAsih.setSessionId('user-session-id');
 /// ```
@@ -43,6 +48,14 @@ class TapAsih {
     return TapakAsihPlatform.instance.trackPage(pageName);
   }
 
+  /// Add time spent on a page to its dwell time summary
+  ///
+  /// Only used with `enableDwellTime`; [TapakAsihNavigatorObserver] measures
+  /// routes automatically.
+  static Future<void> trackDwellTime(String pageName, Duration duration) {
+    return TapakAsihPlatform.instance.trackDwellTime(pageName, duration);
+  }
+
   /// Set session ID
   ///
   /// [sessionId] - User's session ID obtained from TapakAsih website
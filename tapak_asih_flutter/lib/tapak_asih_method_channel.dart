@@ -1,13 +1,20 @@
 import 'package:flutter/foundation.dart';
 import 'package:flutter/services.dart';
 import 'tapak_asih_platform_interface.dart';
+import 'tapak_asih_event_buffer.dart';
 import 'config/tapak_asih_config.dart';
 
 /// Method channel implementation for TapakAsih SDK
+///
+/// Page views are buffered and sent in batches through [TapakAsihEventBuffer];
+/// the buffer is flushed before calls that change the session or the SDK state.
 class MethodChannelTapakAsih extends TapakAsihPlatform {
   @visibleForTesting
   final methodChannel = const MethodChannel('tapak_asih');
 
+  @visibleForTesting
+  final eventBuffer = TapakAsihEventBuffer();
+
   @override
   Future<void> initialize(TapakAsihConfig config) async {
     await methodChannel.invokeMethod('initialize', config.toMap());
@@ -15,11 +22,17 @@ class MethodChannelTapakAsih extends TapakAsihPlatform {
 
   @override
   Future<void> trackPage(String pageName) async {
-    await methodChannel.invokeMethod('trackPage', {'pageName': pageName});
+    eventBuffer.add(pageName);
+  }
+
+  @override
+  Future<void> trackDwellTime(String pageName, Duration duration) async {
+    eventBuffer.addDwellTime(pageName, duration);
   }
 
   @override
   Future<void> setSessionId(String sessionId) async {
+    await eventBuffer.flush();
     await methodChannel.invokeMethod('setSessionId', {'sessionId': sessionId});
   }
 
@@ -42,11 +55,13 @@ class MethodChannelTapakAsih extends TapakAsihPlatform {
 
   @override
   Future<void> clearSessionId() async {
+    await eventBuffer.flush();
     await methodChannel.invokeMethod('clearSessionId');
   }
 
   @override
   Future<void> destroy() async {
+    await eventBuffer.flush();
     await methodChannel.invokeMethod('destroy');
   }
 }
\ No newline at end of file
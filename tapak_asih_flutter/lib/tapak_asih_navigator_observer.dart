@@ -0,0 +1,116 @@
+import 'package:flutter/widgets.dart';
+
+import 'tapak_asih_platform_interface.dart';
+
+/// Extracts the page name of a route, null to leave the route untracked
+typedef RouteNameExtractor = String? Function(Route<dynamic> route);
+
+/// Tracks route changes automatically
+///
+/// Add it to `MaterialApp.navigatorObservers`. Every route that becomes visible
+/// through push, pop or replace is tracked as a page view, and the time it was
+/// visible is sent as its dwell time when it is covered, removed, or the app
+/// leaves the foreground (requires `enableDwellTime` in the config).
+///
+/// The observer only records timestamps and names; page views and dwell times
+/// go through the SDK's event buffer, which sends them to the platform in
+/// batches after the transition, never during it.
+class TapakAsihNavigatorObserver extends NavigatorObserver
+    with WidgetsBindingObserver {
+  /// Page name of a route, defaults to its `RouteSettings.name`
+  final RouteNameExtractor nameExtractor;
+
+  /// Track dialogs, bottom sheets and other popup routes, default false
+  final bool trackPopupRoutes;
+
+  String? _currentName;
+  final Stopwatch _visible = Stopwatch();
+  bool _observing = false;
+
+  TapakAsihNavigatorObserver({
+    this.nameExtractor = defaultNameExtractor,
+    this.trackPopupRoutes = false,
+  });
+
+  /// Default [nameExtractor], the name the route was pushed with
+  static String? defaultNameExtractor(Route<dynamic> route) =>
+      route.settings.name;
+
+  @override
+  void didPush(Route<dynamic> route, Route<dynamic>? previousRoute) {
+    _show(route);
+  }
+
+  @override
+  void didPop(Route<dynamic> route, Route<dynamic>? previousRoute) {
+    if (previousRoute != null && _isTracked(route)) {
+      _show(previousRoute);
+    }
+  }
+
+  @override
+  void didReplace({Route<dynamic>? newRoute, Route<dynamic>? oldRoute}) {
+    if (newRoute != null && newRoute.isCurrent) {
+      _show(newRoute);
+    }
+  }
+
+  @override
+  void didRemove(Route<dynamic> route, Route<dynamic>? previousRoute) {
+    if (previousRoute != null && previousRoute.isCurrent && _isTracked(route)) {
+      _show(previousRoute);
+    }
+  }
+
+  @override
+  void didChangeAppLifecycleState(AppLifecycleState state) {
+    if (state == AppLifecycleState.resumed) {
+      if (_currentName != null && !_visible.isRunning) {
+        _visible.start();
+      }
+    } else {
+      _recordDwellTime();
+    }
+  }
+
+  bool _isTracked(Route<dynamic> route) =>
+      route is PageRoute || (trackPopupRoutes && route is PopupRoute);
+
+  /// A route became visible: close the previous page's dwell time, track this one
+  void _show(Route<dynamic> route) {
+    if (!_isTracked(route)) {
+      return;
+    }
+    final name = nameExtractor(route);
+    if (name == null || name.isEmpty) {
+      return;
+    }
+    // Coalesce transitions that land on the page already shown
+    if (name == _currentName) {
+      return;
+    }
+
+    if (!_observing) {
+      _observing = true;
+      WidgetsBinding.instance.addObserver(this);
+    }
+
+    _recordDwellTime();
+    _currentName = name;
+    _visible
+      ..reset()
+      ..start();
+    TapakAsihPlatform.instance.trackPage(name);
+  }
+
+  /// Send the time the current page was visible, the stopwatch restarts on resume
+  void _recordDwellTime() {
+    final name = _currentName;
+    if (name == null || !_visible.isRunning) {
+      return;
+    }
+    _visible.stop();
+    TapakAsihPlatform.instance.trackDwellTime(name, _visible.elapsed);
+    _visible.reset();
+  }
+}
@@ -35,6 +35,11 @@ abstract class TapakAsihPlatform extends PlatformInterface {
     throw UnimplementedError('trackPage() has not been implemented.');
   }
 
+  /// Add time spent on a page to its dwell time summary
+  Future<void> trackDwellTime(String pageName, Duration duration) {
+    throw UnimplementedError('trackDwellTime() has not been implemented.');
+  }
+
   /// Set session ID
   Future<void> setSessionId(String sessionId) {
     throw UnimplementedError('setSessionId() has not been implemented.');
@@ -0,0 +1,81 @@
+import 'dart:typed_data';
+
+import 'package:flutter/services.dart';
+import 'package:flutter_test/flutter_test.dart';
+import 'package:tapak_asih_flutter/tapak_asih_event_buffer.dart';
+
+void main() {
+  TestWidgetsFlutterBinding.ensureInitialized();
+
+  final messenger =
+      TestDefaultBinaryMessengerBinding.instance.defaultBinaryMessenger;
+
+  tearDown(() {
+    messenger.setMockMessageHandler(TapakAsihEventBuffer.channelName, null);
+  });
+
+  List<int> bytesOf(ByteData data) =>
+      data.buffer.asUint8List(data.offsetInBytes, data.lengthInBytes);
+
+  test('encode writes version 2 pages, events and dwell entries', () {
+    final data = TapakAsihEventBuffer.encode(
+      <int>[1000, 2000, 3000],
+      <String>['home', 'café', 'home'],
+      dwellPages: <String>['home', 'about'],
+      dwellDurations: <int>[1500, 60000],
+    );
+
+    expect(bytesOf(data), <int>[
+      // version
+      2,
+      // pages: home, café (5 UTF-8 bytes), about
+      0, 3,
+      0, 4, 0x68, 0x6F, 0x6D, 0x65,
+      0, 5, 0x63, 0x61, 0x66, 0xC3, 0xA9,
+      0, 5, 0x61, 0x62, 0x6F, 0x75, 0x74,
+      // events: i64 timestamp, u16 page index
+      0, 3,
+      0, 0, 0, 0, 0, 0, 0x03, 0xE8, 0, 0,
+      0, 0, 0, 0, 0, 0, 0x07, 0xD0, 0, 1,
+      0, 0, 0, 0, 0, 0, 0x0B, 0xB8, 0, 0,
+      // dwell: u16 page index, u32 duration
+      0, 2,
+      0, 0, 0, 0, 0x05, 0xDC,
+      0, 2, 0, 0, 0xEA, 0x60,
+    ]);
+  });
+
+  test('encode writes empty sections', () {
+    final data = TapakAsihEventBuffer.encode(<int>[], <String>[]);
+
+    expect(bytesOf(data), <int>[2, 0, 0, 0, 0, 0, 0]);
+  });
+
+  test('flush keeps the entries of a failed send', () async {
+    final sent = <ByteData>[];
+    var fail = true;
+    messenger.setMockMessageHandler(TapakAsihEventBuffer.channelName,
+        (ByteData? message) async {
+      if (fail) {
+        throw PlatformException(code: 'detached');
+      }
+      sent.add(message!);
+      return null;
+    });
+
+    final buffer = TapakAsihEventBuffer();
+    buffer.addDwellTime('home', const Duration(milliseconds: 1500));
+    await buffer.flush();
+    expect(sent, isEmpty);
+
+    fail = false;
+    await buffer.flush();
+    expect(sent, hasLength(1));
+    expect(bytesOf(sent.single), <int>[
+      2,
+      0, 1, 0, 4, 0x68, 0x6F, 0x6D, 0x65,
+      0, 0,
+      0, 1, 0, 0, 0, 0, 0x05, 0xDC,
+    ]);
+  });
+}
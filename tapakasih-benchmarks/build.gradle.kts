@@ -0,0 +1,28 @@
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    jmh(project(":tapakasih-core"))
+    jmh("com.google.code.gson:gson:2.10.1")
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    // Short runs by default; pass -PjmhFull for stable measurements
+    if (!project.hasProperty("jmhFull")) {
+        warmupIterations.set(1)
+        warmup.set("1s")
+        iterations.set(3)
+        timeOnIteration.set("1s")
+        fork.set(1)
+    }
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+}
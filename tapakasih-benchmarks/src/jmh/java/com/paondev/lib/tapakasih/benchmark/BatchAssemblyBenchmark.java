@@ -0,0 +1,61 @@
+package com.paondev.lib.tapakasih.benchmark;
+
+import com.paondev.lib.tapakasih.network.ActivityRequest;
+import com.paondev.lib.tapakasih.network.ActivityRequestBody;
+import com.paondev.lib.tapakasih.queue.EventCodec;
+import com.paondev.lib.tapakasih.queue.EventStore;
+import com.paondev.lib.tapakasih.queue.MemoryEventStore;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Turning queued records into an upload body: read a batch from the store,
+ * decode its records and size the request body, as EventUploader.flush() does
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class BatchAssemblyBenchmark {
+
+    @Param({"10", "50"})
+    public int batchSize;
+
+    private MemoryEventStore store;
+    private byte[][] records;
+
+    @Setup
+    public void setUp() throws IOException {
+        store = new MemoryEventStore();
+        records = new byte[batchSize][];
+        for (int i = 0; i < batchSize; i++) {
+            records[i] = EventCodec.encode(Events.request(i));
+        }
+    }
+
+    @Benchmark
+    public long assemble() throws IOException {
+        // Refill the store with the batch taken by the previous invocation
+        for (byte[] record : records) {
+            store.append(record);
+        }
+
+        EventStore.Batch batch = store.read(batchSize, 64 * 1024);
+        List<ActivityRequest> requests = new ArrayList<>(batch.getRecords().size());
+        for (byte[] record : batch.getRecords()) {
+            requests.add(EventCodec.decode(record));
+        }
+        long length = ActivityRequestBody.forBatch(requests).contentLength();
+        store.commit(batch);
+        return length;
+    }
+}
@@ -0,0 +1,92 @@
+package com.paondev.lib.tapakasih.benchmark;
+
+import com.paondev.lib.tapakasih.queue.EventRingBuffer;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of track()'s hand-off: EventRingBuffer.offer() on the caller's thread
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class EnqueueBenchmark {
+
+    @State(Scope.Thread)
+    public static class Uncontended {
+        EventRingBuffer buffer;
+        Blackhole blackhole;
+        EventRingBuffer.Consumer consumer;
+
+        @Setup
+        public void setUp(final Blackhole blackhole) {
+            this.buffer = new EventRingBuffer(1024);
+            this.blackhole = blackhole;
+            this.consumer = new EventRingBuffer.Consumer() {
+                @Override
+                public void accept(long epochTime, String pageName, String sessionId) {
+                    blackhole.consume(pageName);
+                }
+            };
+        }
+    }
+
+    @State(Scope.Group)
+    public static class Contended {
+        EventRingBuffer buffer;
+
+        @Setup
+        public void setUp() {
+            this.buffer = new EventRingBuffer(1024);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Drainer {
+        EventRingBuffer.Consumer consumer;
+
+        @Setup
+        public void setUp(final Blackhole blackhole) {
+            this.consumer = new EventRingBuffer.Consumer() {
+                @Override
+                public void accept(long epochTime, String pageName, String sessionId) {
+                    blackhole.consume(pageName);
+                }
+            };
+        }
+    }
+
+    /**
+     * Offer and take one event on the same thread
+     */
+    @Benchmark
+    public int offerAndDrain(Uncontended state) {
+        state.buffer.offer(1700000000000L, Events.PAGE_NAMES[0], Events.SESSION_ID);
+        return state.buffer.drain(state.consumer, 1);
+    }
+
+    /**
+     * Three producers against the single drainer thread
+     */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(3)
+    public boolean offer(Contended state) {
+        return state.buffer.offer(1700000000000L, Events.PAGE_NAMES[0], Events.SESSION_ID);
+    }
+
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public int drain(Contended state, Drainer drainer) {
+        return state.buffer.drain(drainer.consumer, 256);
+    }
+}
@@ -0,0 +1,31 @@
+package com.paondev.lib.tapakasih.benchmark;
+
+import com.paondev.lib.tapakasih.network.ActivityRequest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Representative events shared by the benchmarks
+ */
+final class Events {
+    static final String SESSION_ID = "3f1c9a52-7d4e-4b8a-9c61-0e2f5d8b7a14";
+    static final String[] PAGE_NAMES = {
+            "MainActivity", "ProductListActivity", "ProductDetailActivity",
+            "CartActivity", "CheckoutActivity", "SettingsActivity"
+    };
+
+    private Events() {
+    }
+
+    static ActivityRequest request(int i) {
+        return new ActivityRequest(1700000000L + i, PAGE_NAMES[i % PAGE_NAMES.length], SESSION_ID);
+    }
+
+    static List<ActivityRequest> requests(int count) {
+        List<ActivityRequest> requests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            requests.add(request(i));
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,70 @@
+package com.paondev.lib.tapakasih.benchmark;
+
+import com.paondev.lib.tapakasih.queue.EventCodec;
+import com.paondev.lib.tapakasih.queue.EventJournal;
+import com.paondev.lib.tapakasih.queue.EventStore;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Event journal append and read/commit, on the default temp directory
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class JournalBenchmark {
+    private static final int BATCH_SIZE = 50;
+    private static final long SEGMENT_SIZE = 256 * 1024;
+
+    private File directory;
+    private EventJournal journal;
+    private byte[] record;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tapakasih-journal").toFile();
+        journal = new EventJournal(directory, SEGMENT_SIZE);
+        record = EventCodec.encode(Events.request(0));
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        journal.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Benchmark
+    public void append() throws IOException {
+        journal.append(record);
+    }
+
+    /**
+     * Append a batch, then read and commit it as the uploader does
+     */
+    @Benchmark
+    public int appendReadCommit() throws IOException {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            journal.append(record);
+        }
+        EventStore.Batch batch = journal.read(BATCH_SIZE, Long.MAX_VALUE);
+        journal.commit(batch);
+        return batch.getRecords().size();
+    }
+}
@@ -0,0 +1,74 @@
+package com.paondev.lib.tapakasih.benchmark;
+
+import com.google.gson.Gson;
+import com.paondev.lib.tapakasih.network.ActivityRequest;
+import com.paondev.lib.tapakasih.network.ActivityRequestBody;
+import com.paondev.lib.tapakasih.queue.EventCodec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Upload body serialization, compared with the Gson encoding it replaced,
+ * and the record codec used by the event store
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class SerializationBenchmark {
+
+    @Param({"1", "50"})
+    public int batchSize;
+
+    private List<ActivityRequest> requests;
+    private Gson gson;
+    private byte[] record;
+
+    @Setup
+    public void setUp() throws IOException {
+        requests = Events.requests(batchSize);
+        gson = new Gson();
+        record = EventCodec.encode(requests.get(0));
+    }
+
+    @Benchmark
+    public long streamingBody() throws IOException {
+        Buffer sink = new Buffer();
+        ActivityRequestBody body = ActivityRequestBody.forBatch(requests);
+        body.writeTo(sink);
+        return body.contentLength() + sink.size();
+    }
+
+    @Benchmark
+    public long dictionaryBody() throws IOException {
+        Buffer sink = new Buffer();
+        ActivityRequestBody body = ActivityRequestBody.forDictionaryBatch(requests);
+        body.writeTo(sink);
+        return body.contentLength() + sink.size();
+    }
+
+    @Benchmark
+    public int gsonBody() {
+        return gson.toJson(requests).getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    @Benchmark
+    public byte[] encodeRecord() throws IOException {
+        return EventCodec.encode(requests.get(0));
+    }
+
+    @Benchmark
+    public ActivityRequest decodeRecord() throws IOException {
+        return EventCodec.decode(record);
+    }
+}
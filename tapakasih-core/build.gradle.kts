@@ -0,0 +1,68 @@
+plugins {
+    `java-library`
+    `maven-publish`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+    withSourcesJar()
+    withJavadocJar()
+}
+
+dependencies {
+    // OkHttp types are part of TapakAsihConfig
+    api("com.squareup.okhttp3:okhttp:4.12.0")
+    
+    // Gson for JSON serialization
+    implementation("com.google.code.gson:gson:2.10.1")
+    
+    testImplementation("junit:junit:4.13.2")
+    testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
+}
+
+tasks.test {
+    // Load and soak runs take minutes, see soakTest
+    exclude("**/harness/**")
+}
+
+// ./gradlew :tapakasih-core:soakTest -PsoakDurationMs=60000 -PsoakEventsPerSecond=10000 -PsoakThreads=8
+tasks.register<Test>("soakTest") {
+    description = "Runs the load/soak harness against the in-process fake backend"
+    group = "verification"
+    testClassesDirs = sourceSets["test"].output.classesDirs
+    classpath = sourceSets["test"].runtimeClasspath
+    include("**/harness/**")
+    outputs.upToDateWhen { false }
+    testLogging.showStandardStreams = true
+    
+    listOf("durationMs" to "soakDurationMs", "eventsPerSecond" to "soakEventsPerSecond", "threads" to "soakThreads")
+        .forEach { (key, property) ->
+            project.findProperty(property)?.let { systemProperty("tapakasih.soak.$key", it) }
+        }
+}
+
+publishing {
+    publications {
+        create<MavenPublication>("release") {
+            groupId = "com.paondev.lib"
+            artifactId = "tapakasih-core"
+            version = "1.0.0"
+
+            from(components["java"])
+            
+            pom {
+                name.set("TapakAsih SDK Core")
+                description.set("Platform independent event pipeline of the TapakAsih SDK")
+                url.set("https://github.com/paondev/tapakasih")
+                
+                licenses {
+                    license {
+                        name.set("MIT License")
+                        url.set("https://opensource.org/licenses/MIT")
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.paondev.lib.tapakasih.config;
+
+/**
+ * Constants for TapakAsih SDK
+ */
+public class Constants {
+    // Network
+    public static final String BASE_URL = "https://tapak-asih-sdk.ajisetiawan883.workers.dev";
+    public static final String ACTIVITY_ENDPOINT = "/actifity/claim";
+    public static final String ACTIVITY_BATCH_ENDPOINT = "/actifity/claim/batch";
+    public static final String CHECK_ENDPOINT = "/activity/check";
+    public static final String CONTENT_TYPE = "application/json";
+    
+    // Storage Keys
+    public static final String PREFS_NAME = "tapakasih_prefs";
+    public static final String KEY_SESSION_ID = "session_id";
+    public static final String KEY_DEVELOPER_TOKEN = "developer_token";
+    public static final String KEY_TOKEN_EXPIRED = "token_expired";
+    public static final String KEY_DEMAND_STATUS = "demand_status";
+    public static final String KEY_DEMAND_ETAG = "demand_etag";
+    public static final String KEY_DEMAND_EXPIRES_AT = "demand_expires_at";
+    public static final String KEY_DEMAND_SAMPLE_RATE = "demand_sample_rate";
+    public static final String KEY_RATE_LIMIT_TOKENS = "rate_limit_tokens";
+    public static final String KEY_RATE_LIMIT_RATE = "rate_limit_rate";
+    public static final String KEY_RATE_LIMIT_UPDATED_AT = "rate_limit_updated_at";
+    public static final String KEY_RATE_LIMIT_THROTTLED_UNTIL = "rate_limit_throttled_until";
+    
+    // Request Settings
+    public static final int MAX_RETRY_ATTEMPTS = 3;
+    public static final int RETRY_DELAY_MS = 1000; // 1 second
+    public static final long MAX_RETRY_DELAY_MS = 60 * 1000; // 1 minute
+    public static final long DEFAULT_MAX_RETRY_DURATION_MS = 10 * 60 * 1000; // 10 minutes
+    public static final int CONNECTION_TIMEOUT = 30; // seconds
+    
+    // Upload Rate Limit
+    public static final int DEFAULT_MAX_UPLOADS_PER_MINUTE = 60; // requests
+    public static final int DEFAULT_UPLOAD_BURST = 10; // requests
+    public static final double MIN_UPLOADS_PER_MINUTE = 1; // requests, floor after throttling
+    public static final long MAX_THROTTLE_MS = 60 * 60 * 1000; // 1 hour
+    
+    // Circuit Breaker
+    public static final int DEFAULT_CIRCUIT_FAILURE_THRESHOLD = 5; // consecutive failures
+    public static final double CIRCUIT_FAILURE_RATE = 0.5;
+    public static final int CIRCUIT_WINDOW_SIZE = 20; // requests
+    public static final long DEFAULT_CIRCUIT_OPEN_MS = 30 * 1000; // 30 seconds
+    public static final long MAX_CIRCUIT_OPEN_MS = 10 * 60 * 1000; // 10 minutes
+    
+    // Offline Queue
+    public static final String JOURNAL_DIR = "tapakasih/journal";
+    public static final String RETRY_JOURNAL_DIR = "tapakasih/retry";
+    public static final String SPILL_JOURNAL_DIR = "tapakasih/spill";
+    public static final String RETRY_SPILL_JOURNAL_DIR = "tapakasih/spill-retry";
+    public static final long JOURNAL_SEGMENT_SIZE = 256 * 1024; // bytes
+    public static final long UPLOADER_SHUTDOWN_TIMEOUT_MS = 5 * 1000; // 5 seconds
+    public static final long PREVIOUS_CLEANUP_TIMEOUT_MS = 10 * 1000; // 10 seconds
+    
+    // Multi-process
+    public static final String PROCESS_SHARDS_DIR = "tapakasih/processes";
+    public static final String OUTBOX_DIR = "tapakasih/outbox";
+    public static final String UPLOADER_LOCK_FILE = "tapakasih/uploader.lock";
+    public static final String SHARED_STATE_FILE = "tapakasih/state";
+    public static final String SHARED_STATE_LOCK_FILE = "tapakasih/state.lock";
+    public static final long SHARED_STATE_REFRESH_MS = 1000; // 1 second
+    public static final long SHARD_POLL_INTERVAL_MS = 10 * 1000; // 10 seconds
+    
+    // Pending Event Budget
+    public static final int DEFAULT_MAX_PENDING_EVENTS = 10_000; // events
+    public static final long DEFAULT_MAX_PENDING_BYTES = 4 * 1024 * 1024; // bytes
+    public static final long MAX_SPILL_BYTES = 32 * 1024 * 1024; // bytes on disk
+    public static final int SAMPLE_DOWN_KEEP_EVERY = 4; // events
+    
+    // Activity Demand
+    public static final long DEFAULT_DEMAND_TTL_MS = 60 * 60 * 1000; // 1 hour
+    public static final long MIN_DEMAND_TTL_MS = 60 * 1000; // 1 minute
+    public static final long DEMAND_RETRY_DELAY_MS = 5 * 60 * 1000; // 5 minutes
+    
+    // Ingestion
+    public static final int RING_BUFFER_CAPACITY = 1024; // events
+    public static final int STRING_POOL_SIZE = 512; // distinct page names and session IDs
+    
+    // Batching
+    public static final int DEFAULT_MAX_BATCH_SIZE = 50; // events
+    public static final long DEFAULT_MAX_BATCH_BYTES = 64 * 1024; // bytes
+    public static final long DEFAULT_MAX_BATCH_LINGER_MS = 5000; // 5 seconds
+    
+    // Background Flush
+    public static final int DEFAULT_FLUSH_JOB_ID = 0x7A4A0001;
+    public static final long BACKGROUND_FLUSH_TIMEOUT_MS = 10 * 1000; // 10 seconds
+    public static final long JOB_FLUSH_TIMEOUT_MS = 60 * 1000; // 1 minute
+    public static final long FLUSH_JOB_BACKOFF_MS = 30 * 1000; // 30 seconds
+    public static final long DEFAULT_BACKGROUND_FLUSH_DEADLINE_MS = 15 * 60 * 1000; // 15 minutes
+    
+    // Dwell Time
+    public static final long DEFAULT_DWELL_FLUSH_INTERVAL_MS = 60 * 1000; // 1 minute
+    
+    // Prevent instantiation
+    private Constants() {}
+}
\ No newline at end of file
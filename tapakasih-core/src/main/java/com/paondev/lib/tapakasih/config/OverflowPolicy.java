@@ -0,0 +1,20 @@
+package com.paondev.lib.tapakasih.config;
+
+/**
+ * What happens to new events once the pending event budget is used up,
+ * see TapakAsihConfig.Builder.setMaxPendingEvents() and setMaxPendingBytes()
+ */
+public enum OverflowPolicy {
+    /** Keep the new event and drop the oldest pending ones */
+    DROP_OLDEST,
+    /** Drop the new event, pending events are kept */
+    DROP_NEWEST,
+    /** Keep one new event out of every few, each replacing the oldest pending one */
+    SAMPLE_DOWN,
+    /**
+     * Keep the budget in memory and write further events to disk. Only differs from
+     * DROP_NEWEST when the offline queue is disabled; with the offline queue events are
+     * on disk already and are dropped once the spill limit is reached.
+     */
+    SPILL_TO_DISK
+}
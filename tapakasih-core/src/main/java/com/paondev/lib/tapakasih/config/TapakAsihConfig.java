@@ -0,0 +1,639 @@
+package com.paondev.lib.tapakasih.config;
+
+import com.paondev.lib.tapakasih.platform.Logger;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+
+/**
+ * Configuration class for TapakAsih SDK
+ */
+public class TapakAsihConfig {
+    private String developerToken;
+    private boolean enableDebugLogs;
+    private boolean enableOfflineQueue;
+    private int retryAttempts;
+    private long maxRetryDurationMs;
+    private int maxBatchSize;
+    private long maxBatchBytes;
+    private long maxBatchLingerMs;
+    private boolean asyncInitialization;
+    private OkHttpClient okHttpClient;
+    private Logger logger;
+    private double sessionSampleRate;
+    private Map<String, Double> pageSampleRates;
+    private boolean enableDwellTime;
+    private boolean enableFragmentTracking;
+    private boolean enableMultiProcess;
+    private long dwellFlushIntervalMs;
+    private boolean dictionaryEncoding;
+    private boolean enableBackgroundFlush;
+    private int maxPendingEvents;
+    private long maxPendingBytes;
+    private OverflowPolicy overflowPolicy;
+    private long backgroundFlushDeadlineMs;
+    private int flushJobId;
+    private int maxUploadsPerMinute;
+    private int uploadBurst;
+    private int circuitBreakerThreshold;
+    private long circuitBreakerOpenMs;
+    private long connectTimeoutMs;
+    private long readTimeoutMs;
+    private long writeTimeoutMs;
+    private boolean enableWarmUp;
+    private String baseUrl;
+    
+    private TapakAsihConfig(Builder builder) {
+        this.developerToken = builder.developerToken;
+        this.enableDebugLogs = builder.enableDebugLogs;
+        this.enableOfflineQueue = builder.enableOfflineQueue;
+        this.retryAttempts = builder.retryAttempts;
+        this.maxRetryDurationMs = builder.maxRetryDurationMs;
+        this.maxBatchSize = builder.maxBatchSize;
+        this.maxBatchBytes = builder.maxBatchBytes;
+        this.maxBatchLingerMs = builder.maxBatchLingerMs;
+        this.asyncInitialization = builder.asyncInitialization;
+        this.okHttpClient = builder.okHttpClient;
+        this.logger = builder.logger;
+        this.sessionSampleRate = builder.sessionSampleRate;
+        this.pageSampleRates = Collections.unmodifiableMap(new HashMap<>(builder.pageSampleRates));
+        this.enableDwellTime = builder.enableDwellTime;
+        this.enableFragmentTracking = builder.enableFragmentTracking;
+        this.enableMultiProcess = builder.enableMultiProcess;
+        this.dwellFlushIntervalMs = builder.dwellFlushIntervalMs;
+        this.dictionaryEncoding = builder.dictionaryEncoding;
+        this.enableBackgroundFlush = builder.enableBackgroundFlush;
+        this.maxPendingEvents = builder.maxPendingEvents;
+        this.maxPendingBytes = builder.maxPendingBytes;
+        this.overflowPolicy = builder.overflowPolicy;
+        this.backgroundFlushDeadlineMs = builder.backgroundFlushDeadlineMs;
+        this.flushJobId = builder.flushJobId;
+        this.maxUploadsPerMinute = builder.maxUploadsPerMinute;
+        this.uploadBurst = builder.uploadBurst;
+        this.circuitBreakerThreshold = builder.circuitBreakerThreshold;
+        this.circuitBreakerOpenMs = builder.circuitBreakerOpenMs;
+        this.connectTimeoutMs = builder.connectTimeoutMs;
+        this.readTimeoutMs = builder.readTimeoutMs;
+        this.writeTimeoutMs = builder.writeTimeoutMs;
+        this.enableWarmUp = builder.enableWarmUp;
+        this.baseUrl = builder.baseUrl;
+    }
+    
+    public String getDeveloperToken() {
+        return developerToken;
+    }
+    
+    public boolean isEnableDebugLogs() {
+        return enableDebugLogs;
+    }
+    
+    public boolean isEnableOfflineQueue() {
+        return enableOfflineQueue;
+    }
+    
+    public int getRetryAttempts() {
+        return retryAttempts;
+    }
+    
+    public long getMaxRetryDurationMs() {
+        return maxRetryDurationMs;
+    }
+    
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+    
+    public long getMaxBatchBytes() {
+        return maxBatchBytes;
+    }
+    
+    public long getMaxBatchLingerMs() {
+        return maxBatchLingerMs;
+    }
+    
+    public boolean isAsyncInitialization() {
+        return asyncInitialization;
+    }
+    
+    /**
+     * @return Client the SDK derives its own client from, or null to build a standalone one
+     */
+    public OkHttpClient getOkHttpClient() {
+        return okHttpClient;
+    }
+    
+    /**
+     * @return Destination of the SDK logs, or null for the default: Logcat with debug logs
+     *         enabled, nothing otherwise
+     */
+    public Logger getLogger() {
+        return logger;
+    }
+    
+    /**
+     * @return Fraction of sessions to track, 1 to track all of them
+     */
+    public double getSessionSampleRate() {
+        return sessionSampleRate;
+    }
+    
+    /**
+     * @return Fraction of sessions to track per page name, read-only
+     */
+    public Map<String, Double> getPageSampleRates() {
+        return pageSampleRates;
+    }
+    
+    public boolean isEnableDwellTime() {
+        return enableDwellTime;
+    }
+    
+    public boolean isEnableFragmentTracking() {
+        return enableFragmentTracking;
+    }
+    
+    /**
+     * @return true if several processes of the app run the SDK and share one uploader
+     */
+    public boolean isEnableMultiProcess() {
+        return enableMultiProcess;
+    }
+    
+    public long getDwellFlushIntervalMs() {
+        return dwellFlushIntervalMs;
+    }
+    
+    public boolean isDictionaryEncoding() {
+        return dictionaryEncoding;
+    }
+    
+    /**
+     * @return Maximum number of events waiting to be uploaded
+     */
+    public int getMaxPendingEvents() {
+        return maxPendingEvents;
+    }
+    
+    /**
+     * @return Maximum encoded size of the events waiting to be uploaded
+     */
+    public long getMaxPendingBytes() {
+        return maxPendingBytes;
+    }
+    
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+    
+    /**
+     * @return Maximum number of upload requests per minute
+     */
+    public int getMaxUploadsPerMinute() {
+        return maxUploadsPerMinute;
+    }
+    
+    /**
+     * @return Number of upload requests that may be sent back to back
+     */
+    public int getUploadBurst() {
+        return uploadBurst;
+    }
+    
+    /**
+     * @return Consecutive upload failures after which uploads stop for a while
+     */
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+    
+    /**
+     * @return Time uploads stop before the first probe request
+     */
+    public long getCircuitBreakerOpenMs() {
+        return circuitBreakerOpenMs;
+    }
+    
+    public boolean isEnableBackgroundFlush() {
+        return enableBackgroundFlush;
+    }
+    
+    /**
+     * @return Time after going to the background by which leftover events are sent
+     */
+    public long getBackgroundFlushDeadlineMs() {
+        return backgroundFlushDeadlineMs;
+    }
+    
+    /**
+     * @return JobScheduler job ID of the background flush job
+     */
+    public int getFlushJobId() {
+        return flushJobId;
+    }
+    
+    public long getConnectTimeoutMs() {
+        return connectTimeoutMs;
+    }
+    
+    public long getReadTimeoutMs() {
+        return readTimeoutMs;
+    }
+    
+    public long getWriteTimeoutMs() {
+        return writeTimeoutMs;
+    }
+    
+    public boolean isEnableWarmUp() {
+        return enableWarmUp;
+    }
+    
+    /**
+     * @return Server URL without a trailing slash
+     */
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+    
+    /**
+     * Builder for TapakAsihConfig
+     */
+    public static class Builder {
+        private String developerToken;
+        private boolean enableDebugLogs = false;
+        private boolean enableOfflineQueue = true;
+        private int retryAttempts = Constants.MAX_RETRY_ATTEMPTS;
+        private long maxRetryDurationMs = Constants.DEFAULT_MAX_RETRY_DURATION_MS;
+        private int maxBatchSize = Constants.DEFAULT_MAX_BATCH_SIZE;
+        private long maxBatchBytes = Constants.DEFAULT_MAX_BATCH_BYTES;
+        private long maxBatchLingerMs = Constants.DEFAULT_MAX_BATCH_LINGER_MS;
+        private boolean asyncInitialization = false;
+        private OkHttpClient okHttpClient;
+        private Logger logger;
+        private double sessionSampleRate = 1.0;
+        private final Map<String, Double> pageSampleRates = new HashMap<>();
+        private boolean enableDwellTime = false;
+        private boolean enableFragmentTracking = false;
+        private boolean enableMultiProcess = false;
+        private long dwellFlushIntervalMs = Constants.DEFAULT_DWELL_FLUSH_INTERVAL_MS;
+        private boolean dictionaryEncoding = false;
+        private boolean enableBackgroundFlush = true;
+        private int maxPendingEvents = Constants.DEFAULT_MAX_PENDING_EVENTS;
+        private long maxPendingBytes = Constants.DEFAULT_MAX_PENDING_BYTES;
+        private OverflowPolicy overflowPolicy = OverflowPolicy.DROP_OLDEST;
+        private long backgroundFlushDeadlineMs = Constants.DEFAULT_BACKGROUND_FLUSH_DEADLINE_MS;
+        private int flushJobId = Constants.DEFAULT_FLUSH_JOB_ID;
+        private int maxUploadsPerMinute = Constants.DEFAULT_MAX_UPLOADS_PER_MINUTE;
+        private int uploadBurst = Constants.DEFAULT_UPLOAD_BURST;
+        private int circuitBreakerThreshold = Constants.DEFAULT_CIRCUIT_FAILURE_THRESHOLD;
+        private long circuitBreakerOpenMs = Constants.DEFAULT_CIRCUIT_OPEN_MS;
+        private long connectTimeoutMs = TimeUnit.SECONDS.toMillis(Constants.CONNECTION_TIMEOUT);
+        private long readTimeoutMs = TimeUnit.SECONDS.toMillis(Constants.CONNECTION_TIMEOUT);
+        private long writeTimeoutMs = TimeUnit.SECONDS.toMillis(Constants.CONNECTION_TIMEOUT);
+        private boolean enableWarmUp = true;
+        private String baseUrl = Constants.BASE_URL;
+        
+        public Builder(String developerToken) {
+            if (developerToken == null || developerToken.trim().isEmpty()) {
+                throw new IllegalArgumentException("Developer token cannot be null or empty");
+            }
+            this.developerToken = developerToken;
+        }
+        
+        public Builder setEnableDebugLogs(boolean enableDebugLogs) {
+            this.enableDebugLogs = enableDebugLogs;
+            return this;
+        }
+        
+        public Builder setEnableOfflineQueue(boolean enableOfflineQueue) {
+            this.enableOfflineQueue = enableOfflineQueue;
+            return this;
+        }
+        
+        public Builder setRetryAttempts(int retryAttempts) {
+            this.retryAttempts = retryAttempts;
+            return this;
+        }
+        
+        /**
+         * Maximum time a failed batch keeps being retried after its first failure
+         */
+        public Builder setMaxRetryDurationMs(long maxRetryDurationMs) {
+            if (maxRetryDurationMs < 0) {
+                throw new IllegalArgumentException("Max retry duration cannot be negative");
+            }
+            this.maxRetryDurationMs = maxRetryDurationMs;
+            return this;
+        }
+        
+        /**
+         * Maximum number of events sent in one request
+         */
+        public Builder setMaxBatchSize(int maxBatchSize) {
+            if (maxBatchSize < 1) {
+                throw new IllegalArgumentException("Max batch size must be at least 1");
+            }
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+        
+        /**
+         * Maximum encoded size of the events sent in one request
+         */
+        public Builder setMaxBatchBytes(long maxBatchBytes) {
+            if (maxBatchBytes < 1) {
+                throw new IllegalArgumentException("Max batch bytes must be at least 1");
+            }
+            this.maxBatchBytes = maxBatchBytes;
+            return this;
+        }
+        
+        /**
+         * Maximum time an event waits for more events before its batch is sent
+         */
+        public Builder setMaxBatchLingerMs(long maxBatchLingerMs) {
+            if (maxBatchLingerMs < 0) {
+                throw new IllegalArgumentException("Max batch linger cannot be negative");
+            }
+            this.maxBatchLingerMs = maxBatchLingerMs;
+            return this;
+        }
+        
+        /**
+         * Only capture the config and register the activity tracker on the calling thread,
+         * storage and network setup run in the background. Events tracked meanwhile are buffered.
+         */
+        public Builder setAsyncInitialization(boolean asyncInitialization) {
+            this.asyncInitialization = asyncInitialization;
+            return this;
+        }
+        
+        /**
+         * Share the app's OkHttpClient. The SDK derives its client with newBuilder(),
+         * so the connection pool and dispatcher are shared and the app's client is not modified.
+         */
+        public Builder setOkHttpClient(OkHttpClient okHttpClient) {
+            this.okHttpClient = okHttpClient;
+            return this;
+        }
+        
+        /**
+         * Route the SDK logs into the app's own logging. Debug and info messages are only
+         * passed on with setEnableDebugLogs(true). Without a Logger the SDK is silent, or
+         * logs to Logcat when debug logs are enabled.
+         */
+        public Builder setLogger(Logger logger) {
+            this.logger = logger;
+            return this;
+        }
+        
+        /**
+         * Only track a fraction of the sessions. Sampling is keyed by the session ID,
+         * so a session is either fully tracked or not at all.
+         * @param sessionSampleRate 0 to 1, default 1 (every session)
+         */
+        public Builder setSessionSampleRate(double sessionSampleRate) {
+            this.sessionSampleRate = checkSampleRate(sessionSampleRate);
+            return this;
+        }
+        
+        /**
+         * Only track a page for a fraction of the sessions, on top of the session sample rate
+         * @param pageName Page name as passed to trackPage(), or the activity's simple name
+         * @param sampleRate 0 to 1
+         */
+        public Builder setPageSampleRate(String pageName, double sampleRate) {
+            if (pageName == null || pageName.trim().isEmpty()) {
+                throw new IllegalArgumentException("Page name cannot be null or empty");
+            }
+            pageSampleRates.put(pageName, checkSampleRate(sampleRate));
+            return this;
+        }
+        
+        private static double checkSampleRate(double sampleRate) {
+            if (!(sampleRate >= 0 && sampleRate <= 1)) {
+                throw new IllegalArgumentException("Sample rate must be between 0 and 1");
+            }
+            return sampleRate;
+        }
+        
+        /**
+         * Measure the time spent on each activity and send it as one summary per page
+         * and session every dwell flush interval
+         */
+        public Builder setEnableDwellTime(boolean enableDwellTime) {
+            this.enableDwellTime = enableDwellTime;
+            return this;
+        }
+        
+        /**
+         * Also track the fragments shown inside FragmentActivities, not needed when
+         * screens are tracked through NavigationTracker
+         */
+        public Builder setEnableFragmentTracking(boolean enableFragmentTracking) {
+            this.enableFragmentTracking = enableFragmentTracking;
+            return this;
+        }
+        
+        /**
+         * Set in every process when the SDK is initialized in more than one process of the app.
+         * Each process queues its events separately and a single elected process uploads them.
+         */
+        public Builder setEnableMultiProcess(boolean enableMultiProcess) {
+            this.enableMultiProcess = enableMultiProcess;
+            return this;
+        }
+        
+        /**
+         * How often dwell time summaries are queued for upload
+         */
+        public Builder setDwellFlushIntervalMs(long dwellFlushIntervalMs) {
+            if (dwellFlushIntervalMs < 1000) {
+                throw new IllegalArgumentException("Dwell flush interval must be at least 1000 ms");
+            }
+            this.dwellFlushIntervalMs = dwellFlushIntervalMs;
+            return this;
+        }
+        
+        /**
+         * Upload batches with every page name and session ID listed once and referenced
+         * by index, instead of repeating them in every event. The server must accept
+         * the dictionary-encoded batch format.
+         */
+        public Builder setDictionaryEncoding(boolean dictionaryEncoding) {
+            this.dictionaryEncoding = dictionaryEncoding;
+            return this;
+        }
+        
+        /**
+         * Maximum number of upload requests per minute. The server can lower it
+         * temporarily by throttling (HTTP 429).
+         */
+        public Builder setMaxUploadsPerMinute(int maxUploadsPerMinute) {
+            if (maxUploadsPerMinute < 1) {
+                throw new IllegalArgumentException("Max uploads per minute must be at least 1");
+            }
+            this.maxUploadsPerMinute = maxUploadsPerMinute;
+            return this;
+        }
+        
+        /**
+         * Number of upload requests that may be sent back to back before the rate limit applies
+         */
+        public Builder setUploadBurst(int uploadBurst) {
+            if (uploadBurst < 1) {
+                throw new IllegalArgumentException("Upload burst must be at least 1");
+            }
+            this.uploadBurst = uploadBurst;
+            return this;
+        }
+        
+        /**
+         * Consecutive upload failures after which uploads stop and events stay queued.
+         * Uploads also stop when half of the last requests failed.
+         */
+        public Builder setCircuitBreakerThreshold(int circuitBreakerThreshold) {
+            if (circuitBreakerThreshold < 1) {
+                throw new IllegalArgumentException("Circuit breaker threshold must be at least 1");
+            }
+            this.circuitBreakerThreshold = circuitBreakerThreshold;
+            return this;
+        }
+        
+        /**
+         * Time uploads stop before a single probe request is sent; doubles after each
+         * failed probe, up to 10 minutes
+         */
+        public Builder setCircuitBreakerOpenMs(long circuitBreakerOpenMs) {
+            if (circuitBreakerOpenMs < 1) {
+                throw new IllegalArgumentException("Circuit breaker open time must be positive");
+            }
+            this.circuitBreakerOpenMs = circuitBreakerOpenMs;
+            return this;
+        }
+        
+        /**
+         * Maximum number of events waiting to be uploaded (queued and parked for retry),
+         * see setOverflowPolicy() for what happens beyond it
+         */
+        public Builder setMaxPendingEvents(int maxPendingEvents) {
+            if (maxPendingEvents < 1) {
+                throw new IllegalArgumentException("Max pending events must be at least 1");
+            }
+            this.maxPendingEvents = maxPendingEvents;
+            return this;
+        }
+        
+        /**
+         * Maximum encoded size of the events waiting to be uploaded
+         */
+        public Builder setMaxPendingBytes(long maxPendingBytes) {
+            if (maxPendingBytes < 1) {
+                throw new IllegalArgumentException("Max pending bytes must be at least 1");
+            }
+            this.maxPendingBytes = maxPendingBytes;
+            return this;
+        }
+        
+        /**
+         * What to do with new events once the pending budget is used up, default DROP_OLDEST
+         */
+        public Builder setOverflowPolicy(OverflowPolicy overflowPolicy) {
+            if (overflowPolicy == null) {
+                throw new IllegalArgumentException("Overflow policy cannot be null");
+            }
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+        
+        /**
+         * Upload pending events when the app goes to the background, and schedule a
+         * JobScheduler job for what could not be sent right away
+         */
+        public Builder setEnableBackgroundFlush(boolean enableBackgroundFlush) {
+            this.enableBackgroundFlush = enableBackgroundFlush;
+            return this;
+        }
+        
+        /**
+         * Deadline of the background flush job. It runs as soon as the network is
+         * available, and at the latest after this delay.
+         */
+        public Builder setBackgroundFlushDeadlineMs(long backgroundFlushDeadlineMs) {
+            if (backgroundFlushDeadlineMs < 0) {
+                throw new IllegalArgumentException("Background flush deadline cannot be negative");
+            }
+            this.backgroundFlushDeadlineMs = backgroundFlushDeadlineMs;
+            return this;
+        }
+        
+        /**
+         * JobScheduler job ID of the background flush job, 0x7A4A0001 by default.
+         * Job IDs are shared by everything in the app that schedules jobs, including
+         * other libraries; change it if the default collides with one of them.
+         */
+        public Builder setFlushJobId(int flushJobId) {
+            this.flushJobId = flushJobId;
+            return this;
+        }
+        
+        /**
+         * Timeout for establishing a connection, including DNS and TLS
+         */
+        public Builder setConnectTimeoutMs(long connectTimeoutMs) {
+            if (connectTimeoutMs < 0) {
+                throw new IllegalArgumentException("Connect timeout cannot be negative");
+            }
+            this.connectTimeoutMs = connectTimeoutMs;
+            return this;
+        }
+        
+        /**
+         * Timeout between bytes read from the server
+         */
+        public Builder setReadTimeoutMs(long readTimeoutMs) {
+            if (readTimeoutMs < 0) {
+                throw new IllegalArgumentException("Read timeout cannot be negative");
+            }
+            this.readTimeoutMs = readTimeoutMs;
+            return this;
+        }
+        
+        /**
+         * Timeout between bytes written to the server
+         */
+        public Builder setWriteTimeoutMs(long writeTimeoutMs) {
+            if (writeTimeoutMs < 0) {
+                throw new IllegalArgumentException("Write timeout cannot be negative");
+            }
+            this.writeTimeoutMs = writeTimeoutMs;
+            return this;
+        }
+        
+        /**
+         * Open a connection to the server ahead of the first upload once tracking is
+         * enabled, so that the first batch does not pay for DNS, TCP and TLS
+         */
+        public Builder setEnableWarmUp(boolean enableWarmUp) {
+            this.enableWarmUp = enableWarmUp;
+            return this;
+        }
+        
+        /**
+         * Server to send data to, e.g. a staging backend or a local fake server in tests
+         */
+        public Builder setBaseUrl(String baseUrl) {
+            if (baseUrl == null || HttpUrl.parse(baseUrl) == null) {
+                throw new IllegalArgumentException("Base URL must be an http or https URL");
+            }
+            this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+            return this;
+        }
+        
+        public TapakAsihConfig build() {
+            return new TapakAsihConfig(this);
+        }
+    }
+}
\ No newline at end of file
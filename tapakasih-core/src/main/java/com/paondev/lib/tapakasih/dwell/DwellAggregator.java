@@ -0,0 +1,70 @@
+package com.paondev.lib.tapakasih.dwell;
+
+import com.paondev.lib.tapakasih.network.ActivityRequest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sums the time spent on each page, per session, between two flushes
+ *
+ * Screen transitions only update an in-memory total; drain() turns the totals into one
+ * summary record per page and session, so the upload volume depends on the number of
+ * pages visited rather than on the number of transitions.
+ *
+ * Thread-safe: visits are recorded on the main thread and drained on the SDK thread.
+ */
+public final class DwellAggregator {
+
+    private static final class Total {
+        long dwellTimeMs;
+        int visits;
+    }
+
+    // Session ID -> page name -> total, there is usually a single session
+    private final Map<String, Map<String, Total>> sessions = new HashMap<>();
+
+    /**
+     * Add one visit of a page
+     * @param dwellTimeMs Time the page was on screen, in milliseconds
+     */
+    public synchronized void record(String sessionId, String pageName, long dwellTimeMs) {
+        Map<String, Total> pages = sessions.get(sessionId);
+        if (pages == null) {
+            pages = new HashMap<>();
+            sessions.put(sessionId, pages);
+        }
+        Total total = pages.get(pageName);
+        if (total == null) {
+            total = new Total();
+            pages.put(pageName, total);
+        }
+        total.dwellTimeMs += dwellTimeMs;
+        total.visits++;
+    }
+
+    public synchronized boolean isEmpty() {
+        return sessions.isEmpty();
+    }
+
+    /**
+     * Take the totals recorded since the last call
+     * @param nowMillis Wall clock time of the summaries
+     * @return One summary per page and session, empty if nothing was recorded
+     */
+    public synchronized List<ActivityRequest> drain(long nowMillis) {
+        List<ActivityRequest> summaries = new ArrayList<>();
+        for (Map.Entry<String, Map<String, Total>> session : sessions.entrySet()) {
+            for (Map.Entry<String, Total> page : session.getValue().entrySet()) {
+                ActivityRequest summary = new ActivityRequest(nowMillis / 1000, page.getKey(), session.getKey());
+                summary.setTrackedAtMillis(nowMillis);
+                summary.setDwellTimeMs(page.getValue().dwellTimeMs);
+                summary.setVisits(page.getValue().visits);
+                summaries.add(summary);
+            }
+        }
+        sessions.clear();
+        return summaries;
+    }
+}
@@ -0,0 +1,19 @@
+package com.paondev.lib.tapakasih.metrics;
+
+/**
+ * Why a tracked event was not queued
+ */
+public enum DropReason {
+    /** No session ID is set */
+    NO_SESSION,
+    /** Tracking is disabled by the server (NO_DEMAND) */
+    TRACKING_DISABLED,
+    /** The developer token was rejected by the server */
+    TOKEN_EXPIRED,
+    /** The ingestion buffer was full */
+    QUEUE_FULL,
+    /** The session is not part of the sample */
+    SAMPLED_OUT,
+    /** The pending event budget was used up, see OverflowPolicy */
+    OVER_BUDGET
+}
@@ -0,0 +1,64 @@
+package com.paondev.lib.tapakasih.metrics;
+
+import java.util.Locale;
+
+/**
+ * Immutable copy of a LatencyHistogram
+ */
+public final class HistogramSnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sumMicros;
+    private final long maxMicros;
+
+    HistogramSnapshot(long[] counts, long sumMicros, long maxMicros) {
+        this.counts = counts;
+        long total = 0;
+        for (long bucketCount : counts) {
+            total += bucketCount;
+        }
+        this.count = total;
+        this.sumMicros = sumMicros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * @return Number of recorded values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanMs() {
+        return count == 0 ? 0 : sumMicros / 1000.0 / count;
+    }
+
+    public double getMaxMs() {
+        return maxMicros / 1000.0;
+    }
+
+    /**
+     * @param percentile Percentile between 0 and 100, e.g. 99
+     * @return Upper bound of the value at that percentile in milliseconds, 0 if nothing was recorded
+     */
+    public double getPercentileMs(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.upperBound(i), maxMicros) / 1000.0;
+            }
+        }
+        return getMaxMs();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "{count=%d, p50=%.1fms, p90=%.1fms, p99=%.1fms, max=%.1fms}",
+                count, getPercentileMs(50), getPercentileMs(90), getPercentileMs(99), getMaxMs());
+    }
+}
@@ -0,0 +1,88 @@
+package com.paondev.lib.tapakasih.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counters and latency histograms of the event pipeline
+ *
+ * Updated from the tracking threads, the drainer and the uploader; all updates are
+ * lock-free and allocation free. snapshot() can be called from any thread.
+ */
+public class PipelineMetrics {
+    private final StripedCounter tracked = new StripedCounter();
+    private final StripedCounter[] dropped = new StripedCounter[DropReason.values().length];
+    private final StripedCounter sent = new StripedCounter();
+    private final StripedCounter retried = new StripedCounter();
+    private final StripedCounter failed = new StripedCounter();
+    private final LatencyHistogram enqueueToSend = new LatencyHistogram();
+    private final LatencyHistogram httpRoundTrip = new LatencyHistogram();
+
+    public PipelineMetrics() {
+        for (int i = 0; i < dropped.length; i++) {
+            dropped[i] = new StripedCounter();
+        }
+    }
+
+    /**
+     * An event was accepted by track()
+     */
+    public void onTracked() {
+        tracked.increment();
+    }
+
+    /**
+     * An event was rejected before it was queued
+     */
+    public void onDropped(DropReason reason) {
+        dropped[reason.ordinal()].increment();
+    }
+
+    /**
+     * Events were accepted by the server
+     */
+    public void onSent(int count) {
+        sent.add(count);
+    }
+
+    /**
+     * Events were sent again after a failed attempt
+     */
+    public void onRetried(int count) {
+        retried.add(count);
+    }
+
+    /**
+     * Events were given up on: rejected by the server, unreadable, or out of retries
+     */
+    public void onFailed(int count) {
+        failed.add(count);
+    }
+
+    /**
+     * @param trackedAtMillis Wall clock time the event was tracked
+     * @param sentAtMillis Wall clock time the server accepted it
+     */
+    public void recordEnqueueToSend(long trackedAtMillis, long sentAtMillis) {
+        enqueueToSend.record(TimeUnit.MILLISECONDS.toMicros(sentAtMillis - trackedAtMillis));
+    }
+
+    /**
+     * @param nanos Duration of an upload request, from System.nanoTime()
+     */
+    public void recordHttpRoundTrip(long nanos) {
+        httpRoundTrip.record(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * @param pendingEvents Events waiting to be sent, supplied by the caller
+     * @param pendingBytes Bytes waiting to be sent, supplied by the caller
+     */
+    public StatsSnapshot snapshot(long pendingEvents, long pendingBytes) {
+        long[] droppedCounts = new long[dropped.length];
+        for (int i = 0; i < dropped.length; i++) {
+            droppedCounts[i] = dropped[i].sum();
+        }
+        return new StatsSnapshot(tracked.sum(), droppedCounts, sent.sum(), retried.sum(), failed.sum(),
+                pendingEvents, pendingBytes, enqueueToSend.snapshot(), httpRoundTrip.snapshot());
+    }
+}
@@ -0,0 +1,123 @@
+package com.paondev.lib.tapakasih.metrics;
+
+/**
+ * Point in time view of the event pipeline metrics
+ *
+ * Counters are totals since the SDK was initialized.
+ */
+public final class StatsSnapshot {
+    private final long tracked;
+    private final long[] dropped;
+    private final long sent;
+    private final long retried;
+    private final long failed;
+    private final long pendingEvents;
+    private final long pendingBytes;
+    private final HistogramSnapshot enqueueToSend;
+    private final HistogramSnapshot httpRoundTrip;
+
+    StatsSnapshot(long tracked, long[] dropped, long sent, long retried, long failed,
+                  long pendingEvents, long pendingBytes,
+                  HistogramSnapshot enqueueToSend, HistogramSnapshot httpRoundTrip) {
+        this.tracked = tracked;
+        this.dropped = dropped;
+        this.sent = sent;
+        this.retried = retried;
+        this.failed = failed;
+        this.pendingEvents = pendingEvents;
+        this.pendingBytes = pendingBytes;
+        this.enqueueToSend = enqueueToSend;
+        this.httpRoundTrip = httpRoundTrip;
+    }
+
+    /**
+     * @return Events accepted by track()
+     */
+    public long getTracked() {
+        return tracked;
+    }
+
+    /**
+     * @return Events rejected before being queued for the given reason
+     */
+    public long getDropped(DropReason reason) {
+        return dropped[reason.ordinal()];
+    }
+
+    public long getDroppedTotal() {
+        long total = 0;
+        for (long count : dropped) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * @return Events accepted by the server
+     */
+    public long getSent() {
+        return sent;
+    }
+
+    /**
+     * @return Events sent again after a failed attempt, counted once per attempt
+     */
+    public long getRetried() {
+        return retried;
+    }
+
+    /**
+     * @return Events given up on after being queued
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return Events waiting in the buffer and the event queue
+     */
+    public long getPendingEvents() {
+        return pendingEvents;
+    }
+
+    /**
+     * @return Approximate size of the events waiting in the event queue
+     */
+    public long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * @return Time from track() until the server accepted the event
+     */
+    public HistogramSnapshot getEnqueueToSend() {
+        return enqueueToSend;
+    }
+
+    /**
+     * @return Duration of upload requests
+     */
+    public HistogramSnapshot getHttpRoundTrip() {
+        return httpRoundTrip;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("Stats{tracked=").append(tracked).append(", dropped={");
+        DropReason[] reasons = DropReason.values();
+        for (int i = 0; i < reasons.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(reasons[i].name().toLowerCase()).append('=').append(dropped[i]);
+        }
+        return sb.append("}, sent=").append(sent)
+                .append(", retried=").append(retried)
+                .append(", failed=").append(failed)
+                .append(", pendingEvents=").append(pendingEvents)
+                .append(", pendingBytes=").append(pendingBytes)
+                .append(", enqueueToSend=").append(enqueueToSend)
+                .append(", httpRoundTrip=").append(httpRoundTrip)
+                .append('}').toString();
+    }
+}
@@ -0,0 +1,41 @@
+package com.paondev.lib.tapakasih.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counter spread over several cache lines
+ *
+ * Each thread increments the cell picked by its thread id, so concurrent writers
+ * rarely touch the same cache line. Reading sums all cells and is only as exact
+ * as a snapshot of concurrently changing values can be. Works like LongAdder,
+ * which is not available before API level 24.
+ */
+public final class StripedCounter {
+    private static final int STRIPES = 8;
+    // 8 longs = 64 bytes, one cache line per cell
+    private static final int PADDING = 8;
+
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    public void increment() {
+        cells.getAndIncrement(index());
+    }
+
+    public void add(long delta) {
+        cells.getAndAdd(index(), delta);
+    }
+
+    public long sum() {
+        long sum = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            sum += cells.get(i * PADDING);
+        }
+        return sum;
+    }
+
+    private static int index() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash >>> 29) * PADDING;
+    }
+}
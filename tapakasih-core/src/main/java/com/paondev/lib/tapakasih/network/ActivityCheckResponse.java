@@ -5,7 +5,9 @@ import com.google.gson.annotations.SerializedName;
 /**
  * Response model for activity check endpoint
  * {
- *   "status": "ON_DEMAND" | "NO_DEMAND"
+ *   "status": "ON_DEMAND" | "NO_DEMAND",
+ *   "ttl": 3600,  // optional, seconds the decision may be cached
+ *   "sample_rate": 0.5  // optional, fraction of sessions to track
  * }
  */
 public class ActivityCheckResponse {
@@ -13,6 +15,12 @@ public class ActivityCheckResponse {
     @SerializedName("status")
     private String status;
     
+    @SerializedName("ttl")
+    private Long ttlSeconds;
+    
+    @SerializedName("sample_rate")
+    private Double sampleRate;
+    
     public ActivityCheckResponse() {}
     
     public ActivityCheckResponse(String status) {
@@ -27,6 +35,28 @@ public class ActivityCheckResponse {
         this.status = status;
     }
     
+    /**
+     * @return Seconds the decision may be cached, or null if not provided
+     */
+    public Long getTtlSeconds() {
+        return ttlSeconds;
+    }
+    
+    public void setTtlSeconds(Long ttlSeconds) {
+        this.ttlSeconds = ttlSeconds;
+    }
+    
+    /**
+     * @return Fraction of sessions to track, or null if not provided
+     */
+    public Double getSampleRate() {
+        return sampleRate;
+    }
+    
+    public void setSampleRate(Double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+    
     /**
      * Check if tracking is required (ON_DEMAND)
      * @return true if ON_DEMAND, false if NO_DEMAND
@@ -0,0 +1,98 @@
+package com.paondev.lib.tapakasih.network;
+
+import com.google.gson.annotations.SerializedName;
+
+/**
+ * Request model for activity tracking
+ *
+ * Either a page view, or a dwell time summary when getDwellTimeMs() is not null:
+ * the total time spent on the page by the session, over getVisits() visits.
+ */
+public class ActivityRequest {
+    @SerializedName("epochtime")
+    private long epochTime;
+    
+    @SerializedName("pageName")
+    private String pageName;
+    
+    @SerializedName("sessionId")
+    private String sessionId;
+    
+    // Only set on dwell time summaries, null fields are not serialized
+    @SerializedName("dwellTimeMs")
+    private Long dwellTimeMs;
+    
+    @SerializedName("visits")
+    private Integer visits;
+    
+    // Millisecond time of the event, only used on the device and never serialized
+    private transient long trackedAtMillis;
+    
+    public ActivityRequest(long epochTime, String pageName, String sessionId) {
+        this.epochTime = epochTime;
+        this.pageName = pageName;
+        this.sessionId = sessionId;
+        this.trackedAtMillis = epochTime * 1000;
+    }
+    
+    public long getEpochTime() {
+        return epochTime;
+    }
+    
+    public void setEpochTime(long epochTime) {
+        this.epochTime = epochTime;
+    }
+    
+    public String getPageName() {
+        return pageName;
+    }
+    
+    public void setPageName(String pageName) {
+        this.pageName = pageName;
+    }
+    
+    public String getSessionId() {
+        return sessionId;
+    }
+    
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+    
+    /**
+     * @return Time spent on the page in milliseconds, or null if this is a page view
+     */
+    public Long getDwellTimeMs() {
+        return dwellTimeMs;
+    }
+    
+    public void setDwellTimeMs(Long dwellTimeMs) {
+        this.dwellTimeMs = dwellTimeMs;
+    }
+    
+    /**
+     * @return Number of visits summed in getDwellTimeMs(), or null if this is a page view
+     */
+    public Integer getVisits() {
+        return visits;
+    }
+    
+    public void setVisits(Integer visits) {
+        this.visits = visits;
+    }
+    
+    public boolean isDwellSummary() {
+        return dwellTimeMs != null;
+    }
+    
+    /**
+     * @return Wall clock time the event was tracked in milliseconds, epochTime * 1000 if not set
+     */
+    public long getTrackedAtMillis() {
+        return trackedAtMillis;
+    }
+    
+    public void setTrackedAtMillis(long trackedAtMillis) {
+        this.trackedAtMillis = trackedAtMillis;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,349 @@
+package com.paondev.lib.tapakasih.network;
+
+import com.paondev.lib.tapakasih.config.Constants;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Utf8;
+
+/**
+ * Request body that streams activities as JSON straight into the OkHttp sink
+ *
+ * No intermediate String or byte[] of the payload is built: names and values are
+ * written to the BufferedSink as they are encoded. The body only keeps a reference
+ * to the requests, so OkHttp can replay it (connection retries, redirects) by
+ * writing it again. The exact length is computed once so the request carries a
+ * Content-Length instead of falling back to chunked encoding.
+ *
+ * Output matches Gson's field names: {"epochtime":..,"pageName":"..","sessionId":".."},
+ * followed by ,"dwellTimeMs":..,"visits":.. for dwell time summaries
+ *
+ * Dictionary-encoded batches (forDictionaryBatch) list every distinct page name and
+ * session ID once and reference them by index:
+ * {"pages":[".."],"sessions":[".."],"events":[{"t":..,"p":0,"s":0,"d":..,"v":..}]}
+ * where "d" (dwell time) and "v" (visits) are only present for dwell time summaries.
+ * The dictionary is built per batch, so every request can be decoded on its own.
+ */
+public class ActivityRequestBody extends RequestBody {
+    private static final MediaType MEDIA_TYPE = MediaType.parse(Constants.CONTENT_TYPE);
+
+    private static final String EPOCH_TIME_FIELD = "{\"epochtime\":";
+    private static final String PAGE_NAME_FIELD = ",\"pageName\":";
+    private static final String SESSION_ID_FIELD = ",\"sessionId\":";
+    private static final String DWELL_TIME_FIELD = ",\"dwellTimeMs\":";
+    private static final String VISITS_FIELD = ",\"visits\":";
+    private static final String NULL = "null";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final String PAGES_FIELD = "{\"pages\":";
+    private static final String SESSIONS_FIELD = ",\"sessions\":";
+    private static final String EVENTS_FIELD = ",\"events\":";
+    private static final String TIME_ID_FIELD = "{\"t\":";
+    private static final String PAGE_ID_FIELD = ",\"p\":";
+    private static final String SESSION_ID_ID_FIELD = ",\"s\":";
+    private static final String DWELL_TIME_ID_FIELD = ",\"d\":";
+    private static final String VISITS_ID_FIELD = ",\"v\":";
+
+    private final List<ActivityRequest> requests;
+    private final boolean array;
+    private long contentLength = -1;
+
+    // Dictionary encoding only: distinct names in order of first use, and their index per event
+    private final List<String> pages;
+    private final List<String> sessions;
+    private final int[] pageIds;
+    private final int[] sessionIds;
+
+    private ActivityRequestBody(List<ActivityRequest> requests, boolean array) {
+        this.requests = requests;
+        this.array = array;
+        this.pages = null;
+        this.sessions = null;
+        this.pageIds = null;
+        this.sessionIds = null;
+    }
+
+    private ActivityRequestBody(List<ActivityRequest> requests) {
+        this.requests = requests;
+        this.array = true;
+        this.pages = new ArrayList<>();
+        this.sessions = new ArrayList<>();
+        this.pageIds = new int[requests.size()];
+        this.sessionIds = new int[requests.size()];
+
+        Map<String, Integer> pageIndex = new HashMap<>();
+        Map<String, Integer> sessionIndex = new HashMap<>();
+        for (int i = 0; i < requests.size(); i++) {
+            ActivityRequest request = requests.get(i);
+            pageIds[i] = index(pageIndex, pages, request.getPageName());
+            sessionIds[i] = index(sessionIndex, sessions, request.getSessionId());
+        }
+    }
+
+    private static int index(Map<String, Integer> index, List<String> names, String name) {
+        Integer id = index.get(name);
+        if (id == null) {
+            id = names.size();
+            index.put(name, id);
+            names.add(name);
+        }
+        return id;
+    }
+
+    /**
+     * Body for a JSON array of activities
+     * @param requests Activities, must not be modified while the body is in use
+     */
+    public static ActivityRequestBody forBatch(List<ActivityRequest> requests) {
+        return new ActivityRequestBody(requests, true);
+    }
+
+    /**
+     * Body for a dictionary-encoded batch, see the class description
+     * @param requests Activities, must not be modified while the body is in use
+     */
+    public static ActivityRequestBody forDictionaryBatch(List<ActivityRequest> requests) {
+        return new ActivityRequestBody(requests);
+    }
+
+    /**
+     * Body for a single JSON activity object
+     */
+    public static ActivityRequestBody forActivity(ActivityRequest request) {
+        return new ActivityRequestBody(Collections.singletonList(request), false);
+    }
+
+    @Override
+    public MediaType contentType() {
+        return MEDIA_TYPE;
+    }
+
+    @Override
+    public long contentLength() {
+        if (contentLength < 0 && pages != null) {
+            contentLength = dictionaryLength();
+        }
+        if (contentLength < 0) {
+            long length = array ? 2 + Math.max(0, requests.size() - 1) : 0;
+            for (int i = 0; i < requests.size(); i++) {
+                ActivityRequest request = requests.get(i);
+                length += EPOCH_TIME_FIELD.length() + decimalLength(request.getEpochTime())
+                        + PAGE_NAME_FIELD.length() + stringLength(request.getPageName())
+                        + SESSION_ID_FIELD.length() + stringLength(request.getSessionId())
+                        + 1;
+                if (request.isDwellSummary()) {
+                    length += DWELL_TIME_FIELD.length() + decimalLength(request.getDwellTimeMs())
+                            + VISITS_FIELD.length() + decimalLength(visits(request));
+                }
+            }
+            contentLength = length;
+        }
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        if (pages != null) {
+            writeDictionary(sink);
+            return;
+        }
+        if (array) {
+            sink.writeByte('[');
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            if (i > 0) {
+                sink.writeByte(',');
+            }
+            ActivityRequest request = requests.get(i);
+            sink.writeUtf8(EPOCH_TIME_FIELD);
+            sink.writeDecimalLong(request.getEpochTime());
+            sink.writeUtf8(PAGE_NAME_FIELD);
+            writeString(sink, request.getPageName());
+            sink.writeUtf8(SESSION_ID_FIELD);
+            writeString(sink, request.getSessionId());
+            if (request.isDwellSummary()) {
+                sink.writeUtf8(DWELL_TIME_FIELD);
+                sink.writeDecimalLong(request.getDwellTimeMs());
+                sink.writeUtf8(VISITS_FIELD);
+                sink.writeDecimalLong(visits(request));
+            }
+            sink.writeByte('}');
+        }
+        if (array) {
+            sink.writeByte(']');
+        }
+    }
+
+    private void writeDictionary(BufferedSink sink) throws IOException {
+        sink.writeUtf8(PAGES_FIELD);
+        writeStrings(sink, pages);
+        sink.writeUtf8(SESSIONS_FIELD);
+        writeStrings(sink, sessions);
+        sink.writeUtf8(EVENTS_FIELD);
+        sink.writeByte('[');
+        for (int i = 0; i < requests.size(); i++) {
+            if (i > 0) {
+                sink.writeByte(',');
+            }
+            ActivityRequest request = requests.get(i);
+            sink.writeUtf8(TIME_ID_FIELD);
+            sink.writeDecimalLong(request.getEpochTime());
+            sink.writeUtf8(PAGE_ID_FIELD);
+            sink.writeDecimalLong(pageIds[i]);
+            sink.writeUtf8(SESSION_ID_ID_FIELD);
+            sink.writeDecimalLong(sessionIds[i]);
+            if (request.isDwellSummary()) {
+                sink.writeUtf8(DWELL_TIME_ID_FIELD);
+                sink.writeDecimalLong(request.getDwellTimeMs());
+                sink.writeUtf8(VISITS_ID_FIELD);
+                sink.writeDecimalLong(visits(request));
+            }
+            sink.writeByte('}');
+        }
+        sink.writeUtf8("]}");
+    }
+
+    private long dictionaryLength() {
+        long length = PAGES_FIELD.length() + stringsLength(pages)
+                + SESSIONS_FIELD.length() + stringsLength(sessions)
+                + EVENTS_FIELD.length() + 2 + Math.max(0, requests.size() - 1) + 1;
+        for (int i = 0; i < requests.size(); i++) {
+            ActivityRequest request = requests.get(i);
+            length += TIME_ID_FIELD.length() + decimalLength(request.getEpochTime())
+                    + PAGE_ID_FIELD.length() + decimalLength(pageIds[i])
+                    + SESSION_ID_ID_FIELD.length() + decimalLength(sessionIds[i])
+                    + 1;
+            if (request.isDwellSummary()) {
+                length += DWELL_TIME_ID_FIELD.length() + decimalLength(request.getDwellTimeMs())
+                        + VISITS_ID_FIELD.length() + decimalLength(visits(request));
+            }
+        }
+        return length;
+    }
+
+    private static void writeStrings(BufferedSink sink, List<String> values) throws IOException {
+        sink.writeByte('[');
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                sink.writeByte(',');
+            }
+            writeString(sink, values.get(i));
+        }
+        sink.writeByte(']');
+    }
+
+    private static long stringsLength(List<String> values) {
+        long length = 2 + Math.max(0, values.size() - 1);
+        for (int i = 0; i < values.size(); i++) {
+            length += stringLength(values.get(i));
+        }
+        return length;
+    }
+
+    private static int visits(ActivityRequest request) {
+        return request.getVisits() != null ? request.getVisits() : 1;
+    }
+
+    /**
+     * Write a JSON string literal, escaping only what JSON requires
+     */
+    private static void writeString(BufferedSink sink, String value) throws IOException {
+        if (value == null) {
+            sink.writeUtf8(NULL);
+            return;
+        }
+
+        sink.writeByte('"');
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\') {
+                continue;
+            }
+            if (i > start) {
+                sink.writeUtf8(value, start, i);
+            }
+            writeEscape(sink, c);
+            start = i + 1;
+        }
+        if (start < length) {
+            sink.writeUtf8(value, start, length);
+        }
+        sink.writeByte('"');
+    }
+
+    private static void writeEscape(BufferedSink sink, char c) throws IOException {
+        sink.writeByte('\\');
+        switch (c) {
+            case '"':
+            case '\\':
+                sink.writeByte(c);
+                break;
+            case '\n':
+                sink.writeByte('n');
+                break;
+            case '\r':
+                sink.writeByte('r');
+                break;
+            case '\t':
+                sink.writeByte('t');
+                break;
+            case '\b':
+                sink.writeByte('b');
+                break;
+            case '\f':
+                sink.writeByte('f');
+                break;
+            default:
+                sink.writeByte('u');
+                sink.writeByte('0');
+                sink.writeByte('0');
+                sink.writeByte(HEX[(c >> 4) & 0xf]);
+                sink.writeByte(HEX[c & 0xf]);
+                break;
+        }
+    }
+
+    /**
+     * Encoded length of a JSON string literal, including quotes and escapes
+     */
+    private static long stringLength(String value) {
+        if (value == null) {
+            return NULL.length();
+        }
+
+        long length = 2 + Utf8.size(value);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\' || c == '\n' || c == '\r' || c == '\t' || c == '\b' || c == '\f') {
+                length += 1;
+            } else if (c < 0x20) {
+                length += 5;
+            }
+        }
+        return length;
+    }
+
+    private static int decimalLength(long value) {
+        if (value == Long.MIN_VALUE) {
+            return 20;
+        }
+        int length = 1;
+        if (value < 0) {
+            length++;
+            value = -value;
+        }
+        while (value >= 10) {
+            value /= 10;
+            length++;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,344 @@
+package com.paondev.lib.tapakasih.network;
+
+import com.paondev.lib.tapakasih.platform.Log;
+import com.paondev.lib.tapakasih.platform.TokenProvider;
+import com.google.gson.Gson;
+import com.paondev.lib.tapakasih.config.Constants;
+import com.paondev.lib.tapakasih.config.TapakAsihConfig;
+import com.google.gson.JsonParseException;
+import okhttp3.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * API Client for sending activity data to server
+ *
+ * When the config carries an OkHttpClient the SDK client is derived from it with
+ * newBuilder(), sharing its connection pool (including HTTP/2 connections) and
+ * dispatcher instead of duplicating them.
+ */
+public class ApiClient {
+    private static final String TAG = "ApiClient";
+    
+    private final OkHttpClient client;
+    private final Gson gson;
+    private final TokenProvider tokenProvider;
+    private final TapakAsihConfig config;
+    
+    // Set once any response arrived, the pool then holds a live connection
+    private volatile boolean connected;
+    
+    public ApiClient(TokenProvider tokenProvider, TapakAsihConfig config) {
+        this.tokenProvider = tokenProvider;
+        this.config = config;
+        
+        this.gson = new Gson();
+        
+        OkHttpClient shared = config.getOkHttpClient();
+        OkHttpClient.Builder builder = (shared != null ? shared.newBuilder() : new OkHttpClient.Builder())
+                .connectTimeout(config.getConnectTimeoutMs(), TimeUnit.MILLISECONDS)
+                .readTimeout(config.getReadTimeoutMs(), TimeUnit.MILLISECONDS)
+                .writeTimeout(config.getWriteTimeoutMs(), TimeUnit.MILLISECONDS);
+        
+        this.client = builder.build();
+    }
+    
+    /**
+     * Check activity demand status from API
+     * @return ActivityCheckResponse containing status, or null if request fails
+     */
+    public ActivityCheckResponse checkActivityDemand() {
+        DemandCheckResult result = checkActivityDemand(null);
+        if (result.getStatus() == DemandCheckResult.Status.OK) {
+            return result.getResponse();
+        }
+        // Default to ON_DEMAND (safer)
+        return new ActivityCheckResponse("ON_DEMAND");
+    }
+    
+    /**
+     * Check activity demand status, revalidating a cached decision
+     * @param etag ETag of the cached decision, or null to always fetch
+     * @return Fresh decision, NOT_MODIFIED if the cached one is still valid, or FAILED
+     */
+    public DemandCheckResult checkActivityDemand(String etag) {
+        String developerToken = tokenProvider.getDeveloperToken();
+        if (developerToken == null) {
+            Log.w(TAG, "Developer token is null, cannot check activity demand");
+            return DemandCheckResult.failed();
+        }
+        
+        String url = config.getBaseUrl() + Constants.CHECK_ENDPOINT;
+        
+        Request.Builder requestBuilder = new Request.Builder()
+                .url(url)
+                .addHeader("Authorization", "Bearer " + developerToken)
+                .get();
+        if (etag != null) {
+            requestBuilder.addHeader("If-None-Match", etag);
+        }
+        
+        try (Response response = client.newCall(requestBuilder.build()).execute()) {
+            connected = true;
+            String responseEtag = response.header("ETag", etag);
+            
+            if (response.code() == 304) {
+                Log.i(TAG, "Activity check not modified");
+                return DemandCheckResult.notModified(responseEtag, maxAgeMs(response, null));
+            }
+            
+            if (!response.isSuccessful()) {
+                Log.w(TAG, "Activity check failed: HTTP {}", response.code());
+                return DemandCheckResult.failed();
+            }
+            
+            ActivityCheckResponse checkResponse = gson.fromJson(response.body().charStream(), ActivityCheckResponse.class);
+            if (checkResponse == null || checkResponse.getStatus() == null) {
+                Log.w(TAG, "Activity check returned no status");
+                return DemandCheckResult.failed();
+            }
+            
+            Log.i(TAG, "Activity check successful: {}", checkResponse.getStatus());
+            return DemandCheckResult.ok(checkResponse, responseEtag, maxAgeMs(response, checkResponse));
+        } catch (IOException | JsonParseException e) {
+            Log.e(TAG, "Activity check error: {}", e.getMessage());
+            return DemandCheckResult.failed();
+        }
+    }
+    
+    /**
+     * Open a connection to the server in the background so that the first upload
+     * reuses it instead of paying for DNS, TCP and TLS.
+     * Does nothing if a request already went through, its connection is still pooled.
+     */
+    public void warmUp() {
+        if (connected) {
+            return;
+        }
+        
+        Request request = new Request.Builder()
+                .url(config.getBaseUrl())
+                .head()
+                .build();
+        
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                connected = true;
+                response.close();
+                Log.d(TAG, "Connection warmed up ({})", response.protocol());
+            }
+            
+            @Override
+            public void onFailure(Call call, IOException e) {
+                Log.d(TAG, "Connection warm-up failed: {}", e.getMessage());
+            }
+        });
+    }
+    
+    /**
+     * Cache lifetime of a demand decision: the ttl field of the body, then Cache-Control max-age
+     * @return Lifetime in milliseconds, or -1 if the server did not provide one
+     */
+    private static long maxAgeMs(Response response, ActivityCheckResponse checkResponse) {
+        if (checkResponse != null && checkResponse.getTtlSeconds() != null && checkResponse.getTtlSeconds() >= 0) {
+            return TimeUnit.SECONDS.toMillis(checkResponse.getTtlSeconds());
+        }
+        int maxAge = response.cacheControl().maxAgeSeconds();
+        return maxAge >= 0 ? TimeUnit.SECONDS.toMillis(maxAge) : -1;
+    }
+    
+    /**
+     * Send activity data to API
+     * Makes a single attempt, retries are scheduled by EventUploader instead of
+     * blocking the calling thread
+     * @param request Activity request data
+     * @return true if successful, false otherwise
+     */
+    public boolean sendActivity(ActivityRequest request) {
+        if (tokenProvider.isTokenExpired()) {
+            Log.w(TAG, "Token is expired, skipping activity send");
+            return false;
+        }
+        
+        String developerToken = tokenProvider.getDeveloperToken();
+        if (developerToken == null) {
+            Log.w(TAG, "Developer token is null, skipping activity send");
+            return false;
+        }
+        
+        String url = config.getBaseUrl() + Constants.ACTIVITY_ENDPOINT;
+        
+        try {
+            Request httpRequest = new Request.Builder()
+                    .url(url)
+                    .addHeader("Content-Type", Constants.CONTENT_TYPE)
+                    .addHeader("Authorization", "Bearer " + developerToken)
+                    .post(ActivityRequestBody.forActivity(request))
+                    .build();
+            
+            Response response = client.newCall(httpRequest).execute();
+            connected = true;
+            
+            if (response.isSuccessful()) {
+                Log.i(TAG, "Activity sent successfully: {}", request.getPageName());
+                response.close();
+                return true;
+            } else {
+                if (response.code() == 401 || response.code() == 403) {
+                    // Token is expired or invalid
+                    tokenProvider.markTokenAsExpired();
+                    Log.w(TAG, "Token expired or invalid (code: {})", response.code());
+                    response.close();
+                    return false;
+                }
+                
+                Log.w(TAG, "Failed to send activity: HTTP {}", response.code());
+                response.close();
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to send activity: {}", e.getMessage());
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Send a batch of activities in a single request
+     * Makes one attempt; the caller keeps failed events and decides when to retry
+     * @param requests Activities to send, in order
+     * @return Result including the events the server asked to retry
+     */
+    public BatchResult sendActivities(List<ActivityRequest> requests) {
+        if (tokenProvider.isTokenExpired()) {
+            Log.w(TAG, "Token is expired, skipping batch send");
+            return BatchResult.tokenExpired();
+        }
+        
+        String developerToken = tokenProvider.getDeveloperToken();
+        if (developerToken == null) {
+            Log.w(TAG, "Developer token is null, skipping batch send");
+            return BatchResult.tokenExpired();
+        }
+        
+        String url = config.getBaseUrl() + Constants.ACTIVITY_BATCH_ENDPOINT;
+        
+        // Streams the events into the connection, no JSON string is built
+        Request httpRequest = new Request.Builder()
+                .url(url)
+                .addHeader("Content-Type", Constants.CONTENT_TYPE)
+                .addHeader("Authorization", "Bearer " + developerToken)
+                .post(config.isDictionaryEncoding()
+                        ? ActivityRequestBody.forDictionaryBatch(requests)
+                        : ActivityRequestBody.forBatch(requests))
+                .build();
+        
+        try (Response response = client.newCall(httpRequest).execute()) {
+            connected = true;
+            if (response.code() == 401 || response.code() == 403) {
+                // Token is expired or invalid
+                tokenProvider.markTokenAsExpired();
+                Log.w(TAG, "Token expired or invalid (code: {})", response.code());
+                return BatchResult.tokenExpired();
+            }
+            
+            if (!response.isSuccessful()) {
+                long retryAfterMs = parseRetryAfter(response);
+                if (response.code() == 429) {
+                    Log.w(TAG, "Batch of {} throttled: HTTP {}, retry after {} ms", requests.size(), response.code(), retryAfterMs);
+                    return BatchResult.throttled(retryAfterMs);
+                }
+                if (response.code() >= 400 && response.code() < 500 && response.code() != 408) {
+                    // Malformed, too large or unknown endpoint: the same request fails again
+                    Log.e(TAG, "Batch of {} rejected: HTTP {}", requests.size(), response.code());
+                    return BatchResult.rejected();
+                }
+                if (retryAfterMs > 0) {
+                    Log.w(TAG, "Batch of {} failed: HTTP {}, retry after {} ms", requests.size(), response.code(), retryAfterMs);
+                } else {
+                    Log.w(TAG, "Batch of {} failed: HTTP {}", requests.size(), response.code());
+                }
+                return BatchResult.failed(retryAfterMs);
+            }
+            
+            BatchResult result = parseBatchResponse(response, requests.size());
+            Log.i(TAG, "Batch sent: {} events, {} to retry, {} rejected",
+                    requests.size(), result.getRetryIndices().size(), result.getRejectedCount());
+            return result;
+        } catch (IOException e) {
+            Log.e(TAG, "Batch send error: {}", e.getMessage());
+            return BatchResult.failed(0);
+        }
+    }
+    
+    /**
+     * Read the Retry-After header, either delay-seconds or an HTTP date
+     * @return Requested delay in milliseconds, or 0 if absent or invalid
+     */
+    private static long parseRetryAfter(Response response) {
+        String value = response.header("Retry-After");
+        if (value == null) {
+            return 0;
+        }
+        
+        try {
+            long seconds = Long.parseLong(value.trim());
+            return seconds > 0 ? TimeUnit.SECONDS.toMillis(seconds) : 0;
+        } catch (NumberFormatException e) {
+            Date date = response.headers().getDate("Retry-After");
+            if (date == null) {
+                return 0;
+            }
+            return Math.max(0, date.getTime() - System.currentTimeMillis());
+        }
+    }
+    
+    /**
+     * Read per-event failures from a successful batch response
+     */
+    private BatchResult parseBatchResponse(Response response, int batchSize) throws IOException {
+        ResponseBody body = response.body();
+        if (body == null || body.contentLength() == 0) {
+            return BatchResult.sent(new ArrayList<Integer>(), 0);
+        }
+        
+        // Empty bodies are mapped to null by Gson
+        BatchResponse batchResponse;
+        try {
+            batchResponse = gson.fromJson(body.charStream(), BatchResponse.class);
+        } catch (JsonParseException e) {
+            // The server accepted the request, don't send the batch twice
+            Log.w(TAG, "Unexpected batch response: {}", e.getMessage());
+            return BatchResult.sent(new ArrayList<Integer>(), 0);
+        }
+        
+        // An index listed more than once counts once, as its first entry says
+        BitSet seen = new BitSet(batchSize);
+        BitSet retry = new BitSet(batchSize);
+        int rejectedCount = 0;
+        if (batchResponse != null && batchResponse.getFailed() != null) {
+            for (BatchResponse.FailedEvent failed : batchResponse.getFailed()) {
+                int index = failed.getIndex();
+                if (index < 0 || index >= batchSize || seen.get(index)) {
+                    continue;
+                }
+                seen.set(index);
+                if (failed.isRetryable()) {
+                    retry.set(index);
+                } else {
+                    rejectedCount++;
+                }
+            }
+        }
+        // In batch order, so retried events keep their order in the queue
+        List<Integer> retryIndices = new ArrayList<>(retry.cardinality());
+        for (int index = retry.nextSetBit(0); index >= 0; index = retry.nextSetBit(index + 1)) {
+            retryIndices.add(index);
+        }
+        return BatchResult.sent(retryIndices, rejectedCount);
+    }
+}
@@ -0,0 +1,57 @@
+package com.paondev.lib.tapakasih.network;
+
+import com.google.gson.annotations.SerializedName;
+import java.util.List;
+
+/**
+ * Response model for the batch activity endpoint
+ * {
+ *   "accepted": 48,
+ *   "failed": [
+ *     { "index": 3, "retryable": true, "error": "..." }
+ *   ]
+ * }
+ * An empty body means every event in the batch was accepted.
+ */
+public class BatchResponse {
+    
+    @SerializedName("accepted")
+    private int accepted;
+    
+    @SerializedName("failed")
+    private List<FailedEvent> failed;
+    
+    public int getAccepted() {
+        return accepted;
+    }
+    
+    public List<FailedEvent> getFailed() {
+        return failed;
+    }
+    
+    /**
+     * Event of a batch the server did not accept
+     */
+    public static class FailedEvent {
+        @SerializedName("index")
+        private int index;
+        
+        @SerializedName("retryable")
+        private boolean retryable;
+        
+        @SerializedName("error")
+        private String error;
+        
+        public int getIndex() {
+            return index;
+        }
+        
+        public boolean isRetryable() {
+            return retryable;
+        }
+        
+        public String getError() {
+            return error;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.paondev.lib.tapakasih.network;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of sending a batch of activities
+ */
+public class BatchResult {
+    
+    public enum Status {
+        /** The server answered, see retry indices for events to send again */
+        SENT,
+        /** The request failed as a whole and can be retried later */
+        FAILED,
+        /** The server refused the batch as a whole (HTTP 4xx), sending it again cannot succeed */
+        REJECTED,
+        /** The server asked for fewer requests (HTTP 429), send later */
+        THROTTLED,
+        /** The developer token is expired or invalid, nothing can be sent */
+        TOKEN_EXPIRED
+    }
+    
+    private final Status status;
+    private final List<Integer> retryIndices;
+    private final int rejectedCount;
+    private final long retryAfterMs;
+    
+    private BatchResult(Status status, List<Integer> retryIndices, int rejectedCount, long retryAfterMs) {
+        this.status = status;
+        this.retryIndices = retryIndices;
+        this.rejectedCount = rejectedCount;
+        this.retryAfterMs = retryAfterMs;
+    }
+    
+    public static BatchResult sent(List<Integer> retryIndices, int rejectedCount) {
+        return new BatchResult(Status.SENT, retryIndices, rejectedCount, 0);
+    }
+    
+    public static BatchResult failed(long retryAfterMs) {
+        return new BatchResult(Status.FAILED, Collections.<Integer>emptyList(), 0, retryAfterMs);
+    }
+    
+    public static BatchResult rejected() {
+        return new BatchResult(Status.REJECTED, Collections.<Integer>emptyList(), 0, 0);
+    }
+    
+    public static BatchResult throttled(long retryAfterMs) {
+        return new BatchResult(Status.THROTTLED, Collections.<Integer>emptyList(), 0, retryAfterMs);
+    }
+    
+    public static BatchResult tokenExpired() {
+        return new BatchResult(Status.TOKEN_EXPIRED, Collections.<Integer>emptyList(), 0, 0);
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    /**
+     * @return Indices of events the server asked to send again
+     */
+    public List<Integer> getRetryIndices() {
+        return retryIndices;
+    }
+    
+    /**
+     * @return Number of events the server rejected permanently
+     */
+    public int getRejectedCount() {
+        return rejectedCount;
+    }
+    
+    /**
+     * @return Delay requested by the server through Retry-After, or 0 if none
+     */
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+}
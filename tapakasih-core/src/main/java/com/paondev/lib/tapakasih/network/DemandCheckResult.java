@@ -0,0 +1,65 @@
+package com.paondev.lib.tapakasih.network;
+
+/**
+ * Outcome of a conditional activity demand check
+ */
+public class DemandCheckResult {
+    
+    public enum Status {
+        /** The server returned a fresh decision */
+        OK,
+        /** The cached decision is still valid (HTTP 304) */
+        NOT_MODIFIED,
+        /** No decision could be obtained */
+        FAILED
+    }
+    
+    private final Status status;
+    private final ActivityCheckResponse response;
+    private final String etag;
+    private final long maxAgeMs;
+    
+    private DemandCheckResult(Status status, ActivityCheckResponse response, String etag, long maxAgeMs) {
+        this.status = status;
+        this.response = response;
+        this.etag = etag;
+        this.maxAgeMs = maxAgeMs;
+    }
+    
+    public static DemandCheckResult ok(ActivityCheckResponse response, String etag, long maxAgeMs) {
+        return new DemandCheckResult(Status.OK, response, etag, maxAgeMs);
+    }
+    
+    public static DemandCheckResult notModified(String etag, long maxAgeMs) {
+        return new DemandCheckResult(Status.NOT_MODIFIED, null, etag, maxAgeMs);
+    }
+    
+    public static DemandCheckResult failed() {
+        return new DemandCheckResult(Status.FAILED, null, null, -1);
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    /**
+     * @return Fresh decision, only set for OK
+     */
+    public ActivityCheckResponse getResponse() {
+        return response;
+    }
+    
+    /**
+     * @return Validator for the next conditional request, may be null
+     */
+    public String getEtag() {
+        return etag;
+    }
+    
+    /**
+     * @return How long the decision may be cached, or -1 if the server did not say
+     */
+    public long getMaxAgeMs() {
+        return maxAgeMs;
+    }
+}
@@ -0,0 +1,141 @@
+package com.paondev.lib.tapakasih.platform;
+
+/**
+ * Logging for code that also runs on a plain JVM, with the same calls as android.util.Log
+ *
+ * Messages go to the installed Logger; nothing is logged until the platform installs one.
+ * Messages below the minimum priority are dropped before anything is formatted, so
+ * pass arguments to the "{}" overloads instead of concatenating strings: a disabled
+ * log call then costs a volatile read and allocates nothing.
+ */
+public final class Log {
+    private static volatile Logger logger = Logger.NONE;
+    private static volatile int minPriority = Logger.WARN;
+
+    private Log() {
+    }
+
+    public static void setLogger(Logger logger) {
+        Log.logger = logger != null ? logger : Logger.NONE;
+    }
+
+    public static Logger getLogger() {
+        return logger;
+    }
+
+    /**
+     * @param priority Lowest priority that is logged, e.g. Logger.DEBUG to log everything
+     */
+    public static void setMinPriority(int priority) {
+        minPriority = priority;
+    }
+
+    public static boolean isLoggable(int priority) {
+        return priority >= minPriority && logger.isLoggable(priority);
+    }
+
+    public static void d(String tag, String message) {
+        log(Logger.DEBUG, tag, message);
+    }
+
+    public static void d(String tag, String format, Object arg) {
+        if (isLoggable(Logger.DEBUG)) {
+            logger.log(Logger.DEBUG, tag, format(format, arg, null, null, 1));
+        }
+    }
+
+    public static void d(String tag, String format, Object arg1, Object arg2) {
+        if (isLoggable(Logger.DEBUG)) {
+            logger.log(Logger.DEBUG, tag, format(format, arg1, arg2, null, 2));
+        }
+    }
+
+    public static void d(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        if (isLoggable(Logger.DEBUG)) {
+            logger.log(Logger.DEBUG, tag, format(format, arg1, arg2, arg3, 3));
+        }
+    }
+
+    public static void i(String tag, String message) {
+        log(Logger.INFO, tag, message);
+    }
+
+    public static void i(String tag, String format, Object arg) {
+        if (isLoggable(Logger.INFO)) {
+            logger.log(Logger.INFO, tag, format(format, arg, null, null, 1));
+        }
+    }
+
+    public static void i(String tag, String format, Object arg1, Object arg2) {
+        if (isLoggable(Logger.INFO)) {
+            logger.log(Logger.INFO, tag, format(format, arg1, arg2, null, 2));
+        }
+    }
+
+    public static void i(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        if (isLoggable(Logger.INFO)) {
+            logger.log(Logger.INFO, tag, format(format, arg1, arg2, arg3, 3));
+        }
+    }
+
+    public static void w(String tag, String message) {
+        log(Logger.WARN, tag, message);
+    }
+
+    public static void w(String tag, String format, Object arg) {
+        if (isLoggable(Logger.WARN)) {
+            logger.log(Logger.WARN, tag, format(format, arg, null, null, 1));
+        }
+    }
+
+    public static void w(String tag, String format, Object arg1, Object arg2) {
+        if (isLoggable(Logger.WARN)) {
+            logger.log(Logger.WARN, tag, format(format, arg1, arg2, null, 2));
+        }
+    }
+
+    public static void w(String tag, String format, Object arg1, Object arg2, Object arg3) {
+        if (isLoggable(Logger.WARN)) {
+            logger.log(Logger.WARN, tag, format(format, arg1, arg2, arg3, 3));
+        }
+    }
+
+    public static void e(String tag, String message) {
+        log(Logger.ERROR, tag, message);
+    }
+
+    public static void e(String tag, String format, Object arg) {
+        if (isLoggable(Logger.ERROR)) {
+            logger.log(Logger.ERROR, tag, format(format, arg, null, null, 1));
+        }
+    }
+
+    public static void e(String tag, String format, Object arg1, Object arg2) {
+        if (isLoggable(Logger.ERROR)) {
+            logger.log(Logger.ERROR, tag, format(format, arg1, arg2, null, 2));
+        }
+    }
+
+    private static void log(int priority, String tag, String message) {
+        if (isLoggable(priority)) {
+            logger.log(priority, tag, message);
+        }
+    }
+
+    /**
+     * Replace the first argCount "{}" placeholders with the arguments, in order
+     */
+    static String format(String format, Object arg1, Object arg2, Object arg3, int argCount) {
+        StringBuilder sb = new StringBuilder(format.length() + 32);
+        int start = 0;
+        for (int i = 0; i < argCount; i++) {
+            int index = format.indexOf("{}", start);
+            if (index < 0) {
+                break;
+            }
+            sb.append(format, start, index).append(i == 0 ? arg1 : i == 1 ? arg2 : arg3);
+            start = index + 2;
+        }
+        return sb.append(format, start, format.length()).toString();
+    }
+}
@@ -0,0 +1,35 @@
+package com.paondev.lib.tapakasih.platform;
+
+/**
+ * Destination of the SDK log messages, see Log.setLogger()
+ *
+ * Implement it to route SDK logs into the host's logging stack. Messages are only
+ * formatted, and log() only called, for priorities isLoggable() accepts.
+ */
+public interface Logger {
+    // Same values as android.util.Log priorities
+    int DEBUG = 3;
+    int INFO = 4;
+    int WARN = 5;
+    int ERROR = 6;
+
+    /** Discards every message */
+    Logger NONE = new Logger() {
+        @Override
+        public boolean isLoggable(int priority) {
+            return false;
+        }
+
+        @Override
+        public void log(int priority, String tag, String message) {
+        }
+    };
+
+    /**
+     * Called before a message is formatted, keep it cheap
+     * @param priority One of DEBUG, INFO, WARN or ERROR
+     */
+    boolean isLoggable(int priority);
+
+    void log(int priority, String tag, String message);
+}
@@ -0,0 +1,21 @@
+package com.paondev.lib.tapakasih.platform;
+
+/**
+ * Access to the developer token, backed by the platform's persistent storage
+ */
+public interface TokenProvider {
+    /**
+     * @return The developer token, or null if not set
+     */
+    String getDeveloperToken();
+
+    /**
+     * @return true if the server rejected the token
+     */
+    boolean isTokenExpired();
+
+    /**
+     * Remember that the server rejected the token (401/403)
+     */
+    void markTokenAsExpired();
+}
@@ -0,0 +1,156 @@
+package com.paondev.lib.tapakasih.queue;
+
+import com.paondev.lib.tapakasih.platform.Log;
+
+/**
+ * Circuit breaker around the upload endpoint
+ *
+ * CLOSED lets every request through. It opens after failureThreshold consecutive
+ * failures, or when the failure rate over the last windowSize requests reaches
+ * failureRate. While OPEN nothing is sent; once the open delay passed the breaker
+ * is HALF_OPEN and lets a single probe through. A successful probe closes it, a
+ * failed one opens it again for twice as long, up to maxOpenMs.
+ */
+public class CircuitBreaker {
+    private static final String TAG = "CircuitBreaker";
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final double failureRate;
+    private final boolean[] window;
+    private final long openMs;
+    private final long maxOpenMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private long currentOpenMs;
+    private long openUntilNanos;
+    private boolean probeInFlight;
+
+    /**
+     * @param failureThreshold Consecutive failures that open the breaker
+     * @param failureRate Failure rate (0..1] over the window that opens the breaker
+     * @param windowSize Number of recent requests the failure rate is computed on
+     * @param openMs Time the breaker stays open before the first probe
+     * @param maxOpenMs Longest time between two probes
+     */
+    public CircuitBreaker(int failureThreshold, double failureRate, int windowSize, long openMs, long maxOpenMs) {
+        this.failureThreshold = failureThreshold;
+        this.failureRate = failureRate;
+        this.window = new boolean[windowSize];
+        this.openMs = openMs;
+        this.maxOpenMs = Math.max(openMs, maxOpenMs);
+        this.currentOpenMs = openMs;
+    }
+
+    /**
+     * Ask to send a request. Every granted request must be followed by
+     * onSuccess(), onFailure() or onSkipped().
+     * @return true if the request may be sent
+     */
+    public synchronized boolean allowRequest() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openUntilNanos < 0) {
+                return false;
+            }
+            // This request is the probe
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (probeInFlight) {
+            return false;
+        }
+        probeInFlight = true;
+        return true;
+    }
+
+    /**
+     * The server answered the granted request
+     */
+    public synchronized void onSuccess() {
+        record(false);
+        consecutiveFailures = 0;
+        if (state != State.CLOSED) {
+            Log.i(TAG, "Upload endpoint reachable again, closing circuit");
+            state = State.CLOSED;
+            probeInFlight = false;
+            currentOpenMs = openMs;
+            resetWindow();
+        }
+    }
+
+    /**
+     * The granted request failed
+     */
+    public synchronized void onFailure() {
+        record(true);
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN) {
+            currentOpenMs = Math.min(maxOpenMs, currentOpenMs * 2);
+            open();
+        } else if (state == State.CLOSED && (consecutiveFailures >= failureThreshold
+                || (windowCount == window.length && windowFailures >= failureRate * window.length))) {
+            open();
+        }
+    }
+
+    /**
+     * The granted request was not sent after all, e.g. nothing was pending
+     */
+    public synchronized void onSkipped() {
+        probeInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return Time until the next probe is allowed in milliseconds, 0 if requests are allowed now
+     */
+    public synchronized long getRemainingOpenMs() {
+        if (state != State.OPEN) {
+            return 0;
+        }
+        return Math.max(0, (openUntilNanos - System.nanoTime()) / 1_000_000);
+    }
+
+    private void open() {
+        state = State.OPEN;
+        probeInFlight = false;
+        openUntilNanos = System.nanoTime() + currentOpenMs * 1_000_000;
+        Log.w(TAG, "Upload endpoint failing, pausing uploads for {} ms", currentOpenMs);
+    }
+
+    private void record(boolean failure) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void resetWindow() {
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+}
@@ -0,0 +1,72 @@
+package com.paondev.lib.tapakasih.queue;
+
+import com.paondev.lib.tapakasih.network.ActivityRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Binary encoding of ActivityRequest records stored in the EventJournal
+ *
+ * Layout: [version:1][trackedAtMillis:8][pageName:utf][sessionId:utf]
+ * Dwell time summaries (version 3) append [dwellTimeMs:8][visits:4].
+ * Version 1 records, written by older releases, hold the epoch time in seconds instead.
+ */
+public final class EventCodec {
+    private static final byte VERSION_EPOCH_SECONDS = 1;
+    private static final byte VERSION = 2;
+    private static final byte VERSION_DWELL = 3;
+
+    private EventCodec() {}
+
+    /**
+     * Encode an activity request
+     * @param request Activity request
+     * @return Encoded record
+     * @throws IOException if the request cannot be encoded
+     */
+    public static byte[] encode(ActivityRequest request) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(request.isDwellSummary() ? VERSION_DWELL : VERSION);
+        out.writeLong(request.getTrackedAtMillis());
+        out.writeUTF(request.getPageName());
+        out.writeUTF(request.getSessionId());
+        if (request.isDwellSummary()) {
+            out.writeLong(request.getDwellTimeMs());
+            out.writeInt(request.getVisits() != null ? request.getVisits() : 1);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode an activity request
+     * @param record Encoded record
+     * @return Activity request
+     * @throws IOException if the record is not a valid activity request
+     */
+    public static ActivityRequest decode(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte version = in.readByte();
+        if (version != VERSION && version != VERSION_DWELL && version != VERSION_EPOCH_SECONDS) {
+            throw new IOException("Unsupported record version: " + version);
+        }
+
+        long time = in.readLong();
+        String pageName = in.readUTF();
+        String sessionId = in.readUTF();
+        if (version == VERSION_EPOCH_SECONDS) {
+            return new ActivityRequest(time, pageName, sessionId);
+        }
+        ActivityRequest request = new ActivityRequest(time / 1000, pageName, sessionId);
+        request.setTrackedAtMillis(time);
+        if (version == VERSION_DWELL) {
+            request.setDwellTimeMs(in.readLong());
+            request.setVisits(in.readInt());
+        }
+        return request;
+    }
+}
@@ -0,0 +1,93 @@
+package com.paondev.lib.tapakasih.queue;
+
+import com.paondev.lib.tapakasih.platform.Log;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single consumer thread of an EventRingBuffer
+ *
+ * Drains events in bulk and parks when the buffer is empty. Producers only pay for
+ * an unpark when the drainer is actually parked, see wakeUp().
+ */
+public class EventDrainer implements Runnable {
+    private static final String TAG = "EventDrainer";
+    private static final int DRAIN_BATCH = 256;
+    private static final long PARK_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final EventRingBuffer buffer;
+    private final EventRingBuffer.Consumer consumer;
+    private final Thread thread;
+    private volatile boolean running;
+    private volatile boolean parked;
+
+    public EventDrainer(EventRingBuffer buffer, EventRingBuffer.Consumer consumer) {
+        this.buffer = buffer;
+        this.consumer = consumer;
+        this.thread = new Thread(this, "TapakAsih-Drainer");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Start draining. Events offered before start() are drained right away.
+     */
+    public void start() {
+        running = true;
+        thread.start();
+    }
+
+    /**
+     * Signal that an event was offered. Cheap when the drainer is busy.
+     */
+    public void wakeUp() {
+        if (parked) {
+            parked = false;
+            LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Stop the drainer after it delivered everything still in the buffer
+     */
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            if (drain() > 0) {
+                continue;
+            }
+
+            parked = true;
+            // Re-check after announcing, a producer may have published in between
+            if (buffer.isEmpty() && running) {
+                LockSupport.parkNanos(this, PARK_TIMEOUT_NANOS);
+            }
+            parked = false;
+        }
+
+        while (drain() > 0) {
+            // Deliver what is left before exiting
+        }
+    }
+
+    private int drain() {
+        try {
+            return buffer.drain(consumer, DRAIN_BATCH);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Failed to deliver event: {}", e.getMessage());
+            return 1;
+        }
+    }
+}
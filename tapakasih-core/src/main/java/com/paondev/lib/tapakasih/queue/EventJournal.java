@@ -0,0 +1,548 @@
+package com.paondev.lib.tapakasih.queue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, segmented on-disk journal for pending events.
+ *
+ * Every record is stored as [length][crc32][payload] in a segment file of bounded size.
+ * A small cursor file remembers how far the uploader has committed; segments that are
+ * fully consumed are deleted. Records are written through a FileChannel, so they live in
+ * the OS page cache as soon as append() returns and survive process death without an
+ * fsync per event. Segments are forced to disk when they are rolled or closed.
+ *
+ * A torn record at the tail of the last segment (crash in the middle of a write) is
+ * truncated on open. A checksum mismatch anywhere else skips the rest of that segment.
+ *
+ * Sealed segments are read through one channel each, opened on first read and
+ * closed once the committed position moves past the segment. Their sizes are read
+ * once, and the pending count and bytes are running totals kept by append() and
+ * commit(), so checking the pending budget does not touch the file system.
+ *
+ * All methods are synchronized; the journal is shared by the ingestion thread that
+ * appends and the uploader thread that reads and commits.
+ */
+public class EventJournal implements EventStore {
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CURSOR_FILE = "cursor";
+    private static final String CURSOR_TEMP_FILE = "cursor.tmp";
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int CURSOR_SIZE = 20;
+
+    /** Upper bound for a single record, anything larger is treated as corruption */
+    public static final int MAX_RECORD_SIZE = 64 * 1024;
+
+    private final File directory;
+    private final long maxSegmentSize;
+    private final List<Long> segmentIds = new ArrayList<>();
+    private final HashMap<Long, FileChannel> readChannels = new HashMap<>();
+    private final HashMap<Long, Long> sealedSizes = new HashMap<>();
+    private final ByteBuffer headerBuffer = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+    private final CRC32 crc = new CRC32();
+
+    private FileChannel writeChannel;
+    private long writeOffset;
+    private Position committed;
+    private int pendingCount;
+    private long pendingBytes;
+    private boolean closed;
+
+    /**
+     * Position in the journal, i.e. a segment id and a byte offset inside that segment
+     */
+    static final class Position {
+        final long segmentId;
+        final long offset;
+
+        Position(long segmentId, long offset) {
+            this.segmentId = segmentId;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Open (or create) a journal in the given directory
+     * @param directory Directory holding the segment and cursor files
+     * @param maxSegmentSize Size in bytes after which a new segment is started
+     * @throws IOException if the directory or the files cannot be accessed
+     */
+    public EventJournal(File directory, long maxSegmentSize) throws IOException {
+        this.directory = directory;
+        this.maxSegmentSize = maxSegmentSize;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create journal directory " + directory);
+        }
+
+        loadSegments();
+        recover();
+    }
+
+    @Override
+    public synchronized void append(byte[] payload) throws IOException {
+        ensureOpen();
+        if (payload.length == 0 || payload.length > MAX_RECORD_SIZE) {
+            throw new IOException("Invalid record size: " + payload.length);
+        }
+
+        int recordSize = RECORD_HEADER_SIZE + payload.length;
+        if (writeOffset > 0 && writeOffset + recordSize > maxSegmentSize) {
+            rollSegment();
+        }
+
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+
+        headerBuffer.clear();
+        headerBuffer.putInt(payload.length);
+        headerBuffer.putInt((int) crc.getValue());
+        headerBuffer.flip();
+
+        ByteBuffer[] buffers = {headerBuffer, ByteBuffer.wrap(payload)};
+        long position = writeOffset;
+        long remaining = recordSize;
+        while (remaining > 0) {
+            writeChannel.position(position);
+            long written = writeChannel.write(buffers);
+            position += written;
+            remaining -= written;
+        }
+        writeOffset += recordSize;
+        pendingCount++;
+        pendingBytes += recordSize;
+    }
+
+    @Override
+    public synchronized Batch read(int maxRecords, long maxBytes) throws IOException {
+        ensureOpen();
+        List<byte[]> records = new ArrayList<>();
+        long segmentId = committed.segmentId;
+        long offset = committed.offset;
+        long bytes = 0;
+
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+
+        while (records.size() < maxRecords) {
+            long limit = segmentLimit(segmentId);
+            if (offset + RECORD_HEADER_SIZE > limit) {
+                Long next = nextSegment(segmentId);
+                if (next == null) {
+                    break;
+                }
+                segmentId = next;
+                offset = 0;
+                continue;
+            }
+
+            byte[] payload = readRecord(segmentId, offset, limit, header);
+            if (payload == null) {
+                // Corrupted record, skip the remainder of this segment
+                Long next = nextSegment(segmentId);
+                if (next == null) {
+                    offset = limit;
+                    break;
+                }
+                segmentId = next;
+                offset = 0;
+                continue;
+            }
+
+            if (!records.isEmpty() && bytes + payload.length > maxBytes) {
+                break;
+            }
+
+            records.add(payload);
+            bytes += payload.length;
+            offset += RECORD_HEADER_SIZE + payload.length;
+        }
+
+        return new Batch(records, new Position(segmentId, offset));
+    }
+
+    @Override
+    public synchronized void commit(Batch batch) throws IOException {
+        ensureOpen();
+        Position position = (Position) batch.getEnd();
+        if (compare(position, committed) <= 0) {
+            return;
+        }
+
+        pendingBytes = Math.max(0, pendingBytes - distance(committed, position));
+        committed = position;
+        pendingCount = Math.max(0, pendingCount - batch.getRecords().size());
+        writeCursor();
+
+        // Delete segments that are fully consumed
+        while (segmentIds.size() > 1 && segmentIds.get(0) < committed.segmentId) {
+            long id = segmentIds.remove(0);
+            closeReadChannel(id);
+            sealedSizes.remove(id);
+            segmentFile(id).delete();
+        }
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        long activeId = activeSegmentId();
+        return committed.segmentId == activeId && committed.offset >= writeOffset;
+    }
+
+    /**
+     * Number of pending records, counted on open and kept up to date afterwards.
+     * Corrupted records that read() skips are still counted until their segment is committed.
+     */
+    @Override
+    public synchronized int getPendingCount() {
+        return isEmpty() ? 0 : pendingCount;
+    }
+
+    /**
+     * Number of bytes (including record headers) still pending on disk,
+     * counted on open and kept up to date afterwards
+     */
+    @Override
+    public synchronized long getPendingBytes() {
+        return isEmpty() ? 0 : pendingBytes;
+    }
+
+    @Override
+    public boolean isDurable() {
+        return true;
+    }
+
+    /**
+     * Flush the active segment to disk
+     * @throws IOException if the segment cannot be forced
+     */
+    public synchronized void sync() throws IOException {
+        if (writeChannel != null) {
+            writeChannel.force(false);
+        }
+    }
+
+    /**
+     * Flush and close the journal
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        for (FileChannel channel : readChannels.values()) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Read only
+            }
+        }
+        readChannels.clear();
+
+        if (writeChannel != null) {
+            try {
+                writeChannel.force(false);
+            } catch (IOException ignored) {
+                // Data is still in the page cache
+            }
+            try {
+                writeChannel.close();
+            } catch (IOException ignored) {
+                // Nothing left to do
+            }
+            writeChannel = null;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Journal is closed");
+        }
+    }
+
+    private void loadSegments() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(SEGMENT_SUFFIX)) {
+                continue;
+            }
+            try {
+                segmentIds.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length())));
+            } catch (NumberFormatException e) {
+                file.delete();
+            }
+        }
+        Collections.sort(segmentIds);
+    }
+
+    private void recover() throws IOException {
+        Position cursor = readCursor();
+
+        if (cursor != null) {
+            // Drop segments that were consumed before the cursor was last written
+            while (!segmentIds.isEmpty() && segmentIds.get(0) < cursor.segmentId) {
+                segmentFile(segmentIds.remove(0)).delete();
+            }
+            if (segmentIds.isEmpty() || segmentIds.get(0) != cursor.segmentId) {
+                cursor = null;
+            }
+        }
+
+        if (segmentIds.isEmpty()) {
+            segmentIds.add(1L);
+        }
+
+        if (cursor == null) {
+            cursor = new Position(segmentIds.get(0), 0);
+        }
+        committed = cursor;
+
+        openActiveSegment();
+        for (int i = 0; i < segmentIds.size() - 1; i++) {
+            long id = segmentIds.get(i);
+            sealedSizes.put(id, segmentFile(id).length());
+        }
+        pendingCount = countPending();
+        pendingBytes = distance(committed, new Position(activeSegmentId(), writeOffset));
+    }
+
+    /**
+     * Count the records after the committed position, reading only their headers
+     */
+    private int countPending() throws IOException {
+        int count = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        for (long id : segmentIds) {
+            if (id < committed.segmentId) {
+                continue;
+            }
+            boolean active = id == activeSegmentId();
+            FileChannel channel = active ? writeChannel : readChannel(id);
+            long limit = segmentLimit(id);
+            long offset = id == committed.segmentId ? committed.offset : 0;
+            while (offset + RECORD_HEADER_SIZE <= limit) {
+                header.clear();
+                if (!readFully(channel, header, offset)) {
+                    break;
+                }
+                int length = header.getInt(0);
+                if (length <= 0 || length > MAX_RECORD_SIZE) {
+                    break;
+                }
+                count++;
+                offset += RECORD_HEADER_SIZE + length;
+            }
+        }
+        return count;
+    }
+
+    private void openActiveSegment() throws IOException {
+        long activeId = activeSegmentId();
+        writeChannel = new RandomAccessFile(segmentFile(activeId), "rw").getChannel();
+
+        // Scan the active segment and cut off a torn or corrupted tail
+        long size = writeChannel.size();
+        long offset = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (offset + RECORD_HEADER_SIZE <= size) {
+            byte[] payload = readRecord(writeChannel, offset, size, header);
+            if (payload == null) {
+                break;
+            }
+            offset += RECORD_HEADER_SIZE + payload.length;
+        }
+
+        if (offset < size) {
+            writeChannel.truncate(offset);
+        }
+        writeOffset = offset;
+
+        if (committed.segmentId == activeId && committed.offset > writeOffset) {
+            committed = new Position(activeId, writeOffset);
+        }
+    }
+
+    private void rollSegment() throws IOException {
+        writeChannel.force(false);
+        writeChannel.close();
+
+        sealedSizes.put(activeSegmentId(), writeOffset);
+        segmentIds.add(activeSegmentId() + 1);
+        writeChannel = new RandomAccessFile(segmentFile(activeSegmentId()), "rw").getChannel();
+        writeOffset = 0;
+    }
+
+    private byte[] readRecord(long segmentId, long offset, long limit, ByteBuffer header) throws IOException {
+        if (segmentId == activeSegmentId()) {
+            return readRecord(writeChannel, offset, limit, header);
+        }
+
+        return readRecord(readChannel(segmentId), offset, limit, header);
+    }
+
+    /**
+     * Channel for reading a sealed segment, kept open until the segment is committed
+     */
+    private FileChannel readChannel(long segmentId) throws IOException {
+        FileChannel channel = readChannels.get(segmentId);
+        if (channel == null) {
+            channel = new RandomAccessFile(segmentFile(segmentId), "r").getChannel();
+            readChannels.put(segmentId, channel);
+        }
+        return channel;
+    }
+
+    private void closeReadChannel(long segmentId) {
+        FileChannel channel = readChannels.remove(segmentId);
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // Read only
+            }
+        }
+    }
+
+    private byte[] readRecord(FileChannel channel, long offset, long limit, ByteBuffer header) throws IOException {
+        header.clear();
+        if (!readFully(channel, header, offset)) {
+            return null;
+        }
+        header.flip();
+        int length = header.getInt();
+        int checksum = header.getInt();
+
+        if (length <= 0 || length > MAX_RECORD_SIZE || offset + RECORD_HEADER_SIZE + length > limit) {
+            return null;
+        }
+
+        byte[] payload = new byte[length];
+        if (!readFully(channel, ByteBuffer.wrap(payload), offset + RECORD_HEADER_SIZE)) {
+            return null;
+        }
+
+        crc.reset();
+        crc.update(payload, 0, length);
+        if ((int) crc.getValue() != checksum) {
+            return null;
+        }
+        return payload;
+    }
+
+    private static boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                return false;
+            }
+            position += read;
+        }
+        return true;
+    }
+
+    private Position readCursor() {
+        File file = new File(directory, CURSOR_FILE);
+        if (!file.isFile() || file.length() != CURSOR_SIZE) {
+            return null;
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] data = new byte[CURSOR_SIZE];
+            raf.readFully(data);
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            long segmentId = buffer.getLong();
+            long offset = buffer.getLong();
+            int checksum = buffer.getInt();
+
+            crc.reset();
+            crc.update(data, 0, CURSOR_SIZE - 4);
+            if ((int) crc.getValue() != checksum || offset < 0) {
+                return null;
+            }
+            return new Position(segmentId, offset);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeCursor() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(CURSOR_SIZE);
+        buffer.putLong(committed.segmentId);
+        buffer.putLong(committed.offset);
+        crc.reset();
+        crc.update(buffer.array(), 0, CURSOR_SIZE - 4);
+        buffer.putInt((int) crc.getValue());
+
+        File temp = new File(directory, CURSOR_TEMP_FILE);
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+            raf.setLength(0);
+            raf.write(buffer.array());
+        }
+        if (!temp.renameTo(new File(directory, CURSOR_FILE))) {
+            throw new IOException("Cannot update journal cursor");
+        }
+    }
+
+    private long segmentLimit(long segmentId) {
+        if (segmentId == activeSegmentId()) {
+            return writeOffset;
+        }
+        Long size = sealedSizes.get(segmentId);
+        return size != null ? size : 0;
+    }
+
+    /**
+     * Number of journal bytes from one position to a later one
+     */
+    private long distance(Position from, Position to) {
+        if (from.segmentId == to.segmentId) {
+            return Math.max(0, to.offset - from.offset);
+        }
+        long bytes = Math.max(0, segmentLimit(from.segmentId) - from.offset) + to.offset;
+        for (long id : segmentIds) {
+            if (id > from.segmentId && id < to.segmentId) {
+                bytes += segmentLimit(id);
+            }
+        }
+        return bytes;
+    }
+
+    private Long nextSegment(long segmentId) {
+        for (long id : segmentIds) {
+            if (id > segmentId) {
+                return id;
+            }
+        }
+        return null;
+    }
+
+    private long activeSegmentId() {
+        return segmentIds.get(segmentIds.size() - 1);
+    }
+
+    private File segmentFile(long segmentId) {
+        return new File(directory, String.format(Locale.US, "%016d", segmentId) + SEGMENT_SUFFIX);
+    }
+
+    private static int compare(Position a, Position b) {
+        if (a.segmentId != b.segmentId) {
+            return a.segmentId < b.segmentId ? -1 : 1;
+        }
+        return Long.compare(a.offset, b.offset);
+    }
+}
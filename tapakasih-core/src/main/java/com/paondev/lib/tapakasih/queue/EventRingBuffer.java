@@ -0,0 +1,125 @@
+package com.paondev.lib.tapakasih.queue;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free multi-producer single-consumer ring buffer for tracked events
+ *
+ * Slots are preallocated as parallel arrays, so offering an event allocates nothing:
+ * a producer claims a slot with one CAS on the tail, writes the fields and publishes
+ * the slot through its sequence number. The single consumer reads published slots in
+ * order and hands them back by advancing their sequence by one lap.
+ * (Bounded queue algorithm by Dmitry Vyukov.)
+ */
+public class EventRingBuffer {
+
+    /**
+     * Receives drained events on the consumer thread
+     */
+    public interface Consumer {
+        void accept(long trackedAtMillis, String pageName, String sessionId);
+    }
+
+    private final int mask;
+    private final long[] trackedAtTimes;
+    private final String[] pageNames;
+    private final String[] sessionIds;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong(0);
+
+    // Only read and written by the consumer thread
+    private long head;
+
+    /**
+     * @param capacity Number of slots, rounded up to a power of two
+     */
+    public EventRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.mask = size - 1;
+        this.trackedAtTimes = new long[size];
+        this.pageNames = new String[size];
+        this.sessionIds = new String[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * Add an event. Safe to call from any thread, never blocks or allocates.
+     * @return false if the buffer is full
+     */
+    public boolean offer(long trackedAtMillis, String pageName, String sessionId) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long sequence = sequences.get(index);
+            long difference = sequence - position;
+
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    trackedAtTimes[index] = trackedAtMillis;
+                    pageNames[index] = pageName;
+                    sessionIds[index] = sessionId;
+                    // Publishes the slot; the volatile write orders the field writes before it
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // Consumer has not released this slot yet
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Hand published events to the consumer. Must only be called from the consumer thread.
+     * @param consumer Receives the events in order
+     * @param maxEvents Maximum number of events to drain
+     * @return Number of events drained
+     */
+    public int drain(Consumer consumer, int maxEvents) {
+        int drained = 0;
+        while (drained < maxEvents) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+
+            long trackedAtMillis = trackedAtTimes[index];
+            String pageName = pageNames[index];
+            String sessionId = sessionIds[index];
+            pageNames[index] = null;
+            sessionIds[index] = null;
+            sequences.set(index, head + mask + 1);
+            head++;
+            drained++;
+
+            consumer.accept(trackedAtMillis, pageName, sessionId);
+        }
+        return drained;
+    }
+
+    /**
+     * Check if the next slot is published. Must only be called from the consumer thread.
+     */
+    public boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    /**
+     * @return Approximate number of events waiting to be drained
+     */
+    public int size() {
+        long size = tail.get() - head;
+        return (int) Math.max(0, Math.min(size, mask + 1));
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,86 @@
+package com.paondev.lib.tapakasih.queue;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Queue of encoded events waiting to be uploaded
+ *
+ * Events are read in batches without being removed; a batch is only
+ * removed by commit() once the server accepted it.
+ */
+public interface EventStore {
+
+    /**
+     * Records read from a store together with an opaque marker of where the batch ends
+     */
+    final class Batch {
+        private final List<byte[]> records;
+        private final Object end;
+
+        public Batch(List<byte[]> records, Object end) {
+            this.records = records;
+            this.end = end;
+        }
+
+        public List<byte[]> getRecords() {
+            return records;
+        }
+
+        public Object getEnd() {
+            return end;
+        }
+
+        public boolean isEmpty() {
+            return records.isEmpty();
+        }
+    }
+
+    /**
+     * Append an encoded event to the tail of the store
+     * @param record Encoded event
+     * @throws IOException if the event cannot be stored
+     */
+    void append(byte[] record) throws IOException;
+
+    /**
+     * Read events from the head of the store without removing them
+     * @param maxRecords Maximum number of events
+     * @param maxBytes Maximum total size; at least one event is always returned
+     * @return Batch of events, empty if nothing is pending
+     * @throws IOException if the store cannot be read
+     */
+    Batch read(int maxRecords, long maxBytes) throws IOException;
+
+    /**
+     * Remove a batch previously returned by read()
+     * @param batch Batch to remove
+     * @throws IOException if the store cannot be updated
+     */
+    void commit(Batch batch) throws IOException;
+
+    /**
+     * @return true if no events are pending
+     */
+    boolean isEmpty();
+
+    /**
+     * @return Number of pending events
+     */
+    int getPendingCount();
+
+    /**
+     * @return Approximate size in bytes of the pending events
+     */
+    long getPendingBytes();
+
+    /**
+     * @return true if pending events survive process death
+     */
+    boolean isDurable();
+
+    /**
+     * Release resources held by the store
+     */
+    void close();
+}
@@ -0,0 +1,830 @@
+package com.paondev.lib.tapakasih.queue;
+
+import com.paondev.lib.tapakasih.platform.Log;
+import com.paondev.lib.tapakasih.config.Constants;
+import com.paondev.lib.tapakasih.config.OverflowPolicy;
+import com.paondev.lib.tapakasih.config.TapakAsihConfig;
+import com.paondev.lib.tapakasih.metrics.DropReason;
+import com.paondev.lib.tapakasih.metrics.PipelineMetrics;
+import com.paondev.lib.tapakasih.network.ActivityRequest;
+import com.paondev.lib.tapakasih.network.ApiClient;
+import com.paondev.lib.tapakasih.network.BatchResult;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains an EventStore and uploads events to the server in batches
+ *
+ * Runs on its own thread so that network work never delays events being
+ * written to the store. A batch is sent as soon as it reaches the configured
+ * maximum size or byte size, otherwise once the first queued event has waited
+ * for the maximum linger time. Events are only removed from the store once
+ * the server answered; events the server asks to retry are queued again.
+ *
+ * A batch the server refuses as a whole (HTTP 4xx other than 408 and 429) can
+ * never succeed and is dropped. A batch that fails otherwise (5xx, I/O error) is
+ * parked: its events move to a separate retry store and a retry is scheduled
+ * with the RetryPolicy, so new batches keep flowing while it waits. The
+ * uploader thread never sleeps. When the retry budget runs out a
+ * durable batch stays parked until an upload succeeds again (or the next start),
+ * a batch that only lives in memory is dropped.
+ *
+ * A CircuitBreaker stops uploads while the endpoint keeps failing and a RateLimiter
+ * spaces them out, pausing them when the server throttles. Held back events stay
+ * where they are (parked batches do not spend retry attempts) and uploads resume
+ * when both let a request through.
+ *
+ * Events waiting in both stores are bounded by the pending budget of the config
+ * (count and bytes); enqueue() applies its OverflowPolicy once the budget is used.
+ *
+ * With ProcessShards only the elected uploader process sends anything. The other
+ * processes hand their batches off to it instead of uploading, and the uploader
+ * picks them up on every flush and every shard poll interval.
+ */
+public class EventUploader {
+    private static final String TAG = "EventUploader";
+
+    private final EventStore store;
+    private final EventStore retryStore;
+    private final ApiClient apiClient;
+    private final TapakAsihConfig config;
+    private final RetryPolicy retryPolicy;
+    private final CircuitBreaker circuitBreaker;
+    private final RateLimiter rateLimiter;
+    private final PipelineMetrics metrics;
+    private final ProcessShards shards;
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    private final AtomicBoolean flushPending = new AtomicBoolean(false);
+    private final AtomicBoolean trimPending = new AtomicBoolean(false);
+    private final AtomicInteger overflowCount = new AtomicInteger(0);
+    private volatile boolean paused;
+    private final AtomicInteger queuedCount = new AtomicInteger(0);
+    private final AtomicLong queuedBytes = new AtomicLong(0);
+    private ScheduledFuture<?> lingerFuture;
+
+    // Parked batches, in retry store order. Only touched on the scheduler thread.
+    private final ArrayDeque<ParkedBatch> parkedBatches = new ArrayDeque<>();
+    private ScheduledFuture<?> retryFuture;
+    private ScheduledFuture<?> resumeFuture;
+
+    /**
+     * Retry bookkeeping of a batch whose events wait in the retry store
+     */
+    private static final class ParkedBatch {
+        int size;
+        final long firstFailureAt;
+        int attempts;
+        boolean exhausted;
+
+        ParkedBatch(int size, long firstFailureAt, int attempts) {
+            this.size = size;
+            this.firstFailureAt = firstFailureAt;
+            this.attempts = attempts;
+        }
+    }
+
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flushPending.set(false);
+            flush();
+        }
+    };
+
+    private final Runnable trimTask = new Runnable() {
+        @Override
+        public void run() {
+            trimPending.set(false);
+            trim();
+        }
+    };
+
+    private final Runnable resumeTask = new Runnable() {
+        @Override
+        public void run() {
+            resumeFuture = null;
+            flush();
+            if (!retryStore.isEmpty()) {
+                retryParked();
+            }
+        }
+    };
+
+    private final Runnable retryTask = new Runnable() {
+        @Override
+        public void run() {
+            retryFuture = null;
+            retryParked();
+        }
+    };
+
+    private final Runnable shardPollTask = new Runnable() {
+        @Override
+        public void run() {
+            // Hand off or take over the uploader role, or pick up handed off events
+            if (!shards.isUploader() || shards.hasHandedOffEvents()) {
+                flush();
+            }
+        }
+    };
+
+    public EventUploader(EventStore store, EventStore retryStore, ApiClient apiClient, TapakAsihConfig config) {
+        this(store, retryStore, apiClient, config, new PipelineMetrics());
+    }
+
+    public EventUploader(EventStore store, EventStore retryStore, ApiClient apiClient, TapakAsihConfig config,
+                         PipelineMetrics metrics) {
+        this(store, retryStore, apiClient, config, metrics, RateLimiter.Persistence.NONE);
+    }
+
+    /**
+     * @param rateLimitPersistence Keeps the upload rate limit across process restarts
+     */
+    public EventUploader(EventStore store, EventStore retryStore, ApiClient apiClient, TapakAsihConfig config,
+                         PipelineMetrics metrics, RateLimiter.Persistence rateLimitPersistence) {
+        this(store, retryStore, apiClient, config, metrics, rateLimitPersistence, null);
+    }
+
+    /**
+     * @param shards Coordination with the app's other processes, null if only one process runs the SDK
+     */
+    public EventUploader(EventStore store, EventStore retryStore, ApiClient apiClient, TapakAsihConfig config,
+                         PipelineMetrics metrics, RateLimiter.Persistence rateLimitPersistence,
+                         ProcessShards shards) {
+        this.store = store;
+        this.shards = shards;
+        this.metrics = metrics;
+        this.retryStore = retryStore;
+        this.apiClient = apiClient;
+        this.config = config;
+        this.retryPolicy = new RetryPolicy(config.getRetryAttempts(), Constants.RETRY_DELAY_MS,
+                Constants.MAX_RETRY_DELAY_MS, config.getMaxRetryDurationMs());
+        this.circuitBreaker = new CircuitBreaker(config.getCircuitBreakerThreshold(), Constants.CIRCUIT_FAILURE_RATE,
+                Constants.CIRCUIT_WINDOW_SIZE, config.getCircuitBreakerOpenMs(), Constants.MAX_CIRCUIT_OPEN_MS);
+        this.rateLimiter = new RateLimiter(config.getMaxUploadsPerMinute(), Constants.MIN_UPLOADS_PER_MINUTE,
+                config.getUploadBurst(), Constants.MAX_THROTTLE_MS, rateLimitPersistence);
+        this.scheduler = new ScheduledThreadPoolExecutor(1);
+        // Pending retries must not outlive shutdown, the events stay in the stores
+        this.scheduler.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+
+        if (shards != null) {
+            shards.tryBecomeUploader();
+            scheduler.scheduleWithFixedDelay(shardPollTask, Constants.SHARD_POLL_INTERVAL_MS,
+                    Constants.SHARD_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        }
+
+        // Batches parked by a previous process are retried right away
+        if (!retryStore.isEmpty()) {
+            scheduleRetry(0);
+        }
+    }
+
+    /**
+     * Append an event to the store within the pending budget
+     * @param record Encoded event
+     * @return false if the event was dropped by the overflow policy
+     * @throws IOException if the event cannot be stored
+     */
+    public boolean enqueue(byte[] record) throws IOException {
+        boolean trim = false;
+        if (isOverBudget(record.length)) {
+            OverflowPolicy policy = config.getOverflowPolicy();
+            boolean keep;
+            if (policy == OverflowPolicy.DROP_OLDEST) {
+                keep = true;
+            } else if (policy == OverflowPolicy.SAMPLE_DOWN) {
+                keep = overflowCount.getAndIncrement() % Constants.SAMPLE_DOWN_KEEP_EVERY == 0;
+            } else if (policy == OverflowPolicy.SPILL_TO_DISK) {
+                // The stores spill on their own, only the disk is bounded here
+                keep = store.getPendingBytes() + retryStore.getPendingBytes() + record.length
+                        <= Constants.MAX_SPILL_BYTES;
+            } else {
+                keep = false;
+            }
+            if (!keep) {
+                metrics.onDropped(DropReason.OVER_BUDGET);
+                return false;
+            }
+            trim = policy != OverflowPolicy.SPILL_TO_DISK;
+        }
+        store.append(record);
+        if (trim) {
+            // After the append, so the trim task sees this event
+            requestTrim();
+        }
+        onEventQueued(record.length);
+        return true;
+    }
+
+    /**
+     * @return true if one more event of the given size exceeds the pending budget
+     */
+    private boolean isOverBudget(int size) {
+        if (config.getOverflowPolicy() == OverflowPolicy.SPILL_TO_DISK && store.isDurable()) {
+            // The offline queue keeps events on disk already
+            return store.getPendingBytes() + retryStore.getPendingBytes() + size > Constants.MAX_SPILL_BYTES;
+        }
+        return store.getPendingCount() + retryStore.getPendingCount() >= config.getMaxPendingEvents()
+                || store.getPendingBytes() + retryStore.getPendingBytes() + size > config.getMaxPendingBytes();
+    }
+
+    /**
+     * Drop the oldest events on the scheduler thread, where batches are read and committed.
+     * Multiple requests are coalesced into a single run.
+     */
+    private void requestTrim() {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        if (trimPending.compareAndSet(false, true)) {
+            scheduler.execute(trimTask);
+        }
+    }
+
+    /**
+     * Drop the oldest pending events until both stores are back within the budget.
+     * Parked batches are the oldest events and go first, one event at a time: a batch
+     * that loses some of its events stays parked with the rest.
+     */
+    private void trim() {
+        try {
+            while (true) {
+                int excessCount = store.getPendingCount() + retryStore.getPendingCount() - config.getMaxPendingEvents();
+                long excessBytes = store.getPendingBytes() + retryStore.getPendingBytes() - config.getMaxPendingBytes();
+                if (excessCount <= 0 && excessBytes <= 0) {
+                    return;
+                }
+                int maxRecords = excessCount > 0 ? excessCount : Integer.MAX_VALUE;
+                long maxBytes = excessBytes > 0 ? excessBytes : Long.MAX_VALUE;
+
+                EventStore.Batch batch;
+                if (!retryStore.isEmpty()) {
+                    ParkedBatch parked = parkedBatches.peekFirst();
+                    int parkedSize = parked != null ? parked.size : config.getMaxBatchSize();
+                    batch = retryStore.read(Math.min(maxRecords, parkedSize), maxBytes);
+                    if (batch.isEmpty()) {
+                        parkedBatches.clear();
+                        continue;
+                    }
+                    retryStore.commit(batch);
+                    if (parked != null) {
+                        parked.size -= batch.getRecords().size();
+                        if (parked.size <= 0) {
+                            parkedBatches.removeFirst();
+                        }
+                    }
+                } else {
+                    batch = store.read(maxRecords, maxBytes);
+                    if (batch.isEmpty()) {
+                        return;
+                    }
+                    store.commit(batch);
+                }
+
+                int dropped = batch.getRecords().size();
+                for (int i = 0; i < dropped; i++) {
+                    metrics.onDropped(DropReason.OVER_BUDGET);
+                }
+                Log.w(TAG, "Pending budget used, dropped {} oldest events", dropped);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Event store error while trimming: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Notify the uploader that an event was appended to the store
+     * @param size Encoded size of the event
+     */
+    public void onEventQueued(int size) {
+        int count = queuedCount.incrementAndGet();
+        long bytes = queuedBytes.addAndGet(size);
+
+        if (count >= config.getMaxBatchSize() || bytes >= config.getMaxBatchBytes()) {
+            requestFlush();
+        } else {
+            scheduleLingerFlush();
+        }
+    }
+
+    /**
+     * Send everything that is pending as soon as possible.
+     * Multiple requests are coalesced into a single run.
+     */
+    public void requestFlush() {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        if (flushPending.compareAndSet(false, true)) {
+            scheduler.execute(flushTask);
+        }
+    }
+
+    /**
+     * Upload pending events now, including one attempt of the oldest parked batch,
+     * and wait for it for a bounded time. The upload carries on after a timeout.
+     * @param timeoutMs Maximum time to wait in milliseconds
+     * @return true if no events are left in either store
+     */
+    public boolean flushAndWait(long timeoutMs) {
+        if (paused || scheduler.isShutdown()) {
+            return !hasPendingEvents();
+        }
+        try {
+            scheduler.submit(new Runnable() {
+                @Override
+                public void run() {
+                    flush();
+                    if (!retryStore.isEmpty()) {
+                        retryParked();
+                    }
+                }
+            }).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException | ExecutionException | TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return !hasPendingEvents();
+    }
+
+    /**
+     * @return true if this process uploads, false if it hands its events off to another one
+     */
+    public boolean isUploader() {
+        return shards == null || shards.isUploader();
+    }
+
+    /**
+     * @return true if events wait in the store or the retry store
+     */
+    public boolean hasPendingEvents() {
+        return !store.isEmpty() || !retryStore.isEmpty();
+    }
+
+    /**
+     * Pause or resume uploads. Events keep being queued while paused.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        if (!paused) {
+            requestFlush();
+            if (!scheduler.isShutdown()) {
+                scheduler.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (!retryStore.isEmpty()) {
+                            scheduleRetry(0);
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    private synchronized void scheduleLingerFlush() {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        if (lingerFuture == null || lingerFuture.isDone()) {
+            lingerFuture = scheduler.schedule(flushTask, config.getMaxBatchLingerMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Upload pending events batch by batch until the store is empty or a send fails
+     */
+    private void flush() {
+        queuedCount.set(0);
+        queuedBytes.set(0);
+
+        if (paused) {
+            return;
+        }
+
+        try {
+            if (shards != null) {
+                if (!shards.tryBecomeUploader()) {
+                    handOff();
+                    return;
+                }
+                adoptHandedOffEvents();
+            }
+
+            while (true) {
+                if (!allowUpload()) {
+                    // Events stay in the store until uploads resume
+                    return;
+                }
+
+                EventStore.Batch batch = store.read(config.getMaxBatchSize(), config.getMaxBatchBytes());
+                if (batch.isEmpty()) {
+                    circuitBreaker.onSkipped();
+                    return;
+                }
+
+                List<byte[]> records = new ArrayList<>(batch.getRecords().size());
+                List<ActivityRequest> requests = decode(batch.getRecords(), records);
+                if (requests.isEmpty()) {
+                    circuitBreaker.onSkipped();
+                    store.commit(batch);
+                    continue;
+                }
+
+                BatchResult result = send(requests);
+                if (result.getStatus() == BatchResult.Status.TOKEN_EXPIRED) {
+                    // Keep the events, they can be sent once a valid token is set
+                    return;
+                }
+
+                if (result.getStatus() == BatchResult.Status.THROTTLED) {
+                    // Not a failure, the batch is sent once the pause is over
+                    scheduleResume(rateLimiter.getDelayMs());
+                    return;
+                }
+
+                if (result.getStatus() == BatchResult.Status.REJECTED) {
+                    // Sending it again cannot succeed, drop it and carry on
+                    store.commit(batch);
+                    metrics.onFailed(requests.size());
+                    continue;
+                }
+
+                if (result.getStatus() == BatchResult.Status.FAILED) {
+                    // Move the batch out of the way and let the next flush carry on
+                    park(records, result.getRetryAfterMs());
+                    store.commit(batch);
+                    return;
+                }
+
+                // Requeue events the server asked to retry before removing the batch
+                for (int index : result.getRetryIndices()) {
+                    store.append(records.get(index));
+                }
+                store.commit(batch);
+                recordSent(requests, result);
+                onUploadSucceeded();
+
+                if (!result.getRetryIndices().isEmpty()) {
+                    // Send them with the next batch instead of retrying right away
+                    scheduleLingerFlush();
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            circuitBreaker.onSkipped();
+            Log.e(TAG, "Event store error while flushing: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Write everything pending to the outbox of the uploader process, parked batches first
+     */
+    private void handOff() throws IOException {
+        int handedOff = 0;
+        for (EventStore source : new EventStore[] {retryStore, store}) {
+            while (true) {
+                EventStore.Batch batch = source.read(config.getMaxBatchSize(), config.getMaxBatchBytes());
+                if (batch.isEmpty()) {
+                    break;
+                }
+                shards.handOff(batch.getRecords());
+                source.commit(batch);
+                handedOff += batch.getRecords().size();
+            }
+        }
+        parkedBatches.clear();
+        if (handedOff > 0) {
+            Log.d(TAG, "Handed {} events off to the uploader process", handedOff);
+        }
+    }
+
+    /**
+     * Move the events handed off by other processes into the store
+     */
+    private void adoptHandedOffEvents() throws IOException {
+        int adopted = shards.drainInto(store);
+        if (adopted > 0) {
+            Log.d(TAG, "Picked up {} events from other processes", adopted);
+            if (isOverBudget(0)) {
+                requestTrim();
+            }
+        }
+    }
+
+    /**
+     * Move a failed batch to the retry store
+     */
+    private void park(List<byte[]> records, long retryAfterMs) throws IOException {
+        for (byte[] record : records) {
+            retryStore.append(record);
+        }
+
+        ParkedBatch parked = new ParkedBatch(records.size(), System.currentTimeMillis(), 1);
+        parkedBatches.addLast(parked);
+
+        Log.w(TAG, "Upload failed, parked {} events for retry", records.size());
+
+        // Only the oldest parked batch has a retry scheduled, the others follow it
+        if (parkedBatches.size() == 1) {
+            scheduleNextRetry(parked, retryAfterMs);
+        }
+    }
+
+    /**
+     * Retry the oldest parked batch
+     */
+    private void retryParked() {
+        if (paused || !isUploader()) {
+            return;
+        }
+
+        try {
+            ParkedBatch parked = parkedBatches.peekFirst();
+            if (parked == null) {
+                if (retryStore.isEmpty()) {
+                    return;
+                }
+                // Left over from a previous process, retry budget starts fresh
+                parked = new ParkedBatch(config.getMaxBatchSize(), System.currentTimeMillis(), 0);
+                parkedBatches.addFirst(parked);
+            }
+
+            if (!allowUpload()) {
+                // Not an attempt, the batch is retried once uploads resume
+                return;
+            }
+
+            EventStore.Batch batch = retryStore.read(parked.size, Long.MAX_VALUE);
+            if (batch.isEmpty()) {
+                circuitBreaker.onSkipped();
+                parkedBatches.clear();
+                return;
+            }
+
+            List<byte[]> records = new ArrayList<>(batch.getRecords().size());
+            List<ActivityRequest> requests = decode(batch.getRecords(), records);
+            BatchResult result;
+            if (requests.isEmpty()) {
+                circuitBreaker.onSkipped();
+                result = BatchResult.sent(new ArrayList<Integer>(), 0);
+            } else {
+                metrics.onRetried(requests.size());
+                result = send(requests);
+            }
+
+            if (result.getStatus() == BatchResult.Status.TOKEN_EXPIRED) {
+                // Stays parked until an upload succeeds with a valid token
+                parked.exhausted = true;
+                return;
+            }
+
+            if (result.getStatus() == BatchResult.Status.THROTTLED) {
+                scheduleResume(rateLimiter.getDelayMs());
+                return;
+            }
+
+            if (result.getStatus() == BatchResult.Status.FAILED) {
+                parked.attempts++;
+                scheduleNextRetry(parked, result.getRetryAfterMs());
+                return;
+            }
+
+            if (result.getStatus() == BatchResult.Status.REJECTED) {
+                retryStore.commit(batch);
+                parkedBatches.removeFirst();
+                metrics.onFailed(requests.size());
+                Log.e(TAG, "Dropped parked batch of {} events rejected by the server", requests.size());
+                if (!retryStore.isEmpty()) {
+                    scheduleRetry(0);
+                }
+                return;
+            }
+
+            for (int index : result.getRetryIndices()) {
+                store.append(records.get(index));
+            }
+            retryStore.commit(batch);
+            parkedBatches.removeFirst();
+            recordSent(requests, result);
+
+            if (!result.getRetryIndices().isEmpty()) {
+                scheduleLingerFlush();
+            }
+
+            Log.i(TAG, "Parked batch of {} events sent on retry", requests.size());
+
+            // The server is reachable again, continue with the next parked batch
+            if (!retryStore.isEmpty()) {
+                scheduleRetry(0);
+            }
+        } catch (IOException e) {
+            circuitBreaker.onSkipped();
+            Log.e(TAG, "Retry store error: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Schedule the next attempt of a parked batch, or give up if its budget is spent
+     */
+    private void scheduleNextRetry(ParkedBatch parked, long retryAfterMs) throws IOException {
+        long elapsed = System.currentTimeMillis() - parked.firstFailureAt;
+        long delay = retryPolicy.nextDelay(parked.attempts, elapsed, retryAfterMs);
+
+        if (delay != RetryPolicy.STOP) {
+            scheduleRetry(delay);
+            return;
+        }
+
+        if (retryStore.isDurable()) {
+            parked.exhausted = true;
+            Log.w(TAG, "Retry budget spent, keeping {} events until the next successful upload", parked.size);
+            return;
+        }
+
+        // Nothing keeps the events beyond this process, drop the batch
+        EventStore.Batch batch = retryStore.read(parked.size, Long.MAX_VALUE);
+        retryStore.commit(batch);
+        parkedBatches.removeFirst();
+        metrics.onFailed(batch.getRecords().size());
+        Log.e(TAG, "Dropped {} events after {} attempts", batch.getRecords().size(), parked.attempts);
+
+        ParkedBatch next = parkedBatches.peekFirst();
+        if (next != null) {
+            scheduleNextRetry(next, 0);
+        }
+    }
+
+    /**
+     * A fresh batch went through, so parked batches waiting for a retry can go now
+     */
+    private void onUploadSucceeded() {
+        if (parkedBatches.isEmpty() && retryStore.isEmpty()) {
+            return;
+        }
+
+        ParkedBatch parked = parkedBatches.peekFirst();
+        if (parked != null && parked.exhausted) {
+            parkedBatches.removeFirst();
+            parkedBatches.addFirst(new ParkedBatch(parked.size, System.currentTimeMillis(), 0));
+        }
+        scheduleRetry(0);
+    }
+
+    private void scheduleRetry(long delayMs) {
+        if (scheduler.isShutdown()) {
+            return;
+        }
+        if (retryFuture != null) {
+            retryFuture.cancel(false);
+        }
+        retryFuture = scheduler.schedule(retryTask, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Check the rate limiter and the circuit breaker before an upload, and schedule
+     * uploads to resume if either holds it back. An allowed upload must go through
+     * send() or be reported to circuitBreaker.onSkipped().
+     */
+    private boolean allowUpload() {
+        long delay = rateLimiter.getDelayMs();
+        if (delay > 0) {
+            scheduleResume(delay);
+            return false;
+        }
+        if (!circuitBreaker.allowRequest()) {
+            scheduleResume(circuitBreaker.getRemainingOpenMs());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Flush and retry parked batches after a delay. Multiple requests are coalesced,
+     * allowUpload() schedules again if the first one is too early.
+     */
+    private void scheduleResume(long delayMs) {
+        if (scheduler.isShutdown() || resumeFuture != null) {
+            return;
+        }
+        resumeFuture = scheduler.schedule(resumeTask, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Send a batch allowUpload() let through and report the outcome
+     */
+    private BatchResult send(List<ActivityRequest> requests) {
+        long start = System.nanoTime();
+        rateLimiter.consume();
+        BatchResult result = apiClient.sendActivities(requests);
+        switch (result.getStatus()) {
+            case SENT:
+                circuitBreaker.onSuccess();
+                rateLimiter.onAccepted();
+                break;
+            case REJECTED:
+                // The endpoint is up, the batch is at fault
+                circuitBreaker.onSuccess();
+                break;
+            case THROTTLED:
+                // The endpoint is up, it asks for fewer requests
+                circuitBreaker.onSuccess();
+                rateLimiter.onThrottled(result.getRetryAfterMs());
+                break;
+            case FAILED:
+                circuitBreaker.onFailure();
+                break;
+            default:
+                // Nothing to say about the endpoint
+                circuitBreaker.onSkipped();
+                break;
+        }
+        if (result.getStatus() != BatchResult.Status.TOKEN_EXPIRED) {
+            metrics.recordHttpRoundTrip(System.nanoTime() - start);
+        }
+        return result;
+    }
+
+    /**
+     * Count a batch the server answered, events it asked to retry are queued again
+     */
+    private void recordSent(List<ActivityRequest> requests, BatchResult result) {
+        List<Integer> retryIndices = result.getRetryIndices();
+        int accepted = requests.size() - retryIndices.size() - result.getRejectedCount();
+        metrics.onSent(accepted);
+        metrics.onRetried(retryIndices.size());
+        metrics.onFailed(result.getRejectedCount());
+
+        boolean[] retried = new boolean[requests.size()];
+        for (int index : retryIndices) {
+            retried[index] = true;
+        }
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < requests.size(); i++) {
+            if (!retried[i]) {
+                metrics.recordEnqueueToSend(requests.get(i).getTrackedAtMillis(), now);
+            }
+        }
+    }
+
+    /**
+     * Decode records, dropping those that can never be sent
+     * @param records Encoded records
+     * @param decoded Receives the records that decoded successfully
+     * @return Decoded requests, in the same order as decoded
+     */
+    private List<ActivityRequest> decode(List<byte[]> records, List<byte[]> decoded) {
+        List<ActivityRequest> requests = new ArrayList<>(records.size());
+        for (byte[] record : records) {
+            try {
+                requests.add(EventCodec.decode(record));
+                decoded.add(record);
+            } catch (IOException e) {
+                metrics.onFailed(1);
+                Log.w(TAG, "Dropping unreadable record: {}", e.getMessage());
+            }
+        }
+        return requests;
+    }
+
+    /**
+     * Stop the uploader. Scheduled flushes and retries are cancelled, a flush that is
+     * already running is awaited for at most UPLOADER_SHUTDOWN_TIMEOUT_MS.
+     * @return true if the uploader stopped, so the stores can be closed
+     */
+    public boolean shutdown() {
+        scheduler.shutdown();
+        boolean stopped = awaitTermination(Constants.UPLOADER_SHUTDOWN_TIMEOUT_MS);
+        if (shards != null) {
+            // Another process can take over right away
+            shards.close();
+        }
+        return stopped;
+    }
+
+    /**
+     * Wait until a shut down uploader no longer touches its stores
+     * @return true if it stopped within timeoutMs
+     */
+    public boolean awaitTermination(long timeoutMs) {
+        try {
+            return scheduler.awaitTermination(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.paondev.lib.tapakasih.queue;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * In-memory EventStore used when the offline queue is disabled
+ *
+ * Events are lost when the process dies.
+ */
+public class MemoryEventStore implements EventStore {
+    private final ArrayDeque<byte[]> records = new ArrayDeque<>();
+    private long pendingBytes;
+
+    @Override
+    public synchronized void append(byte[] record) {
+        records.addLast(record);
+        pendingBytes += record.length;
+    }
+
+    @Override
+    public synchronized Batch read(int maxRecords, long maxBytes) {
+        List<byte[]> batch = new ArrayList<>(Math.min(maxRecords, records.size()));
+        long bytes = 0;
+        Iterator<byte[]> iterator = records.iterator();
+        while (iterator.hasNext() && batch.size() < maxRecords) {
+            byte[] record = iterator.next();
+            if (!batch.isEmpty() && bytes + record.length > maxBytes) {
+                break;
+            }
+            batch.add(record);
+            bytes += record.length;
+        }
+        return new Batch(batch, batch.size());
+    }
+
+    @Override
+    public synchronized void commit(Batch batch) {
+        // Only the uploader removes events, so the head is still this batch
+        int count = (Integer) batch.getEnd();
+        for (int i = 0; i < count && !records.isEmpty(); i++) {
+            pendingBytes -= records.removeFirst().length;
+        }
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return records.isEmpty();
+    }
+
+    @Override
+    public synchronized int getPendingCount() {
+        return records.size();
+    }
+
+    @Override
+    public synchronized long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    @Override
+    public boolean isDurable() {
+        return false;
+    }
+
+    @Override
+    public synchronized void close() {
+        records.clear();
+        pendingBytes = 0;
+    }
+}
@@ -0,0 +1,221 @@
+package com.paondev.lib.tapakasih.queue;
+
+import com.paondev.lib.tapakasih.platform.Log;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Coordinates the processes of an app that each run the SDK
+ *
+ * Every process queues events in its own stores (its shard). One process is
+ * the uploader: it holds an exclusive FileLock on the lock file until it shuts
+ * down or dies, which releases the lock. The other processes hand their events
+ * off by writing them to sealed files in a shared outbox directory, and the
+ * uploader moves them into its own store before uploading. A process that does
+ * not hold the lock tries again on every flush, so another one takes over when
+ * the uploader goes away.
+ *
+ * Outbox files are written to a temporary name and renamed, so the uploader only
+ * sees complete files. A file is deleted once its events are in the uploader's
+ * store: a crash in between sends them twice rather than losing them.
+ */
+public class ProcessShards {
+    private static final String TAG = "ProcessShards";
+    private static final String BATCH_SUFFIX = ".batch";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File outbox;
+    private final File lockFile;
+    private final String shardName;
+
+    private FileChannel lockChannel;
+    private FileLock lock;
+    private int sequence;
+    private boolean closed;
+
+    /**
+     * @param outbox Directory shared by all processes for handed off events
+     * @param lockFile File whose lock elects the uploader
+     * @param shardName Name of this process, unique among the app's processes
+     */
+    public ProcessShards(File outbox, File lockFile, String shardName) {
+        this.outbox = outbox;
+        this.lockFile = lockFile;
+        this.shardName = shardName;
+    }
+
+    /**
+     * Become the uploader if no other process is
+     * @return true if this process is the uploader
+     */
+    public synchronized boolean tryBecomeUploader() {
+        if (closed) {
+            return false;
+        }
+        if (lock != null && lock.isValid()) {
+            return true;
+        }
+        try {
+            if (lockChannel == null) {
+                File parent = lockFile.getParentFile();
+                if (parent != null) {
+                    parent.mkdirs();
+                }
+                lockChannel = new RandomAccessFile(lockFile, "rw").getChannel();
+            }
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Held by another instance in this process
+            lock = null;
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot take the uploader lock: {}", e.getMessage());
+            lock = null;
+        }
+        if (lock != null) {
+            Log.i(TAG, "Process {} is the uploader", shardName);
+        }
+        return lock != null;
+    }
+
+    /**
+     * @return true if this process holds the uploader lock
+     */
+    public synchronized boolean isUploader() {
+        return lock != null && lock.isValid();
+    }
+
+    /**
+     * Hand events off to the uploader process
+     * @param records Encoded events, in order
+     * @throws IOException if the outbox cannot be written
+     */
+    public void handOff(List<byte[]> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        outbox.mkdirs();
+        String name;
+        synchronized (this) {
+            // Sorting by name keeps the order of each process' files
+            name = String.format(Locale.US, "%013d-%s-%06d", System.currentTimeMillis(), shardName,
+                    sequence++ % 1_000_000);
+        }
+        File temp = new File(outbox, name + TEMP_SUFFIX);
+        try (FileOutputStream file = new FileOutputStream(temp)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+            out.writeInt(records.size());
+            for (byte[] record : records) {
+                out.writeInt(record.length);
+                out.write(record);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        if (!temp.renameTo(new File(outbox, name + BATCH_SUFFIX))) {
+            temp.delete();
+            throw new IOException("Cannot seal outbox file " + name);
+        }
+    }
+
+    /**
+     * @return true if handed off events wait in the outbox
+     */
+    public boolean hasHandedOffEvents() {
+        return listBatches().length > 0;
+    }
+
+    /**
+     * Move the events handed off by other processes into a store, oldest file first.
+     * Only the uploader calls this.
+     * @param store Store of the uploader
+     * @return Number of events moved
+     * @throws IOException if the store cannot be written
+     */
+    public int drainInto(EventStore store) throws IOException {
+        File[] batches = listBatches();
+        Arrays.sort(batches);
+        int moved = 0;
+        for (File batch : batches) {
+            List<byte[]> records;
+            try {
+                records = readBatch(batch);
+            } catch (IOException e) {
+                Log.w(TAG, "Dropping unreadable outbox file {}: {}", batch.getName(), e.getMessage());
+                batch.delete();
+                continue;
+            }
+            for (byte[] record : records) {
+                store.append(record);
+            }
+            moved += records.size();
+            batch.delete();
+        }
+        return moved;
+    }
+
+    /**
+     * Give up the uploader role, e.g. when the SDK is destroyed
+     */
+    public synchronized void close() {
+        closed = true;
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot release the uploader lock: {}", e.getMessage());
+        }
+        lock = null;
+        lockChannel = null;
+    }
+
+    private File[] listBatches() {
+        File[] files = outbox.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        int count = 0;
+        for (File file : files) {
+            if (file.getName().endsWith(BATCH_SUFFIX)) {
+                files[count++] = file;
+            }
+        }
+        return Arrays.copyOf(files, count);
+    }
+
+    private static List<byte[]> readBatch(File batch) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(batch)))) {
+            int count = in.readInt();
+            if (count < 0 || count > batch.length() / 4) {
+                throw new EOFException("Bad record count");
+            }
+            byte[][] records = new byte[count][];
+            for (int i = 0; i < count; i++) {
+                int length = in.readInt();
+                if (length < 0 || length > EventJournal.MAX_RECORD_SIZE) {
+                    throw new EOFException("Bad record length");
+                }
+                records[i] = new byte[length];
+                in.readFully(records[i]);
+            }
+            return Arrays.asList(records);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.paondev.lib.tapakasih.queue;
+
+import com.paondev.lib.tapakasih.platform.Log;
+
+/**
+ * Token bucket limiting the upload requests of this device
+ *
+ * The bucket holds up to burst tokens and refills at ratePerMinute; each upload
+ * takes one token. When the server throttles (HTTP 429) the bucket is emptied,
+ * the refill rate is halved and uploads pause for the Retry-After time. Every
+ * accepted upload gives back a tenth of the configured rate until it is reached again.
+ *
+ * The state is saved through Persistence on every change and uses wall clock
+ * time, so restarting the process (e.g. in a crash loop) does not refill the bucket.
+ */
+public class RateLimiter {
+    private static final String TAG = "RateLimiter";
+    private static final int RECOVERY_STEPS = 10;
+
+    /**
+     * Immutable bucket state
+     */
+    public static final class State {
+        private final double tokens;
+        private final double ratePerMinute;
+        private final long updatedAt;
+        private final long throttledUntil;
+
+        public State(double tokens, double ratePerMinute, long updatedAt, long throttledUntil) {
+            this.tokens = tokens;
+            this.ratePerMinute = ratePerMinute;
+            this.updatedAt = updatedAt;
+            this.throttledUntil = throttledUntil;
+        }
+
+        public double getTokens() {
+            return tokens;
+        }
+
+        /**
+         * @return Current refill rate, lowered after the server throttled
+         */
+        public double getRatePerMinute() {
+            return ratePerMinute;
+        }
+
+        /**
+         * @return Wall clock time in milliseconds of the last change
+         */
+        public long getUpdatedAt() {
+            return updatedAt;
+        }
+
+        /**
+         * @return Wall clock time in milliseconds until which the server asked not to upload
+         */
+        public long getThrottledUntil() {
+            return throttledUntil;
+        }
+    }
+
+    /**
+     * Storage of the bucket state across process restarts
+     */
+    public interface Persistence {
+        /**
+         * @return Saved state, or null if there is none
+         */
+        State load();
+
+        void save(State state);
+
+        /** Keeps nothing, the bucket starts full in every process */
+        Persistence NONE = new Persistence() {
+            @Override
+            public State load() {
+                return null;
+            }
+
+            @Override
+            public void save(State state) {
+            }
+        };
+    }
+
+    private final double maxRatePerMinute;
+    private final double minRatePerMinute;
+    private final int burst;
+    private final long maxThrottleMs;
+    private final Persistence persistence;
+
+    private double tokens;
+    private double ratePerMinute;
+    private long updatedAt;
+    private long throttledUntil;
+
+    /**
+     * @param maxRatePerMinute Configured refill rate
+     * @param minRatePerMinute Lowest rate throttling can bring it down to
+     * @param burst Bucket size
+     * @param maxThrottleMs Longest pause honored, guards against bogus Retry-After values and clock changes
+     * @param persistence Where the state is kept
+     */
+    public RateLimiter(double maxRatePerMinute, double minRatePerMinute, int burst, long maxThrottleMs,
+                       Persistence persistence) {
+        this.maxRatePerMinute = maxRatePerMinute;
+        this.minRatePerMinute = Math.min(minRatePerMinute, maxRatePerMinute);
+        this.burst = burst;
+        this.maxThrottleMs = maxThrottleMs;
+        this.persistence = persistence;
+
+        long now = System.currentTimeMillis();
+        State saved = persistence.load();
+        if (saved != null) {
+            // The config may have changed since the state was saved
+            tokens = Math.max(0, Math.min(burst, saved.getTokens()));
+            ratePerMinute = Math.max(this.minRatePerMinute, Math.min(maxRatePerMinute, saved.getRatePerMinute()));
+            updatedAt = Math.min(now, saved.getUpdatedAt());
+            throttledUntil = Math.min(now + maxThrottleMs, saved.getThrottledUntil());
+        } else {
+            tokens = burst;
+            ratePerMinute = maxRatePerMinute;
+            updatedAt = now;
+        }
+    }
+
+    /**
+     * @return Time in milliseconds until the next upload may be sent, 0 if it may go now
+     */
+    public synchronized long getDelayMs() {
+        long now = refill();
+        if (now < throttledUntil) {
+            return throttledUntil - now;
+        }
+        if (tokens >= 1) {
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) * 60_000 / ratePerMinute);
+    }
+
+    /**
+     * Take a token for an upload, getDelayMs() returned 0 before
+     */
+    public synchronized void consume() {
+        refill();
+        tokens = Math.max(0, tokens - 1);
+        save();
+    }
+
+    /**
+     * The server accepted an upload, move the rate back towards the configured one
+     */
+    public synchronized void onAccepted() {
+        if (ratePerMinute >= maxRatePerMinute) {
+            return;
+        }
+        refill();
+        ratePerMinute = Math.min(maxRatePerMinute, ratePerMinute + maxRatePerMinute / RECOVERY_STEPS);
+        save();
+    }
+
+    /**
+     * The server throttled an upload
+     * @param retryAfterMs Pause requested through Retry-After, 0 if none
+     */
+    public synchronized void onThrottled(long retryAfterMs) {
+        long now = refill();
+        tokens = 0;
+        ratePerMinute = Math.max(minRatePerMinute, ratePerMinute / 2);
+        throttledUntil = Math.max(throttledUntil, now + Math.min(retryAfterMs, maxThrottleMs));
+        save();
+        Log.w(TAG, "Uploads throttled by the server for {} ms, rate lowered to {}/min",
+                throttledUntil - now, ratePerMinute);
+    }
+
+    /**
+     * Add the tokens earned since the last change
+     * @return Current wall clock time
+     */
+    private long refill() {
+        long now = System.currentTimeMillis();
+        if (now > updatedAt) {
+            tokens = Math.min(burst, tokens + (now - updatedAt) * ratePerMinute / 60_000);
+        }
+        // A clock set backwards only delays the refill
+        updatedAt = now;
+        return now;
+    }
+
+    private void save() {
+        persistence.save(new State(tokens, ratePerMinute, updatedAt, throttledUntil));
+    }
+}
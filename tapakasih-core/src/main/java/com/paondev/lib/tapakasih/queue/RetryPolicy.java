@@ -0,0 +1,63 @@
+package com.paondev.lib.tapakasih.queue;
+
+import java.util.Random;
+
+/**
+ * Exponential backoff with jitter for failed uploads
+ *
+ * The delay before attempt n+1 is drawn from [d/2, d] where d = baseDelay * 2^(n-1),
+ * capped at maxDelay. A server provided Retry-After is used as the lower bound.
+ * Retrying stops once maxAttempts is reached or the next attempt would start
+ * later than maxRetryDuration after the first failure.
+ */
+public class RetryPolicy {
+    /** Returned by nextDelay() when no further attempt should be made */
+    public static final long STOP = -1;
+
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final long maxRetryDurationMs;
+    private final Random random;
+
+    public RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs, long maxRetryDurationMs) {
+        this(maxAttempts, baseDelayMs, maxDelayMs, maxRetryDurationMs, new Random());
+    }
+
+    RetryPolicy(int maxAttempts, long baseDelayMs, long maxDelayMs, long maxRetryDurationMs, Random random) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.maxRetryDurationMs = maxRetryDurationMs;
+        this.random = random;
+    }
+
+    /**
+     * Compute the delay before the next attempt
+     * @param attempts Number of attempts made so far (at least 1)
+     * @param elapsedMs Time since the first failed attempt
+     * @param retryAfterMs Delay requested by the server, or 0 if none
+     * @return Delay in milliseconds, or STOP if the retry budget is exhausted
+     */
+    public long nextDelay(int attempts, long elapsedMs, long retryAfterMs) {
+        if (attempts >= maxAttempts) {
+            return STOP;
+        }
+
+        long exponential = baseDelayMs << Math.min(attempts - 1, 30);
+        if (exponential <= 0 || exponential > maxDelayMs) {
+            exponential = maxDelayMs;
+        }
+
+        long half = exponential / 2;
+        long delay = half + (half > 0 ? (long) (random.nextDouble() * (exponential - half)) : 0);
+        if (retryAfterMs > delay) {
+            delay = retryAfterMs;
+        }
+
+        if (elapsedMs + delay > maxRetryDurationMs) {
+            return STOP;
+        }
+        return delay;
+    }
+}
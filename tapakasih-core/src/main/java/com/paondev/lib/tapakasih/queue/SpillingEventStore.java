@@ -0,0 +1,131 @@
+package com.paondev.lib.tapakasih.queue;
+
+import com.paondev.lib.tapakasih.platform.Log;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * In-memory EventStore that writes to a journal on disk once its memory budget is used
+ *
+ * Used for the SPILL_TO_DISK overflow policy when the offline queue is disabled.
+ * Once an event was spilled, new events go to disk as well until the spilled
+ * events are uploaded, so events keep their order. The journal is only opened
+ * when needed and is wiped on open and close: like the memory store, events
+ * do not survive the process.
+ */
+public class SpillingEventStore implements EventStore {
+    private static final String TAG = "SpillingEventStore";
+
+    private final MemoryEventStore memory = new MemoryEventStore();
+    private final File directory;
+    private final long segmentSize;
+    private final int maxMemoryEvents;
+    private final long maxMemoryBytes;
+
+    private EventJournal spill;
+
+    /**
+     * Marks a batch read from the spill journal
+     */
+    private static final class SpillEnd {
+        final Object end;
+
+        SpillEnd(Object end) {
+            this.end = end;
+        }
+    }
+
+    /**
+     * @param directory Directory of the spill journal, deleted if it exists
+     * @param segmentSize Journal segment size in bytes
+     * @param maxMemoryEvents Number of events kept in memory before spilling
+     * @param maxMemoryBytes Size of the events kept in memory before spilling
+     */
+    public SpillingEventStore(File directory, long segmentSize, int maxMemoryEvents, long maxMemoryBytes) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxMemoryEvents = maxMemoryEvents;
+        this.maxMemoryBytes = maxMemoryBytes;
+        deleteSpill();
+    }
+
+    @Override
+    public synchronized void append(byte[] record) throws IOException {
+        boolean spilling = spill != null && !spill.isEmpty();
+        if (!spilling && memory.getPendingCount() < maxMemoryEvents
+                && memory.getPendingBytes() + record.length <= maxMemoryBytes) {
+            memory.append(record);
+            return;
+        }
+        if (spill == null) {
+            spill = new EventJournal(directory, segmentSize);
+            Log.w(TAG, "Memory budget used, spilling events to disk");
+        }
+        spill.append(record);
+    }
+
+    @Override
+    public synchronized Batch read(int maxRecords, long maxBytes) throws IOException {
+        if (!memory.isEmpty() || spill == null) {
+            return memory.read(maxRecords, maxBytes);
+        }
+        Batch batch = spill.read(maxRecords, maxBytes);
+        return new Batch(batch.getRecords(), new SpillEnd(batch.getEnd()));
+    }
+
+    @Override
+    public synchronized void commit(Batch batch) throws IOException {
+        if (batch.getEnd() instanceof SpillEnd) {
+            spill.commit(new Batch(batch.getRecords(), ((SpillEnd) batch.getEnd()).end));
+        } else {
+            memory.commit(batch);
+        }
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return memory.isEmpty() && (spill == null || spill.isEmpty());
+    }
+
+    @Override
+    public synchronized int getPendingCount() {
+        return memory.getPendingCount() + (spill != null ? spill.getPendingCount() : 0);
+    }
+
+    @Override
+    public synchronized long getPendingBytes() {
+        return memory.getPendingBytes() + (spill != null ? spill.getPendingBytes() : 0);
+    }
+
+    /**
+     * @return Approximate size in bytes of the events waiting on disk
+     */
+    public synchronized long getSpilledBytes() {
+        return spill != null ? spill.getPendingBytes() : 0;
+    }
+
+    @Override
+    public boolean isDurable() {
+        return false;
+    }
+
+    @Override
+    public synchronized void close() {
+        memory.close();
+        if (spill != null) {
+            spill.close();
+            spill = null;
+        }
+        deleteSpill();
+    }
+
+    private void deleteSpill() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.paondev.lib.tapakasih.queue;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded intern pool for the page names and session IDs held in memory
+ *
+ * A page tracked many times is then referenced from the ring buffer and the aggregates
+ * through a single String instance. Lookups of known strings do not allocate; once the
+ * pool is full, new strings are returned as they are.
+ */
+public final class StringPool {
+    private final ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    /**
+     * @param maxSize Maximum number of distinct strings kept
+     */
+    public StringPool(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return The pooled instance equal to value, or value itself
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = strings.get(value);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (strings.size() >= maxSize) {
+            return value;
+        }
+        pooled = strings.putIfAbsent(value, value);
+        return pooled != null ? pooled : value;
+    }
+
+    public int size() {
+        return strings.size();
+    }
+}
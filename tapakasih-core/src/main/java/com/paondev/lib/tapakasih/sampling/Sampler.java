@@ -0,0 +1,71 @@
+package com.paondev.lib.tapakasih.sampling;
+
+import java.util.Map;
+
+/**
+ * Deterministic sampling of tracked events, keyed by the session ID
+ *
+ * Every session gets a fixed position in [0, 1) from a hash of its ID, and an event is
+ * kept when that position is below the sampling rate. A session is therefore either
+ * fully in or fully out, and lowering a rate only removes sessions, it never adds any.
+ * The rate of an event is the product of the session rate, the page rate (if one is
+ * configured for the page) and the rate sent by the server.
+ *
+ * isSampled() does not allocate or lock, it runs on the caller's thread of track().
+ */
+public final class Sampler {
+    private static final double HASH_RANGE = 4294967296.0; // 2^32
+
+    private final double sessionRate;
+    private final Map<String, Double> pageRates;
+
+    /**
+     * @param sessionRate Fraction of sessions to keep, 0 to 1
+     * @param pageRates Fraction of sessions to keep per page name, not copied
+     */
+    public Sampler(double sessionRate, Map<String, Double> pageRates) {
+        this.sessionRate = sessionRate;
+        this.pageRates = pageRates;
+    }
+
+    /**
+     * @param serverRate Rate sent by the server, 1 when it did not send one
+     * @return true if the event should be tracked
+     */
+    public boolean isSampled(String sessionId, String pageName, double serverRate) {
+        double rate = sessionRate * serverRate;
+        if (!pageRates.isEmpty()) {
+            Double pageRate = pageRates.get(pageName);
+            if (pageRate != null) {
+                rate *= pageRate;
+            }
+        }
+
+        if (rate >= 1.0) {
+            return true;
+        }
+        if (rate <= 0.0) {
+            return false;
+        }
+        return position(sessionId) < rate;
+    }
+
+    /**
+     * @return Position of the session in [0, 1), the same on every device and platform
+     */
+    public static double position(String sessionId) {
+        return (mix(sessionId.hashCode()) & 0xFFFFFFFFL) / HASH_RANGE;
+    }
+
+    /**
+     * MurmurHash3 finalizer, spreads String.hashCode() (cached by String) over all 32 bits
+     */
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,53 @@
+package com.paondev.lib.tapakasih.dwell;
+
+import com.paondev.lib.tapakasih.network.ActivityRequest;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DwellAggregatorTest {
+
+    @Test
+    public void sumsVisitsPerSessionAndPage() {
+        DwellAggregator aggregator = new DwellAggregator();
+        aggregator.record("s1", "Home", 1_000);
+        aggregator.record("s1", "Home", 2_500);
+        aggregator.record("s1", "Settings", 400);
+        aggregator.record("s2", "Home", 700);
+
+        Map<String, ActivityRequest> summaries = new HashMap<>();
+        for (ActivityRequest summary : aggregator.drain(1_700_000_000_500L)) {
+            summaries.put(summary.getSessionId() + "/" + summary.getPageName(), summary);
+            assertTrue(summary.isDwellSummary());
+            assertEquals(1_700_000_000_500L, summary.getTrackedAtMillis());
+            assertEquals(1_700_000_000L, summary.getEpochTime());
+        }
+        assertEquals(3, summaries.size());
+
+        ActivityRequest home = summaries.get("s1/Home");
+        assertEquals(Long.valueOf(3_500), home.getDwellTimeMs());
+        assertEquals(Integer.valueOf(2), home.getVisits());
+        assertEquals(Long.valueOf(400), summaries.get("s1/Settings").getDwellTimeMs());
+        assertEquals(Integer.valueOf(1), summaries.get("s2/Home").getVisits());
+    }
+
+    @Test
+    public void drainResetsTotals() {
+        DwellAggregator aggregator = new DwellAggregator();
+        assertTrue(aggregator.isEmpty());
+        assertTrue(aggregator.drain(0).isEmpty());
+
+        aggregator.record("s", "Home", 100);
+        assertFalse(aggregator.isEmpty());
+        assertEquals(1, aggregator.drain(0).size());
+        assertTrue(aggregator.isEmpty());
+
+        aggregator.record("s", "Home", 50);
+        List<ActivityRequest> summaries = aggregator.drain(0);
+        assertEquals(Long.valueOf(50), summaries.get(0).getDwellTimeMs());
+        assertEquals(Integer.valueOf(1), summaries.get(0).getVisits());
+    }
+}
@@ -0,0 +1,278 @@
+package com.paondev.lib.tapakasih.harness;
+
+import com.google.gson.Gson;
+import com.paondev.lib.tapakasih.config.Constants;
+import com.paondev.lib.tapakasih.network.ActivityRequest;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.net.ServerSocketFactory;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+/**
+ * In-process TapakAsih backend on MockWebServer
+ *
+ * Implements the activity check and both claim endpoints. Every delivered event
+ * is recorded by the sequence number the harness puts in its page name, so
+ * deliveries and duplicates can be counted. Faults are injected per request.
+ */
+class FakeBackend extends Dispatcher {
+    static final String PAGE_PREFIX = "Page-";
+
+    private final MockWebServer server = new MockWebServer();
+    private final Gson gson = new Gson();
+    private final Faults faults;
+
+    private final AtomicIntegerArray deliveries;
+    private final AtomicLongArray firstDeliveredAt;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong injectedFaults = new AtomicLong();
+
+    /**
+     * Faults injected into the claim endpoints
+     */
+    static final class Faults {
+        long latencyMs;
+        double serverErrorRate;
+        double unauthorizedRate;
+        double throttledRate;
+        double disconnectRate;
+
+        static Faults none() {
+            return new Faults();
+        }
+
+        Faults latency(long latencyMs) {
+            this.latencyMs = latencyMs;
+            return this;
+        }
+
+        Faults serverErrors(double rate) {
+            this.serverErrorRate = rate;
+            return this;
+        }
+
+        Faults unauthorized(double rate) {
+            this.unauthorizedRate = rate;
+            return this;
+        }
+
+        /** HTTP 429 with Retry-After */
+        Faults throttled(double rate) {
+            this.throttledRate = rate;
+            return this;
+        }
+
+        /** The request is processed, then the connection drops before the response */
+        Faults disconnects(double rate) {
+            this.disconnectRate = rate;
+            return this;
+        }
+    }
+
+    private volatile boolean faultsEnabled = true;
+
+    FakeBackend(Faults faults, int maxEvents) {
+        this.faults = faults;
+        this.deliveries = new AtomicIntegerArray(maxEvents);
+        this.firstDeliveredAt = new AtomicLongArray(maxEvents);
+        server.setDispatcher(this);
+        server.setServerSocketFactory(new NoDelayServerSocketFactory());
+    }
+
+    void start() throws IOException {
+        server.start();
+    }
+
+    void close() throws IOException {
+        server.shutdown();
+    }
+
+    String getBaseUrl() {
+        return server.url("/").toString();
+    }
+
+    /**
+     * Stop injecting faults, e.g. to let the client recover at the end of a run
+     */
+    void setFaultsEnabled(boolean faultsEnabled) {
+        this.faultsEnabled = faultsEnabled;
+    }
+
+    int getDeliveries(int seq) {
+        return deliveries.get(seq);
+    }
+
+    long getFirstDeliveredAt(int seq) {
+        return firstDeliveredAt.get(seq);
+    }
+
+    long getRequestCount() {
+        return requests.get();
+    }
+
+    long getInjectedFaultCount() {
+        return injectedFaults.get();
+    }
+
+    @Override
+    public MockResponse dispatch(RecordedRequest request) {
+        requests.incrementAndGet();
+        String path = request.getPath();
+
+        if (Constants.CHECK_ENDPOINT.equals(path)) {
+            return new MockResponse()
+                    .setHeader("ETag", "\"harness\"")
+                    .setBody("{\"status\":\"ON_DEMAND\",\"ttl\":3600}");
+        }
+
+        boolean batch = Constants.ACTIVITY_BATCH_ENDPOINT.equals(path);
+        if (!batch && !Constants.ACTIVITY_ENDPOINT.equals(path)) {
+            return new MockResponse().setResponseCode(404);
+        }
+
+        MockResponse fault = injectFault();
+        if (fault != null && fault.getSocketPolicy() != SocketPolicy.DISCONNECT_AFTER_REQUEST) {
+            return delay(fault);
+        }
+
+        String body = request.getBody().readUtf8();
+        ActivityRequest[] events;
+        if (!batch) {
+            events = new ActivityRequest[] {gson.fromJson(body, ActivityRequest.class)};
+        } else if (body.startsWith("{")) {
+            events = gson.fromJson(body, DictionaryBatch.class).toRequests();
+        } else {
+            events = gson.fromJson(body, ActivityRequest[].class);
+        }
+        long now = System.nanoTime();
+        for (ActivityRequest event : events) {
+            record(event, now);
+        }
+
+        if (fault != null) {
+            // Processed, but the client never learns about it
+            return delay(fault);
+        }
+        return delay(new MockResponse().setBody(batch ? "{\"accepted\":" + events.length + ",\"failed\":[]}" : ""));
+    }
+
+    /**
+     * Dictionary-encoded batch, see ActivityRequestBody.forDictionaryBatch()
+     */
+    private static final class DictionaryBatch {
+        String[] pages;
+        String[] sessions;
+        Event[] events;
+
+        static final class Event {
+            long t;
+            int p;
+            int s;
+        }
+
+        ActivityRequest[] toRequests() {
+            ActivityRequest[] requests = new ActivityRequest[events.length];
+            for (int i = 0; i < events.length; i++) {
+                requests[i] = new ActivityRequest(events[i].t, pages[events[i].p], sessions[events[i].s]);
+            }
+            return requests;
+        }
+    }
+
+    private MockResponse injectFault() {
+        if (!faultsEnabled) {
+            return null;
+        }
+        double roll = ThreadLocalRandom.current().nextDouble();
+        if (roll < faults.serverErrorRate) {
+            injectedFaults.incrementAndGet();
+            return new MockResponse().setResponseCode(503).setHeader("Retry-After", "1");
+        }
+        roll -= faults.serverErrorRate;
+        if (roll < faults.unauthorizedRate) {
+            injectedFaults.incrementAndGet();
+            return new MockResponse().setResponseCode(401);
+        }
+        roll -= faults.unauthorizedRate;
+        if (roll < faults.throttledRate) {
+            injectedFaults.incrementAndGet();
+            return new MockResponse().setResponseCode(429).setHeader("Retry-After", "1");
+        }
+        roll -= faults.throttledRate;
+        if (roll < faults.disconnectRate) {
+            injectedFaults.incrementAndGet();
+            return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+        }
+        return null;
+    }
+
+    private MockResponse delay(MockResponse response) {
+        if (faultsEnabled && faults.latencyMs > 0) {
+            response.setHeadersDelay(faults.latencyMs, TimeUnit.MILLISECONDS);
+        }
+        return response;
+    }
+
+    private void record(ActivityRequest event, long now) {
+        String pageName = event.getPageName();
+        if (pageName == null || !pageName.startsWith(PAGE_PREFIX)) {
+            return;
+        }
+        int seq = Integer.parseInt(pageName.substring(PAGE_PREFIX.length()));
+        if (seq < 0 || seq >= deliveries.length()) {
+            return;
+        }
+        if (deliveries.getAndIncrement(seq) == 0) {
+            firstDeliveredAt.set(seq, now);
+        }
+    }
+
+    /**
+     * MockWebServer writes response headers and body separately; with Nagle's algorithm on
+     * the accepted sockets every response waits for the client's delayed ACK (~40 ms),
+     * which would make the fake backend the bottleneck of the run
+     */
+    private static final class NoDelayServerSocketFactory extends ServerSocketFactory {
+        @Override
+        public ServerSocket createServerSocket() throws IOException {
+            return new ServerSocket() {
+                @Override
+                public Socket accept() throws IOException {
+                    Socket socket = new Socket();
+                    implAccept(socket);
+                    socket.setTcpNoDelay(true);
+                    return socket;
+                }
+            };
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port) throws IOException {
+            return createServerSocket(port, 50);
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog) throws IOException {
+            return createServerSocket(port, backlog, null);
+        }
+
+        @Override
+        public ServerSocket createServerSocket(int port, int backlog, InetAddress address) throws IOException {
+            ServerSocket socket = createServerSocket();
+            socket.bind(new InetSocketAddress(address, port), backlog);
+            return socket;
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.paondev.lib.tapakasih.harness;
+
+import com.paondev.lib.tapakasih.config.OverflowPolicy;
+import com.paondev.lib.tapakasih.config.TapakAsihConfig;
+import com.paondev.lib.tapakasih.metrics.DropReason;
+import com.paondev.lib.tapakasih.metrics.PipelineMetrics;
+import com.paondev.lib.tapakasih.metrics.StatsSnapshot;
+import com.paondev.lib.tapakasih.network.ActivityRequest;
+import com.paondev.lib.tapakasih.network.ApiClient;
+import com.paondev.lib.tapakasih.platform.TokenProvider;
+import com.paondev.lib.tapakasih.queue.EventCodec;
+import com.paondev.lib.tapakasih.queue.EventDrainer;
+import com.paondev.lib.tapakasih.queue.EventJournal;
+import com.paondev.lib.tapakasih.queue.EventRingBuffer;
+import com.paondev.lib.tapakasih.queue.EventStore;
+import com.paondev.lib.tapakasih.queue.EventUploader;
+import com.paondev.lib.tapakasih.queue.MemoryEventStore;
+import com.paondev.lib.tapakasih.queue.ProcessShards;
+import com.paondev.lib.tapakasih.queue.RateLimiter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives the core event pipeline at a sustained rate against a FakeBackend
+ *
+ * Producer threads play the role of TapakAsih.track(): they offer events to the
+ * ring buffer, the drainer encodes them into the event store and the uploader
+ * sends them, exactly as on a device. After the load phase, faults are switched
+ * off and the pipeline gets a grace period to deliver what is still queued.
+ *
+ * With several processes, each gets a pipeline of its own and the producers are
+ * spread over them; the pipelines share the outbox and uploader lock of ProcessShards
+ * like the processes of an app do.
+ */
+class LoadHarness {
+    private static final String SESSION_ID = "harness-session";
+    private static final int RING_BUFFER_CAPACITY = 1024;
+
+    private int eventsPerSecond = 10_000;
+    private int producerThreads = 8;
+    private long durationMs = 10_000;
+    private long drainTimeoutMs = 20_000;
+    private boolean durableStore = true;
+    private int processes = 1;
+    private FakeBackend.Faults faults = FakeBackend.Faults.none();
+    private TapakAsihConfig.Builder configBuilder = new TapakAsihConfig.Builder("harness-token")
+            .setMaxBatchSize(500)
+            .setMaxBatchBytes(256 * 1024)
+            .setMaxBatchLingerMs(50)
+            .setRetryAttempts(20)
+            .setCircuitBreakerOpenMs(1000)
+            .setMaxUploadsPerMinute(6000)
+            .setUploadBurst(20)
+            .setMaxPendingEvents(Integer.MAX_VALUE)
+            .setMaxPendingBytes(Long.MAX_VALUE);
+
+    LoadHarness eventsPerSecond(int eventsPerSecond) {
+        this.eventsPerSecond = eventsPerSecond;
+        return this;
+    }
+
+    LoadHarness dictionaryEncoding(boolean dictionaryEncoding) {
+        configBuilder.setDictionaryEncoding(dictionaryEncoding);
+        return this;
+    }
+
+    LoadHarness pendingBudget(int maxPendingEvents, OverflowPolicy policy) {
+        configBuilder.setMaxPendingEvents(maxPendingEvents).setOverflowPolicy(policy);
+        return this;
+    }
+
+    LoadHarness producerThreads(int producerThreads) {
+        this.producerThreads = producerThreads;
+        return this;
+    }
+
+    LoadHarness duration(long durationMs) {
+        this.durationMs = durationMs;
+        return this;
+    }
+
+    LoadHarness drainTimeout(long drainTimeoutMs) {
+        this.drainTimeoutMs = drainTimeoutMs;
+        return this;
+    }
+
+    LoadHarness durableStore(boolean durableStore) {
+        this.durableStore = durableStore;
+        return this;
+    }
+
+    LoadHarness processes(int processes) {
+        this.processes = processes;
+        return this;
+    }
+
+    LoadHarness faults(FakeBackend.Faults faults) {
+        this.faults = faults;
+        return this;
+    }
+
+    LoadHarness config(TapakAsihConfig.Builder configBuilder) {
+        this.configBuilder = configBuilder;
+        return this;
+    }
+
+    LoadReport run(String name) throws Exception {
+        int maxEvents = (int) Math.min(Integer.MAX_VALUE - 8, (long) eventsPerSecond * durationMs / 1000 * 2 + 1024);
+        FakeBackend backend = new FakeBackend(faults, maxEvents);
+        backend.start();
+
+        File journalDir = Files.createTempDirectory("tapakasih-harness").toFile();
+        TapakAsihConfig config = configBuilder.setBaseUrl(backend.getBaseUrl()).build();
+        final ApiClient apiClient = new ApiClient(new HarnessTokenProvider(), config);
+        apiClient.checkActivityDemand(null);
+
+        PipelineMetrics metrics = new PipelineMetrics();
+        final AtomicLong storeErrors = new AtomicLong();
+        EventStore[] stores = new EventStore[processes * 2];
+        EventUploader[] uploaders = new EventUploader[processes];
+        ProcessShards[] shards = new ProcessShards[processes];
+        EventRingBuffer[] ringBuffers = new EventRingBuffer[processes];
+        EventDrainer[] drainers = new EventDrainer[processes];
+        for (int p = 0; p < processes; p++) {
+            File processDir = new File(journalDir, "process-" + p);
+            if (durableStore) {
+                stores[2 * p] = new EventJournal(new File(processDir, "journal"), 256 * 1024);
+                stores[2 * p + 1] = new EventJournal(new File(processDir, "retry"), 256 * 1024);
+            } else {
+                stores[2 * p] = new MemoryEventStore();
+                stores[2 * p + 1] = new MemoryEventStore();
+            }
+            if (processes > 1) {
+                shards[p] = new ProcessShards(new File(journalDir, "outbox"),
+                        new File(journalDir, "uploader.lock"), "process-" + p);
+            }
+            final EventUploader uploader = new EventUploader(stores[2 * p], stores[2 * p + 1], apiClient, config,
+                    metrics, RateLimiter.Persistence.NONE, shards[p]);
+            uploaders[p] = uploader;
+            ringBuffers[p] = new EventRingBuffer(RING_BUFFER_CAPACITY);
+            drainers[p] = new EventDrainer(ringBuffers[p], new EventRingBuffer.Consumer() {
+                @Override
+                public void accept(long trackedAtMillis, String pageName, String sessionId) {
+                    try {
+                        ActivityRequest request = new ActivityRequest(trackedAtMillis / 1000, pageName, sessionId);
+                        request.setTrackedAtMillis(trackedAtMillis);
+                        byte[] record = EventCodec.encode(request);
+                        uploader.enqueue(record);
+                    } catch (IOException e) {
+                        storeErrors.incrementAndGet();
+                    }
+                }
+            });
+            drainers[p].start();
+        }
+
+        long heapBefore = usedHeap();
+        AtomicLongArray offeredAt = new AtomicLongArray(maxEvents);
+        AtomicInteger nextSeq = new AtomicInteger();
+        AtomicLong rejected = new AtomicLong();
+        HeapSampler sampler = new HeapSampler();
+        sampler.start();
+
+        long loadStart = System.nanoTime();
+        runProducers(ringBuffers, drainers, offeredAt, nextSeq, rejected, maxEvents);
+        long loadNanos = System.nanoTime() - loadStart;
+        int offered = nextSeq.get();
+
+        // Recovery: no more faults, give the pipeline time to deliver what is left
+        backend.setFaultsEnabled(false);
+        long drainDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drainTimeoutMs);
+        while (System.nanoTime() < drainDeadline && !isDrained(ringBuffers, stores, shards)) {
+            for (EventUploader uploader : uploaders) {
+                uploader.requestFlush();
+            }
+            Thread.sleep(100);
+        }
+        long totalNanos = System.nanoTime() - loadStart;
+        long heapPeak = sampler.finish();
+        long heapAfter = usedHeap();
+
+        int uploadingProcesses = 0;
+        for (int p = 0; p < processes; p++) {
+            drainers[p].stop();
+            if (uploaders[p].isUploader()) {
+                uploadingProcesses++;
+            }
+            uploaders[p].shutdown();
+        }
+        int stillQueued = 0;
+        for (EventStore store : stores) {
+            stillQueued += countRecords(store);
+            store.close();
+        }
+        backend.close();
+        deleteRecursively(journalDir);
+
+        LoadReport report = new LoadReport(name);
+        report.offered = offered;
+        report.rejectedAtIngestion = rejected.get();
+        report.storeErrors = storeErrors.get();
+        report.stillQueued = stillQueued;
+        StatsSnapshot stats = metrics.snapshot(0, 0);
+        report.droppedOverBudget = stats.getDropped(DropReason.OVER_BUDGET);
+        report.failed = stats.getFailed();
+        report.uploadingProcesses = uploadingProcesses;
+        report.requests = backend.getRequestCount();
+        report.injectedFaults = backend.getInjectedFaultCount();
+        report.loadSeconds = loadNanos / 1e9;
+        report.totalSeconds = totalNanos / 1e9;
+        report.heapBeforeBytes = heapBefore;
+        report.heapPeakBytes = heapPeak;
+        report.heapAfterBytes = heapAfter;
+
+        long[] latencies = new long[offered];
+        int latencyCount = 0;
+        for (int seq = 0; seq < offered; seq++) {
+            long sentAt = offeredAt.get(seq);
+            if (sentAt == 0) {
+                continue;
+            }
+            int deliveries = backend.getDeliveries(seq);
+            if (deliveries == 0) {
+                report.undelivered++;
+                continue;
+            }
+            report.delivered++;
+            report.duplicates += deliveries - 1;
+            latencies[latencyCount++] = backend.getFirstDeliveredAt(seq) - sentAt;
+        }
+        report.lost = Math.max(0, report.undelivered - stillQueued);
+        Arrays.sort(latencies, 0, latencyCount);
+        report.setLatencies(latencies, latencyCount);
+        return report;
+    }
+
+    /**
+     * Offer events from producerThreads threads, paced to eventsPerSecond in total
+     */
+    private void runProducers(EventRingBuffer[] ringBuffers, EventDrainer[] drainers,
+                              final AtomicLongArray offeredAt, final AtomicInteger nextSeq,
+                              final AtomicLong rejected, final int maxEvents) throws InterruptedException {
+        final long intervalNanos = TimeUnit.SECONDS.toNanos(1) * producerThreads / eventsPerSecond;
+        final long endAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMs);
+        final CountDownLatch done = new CountDownLatch(producerThreads);
+
+        for (int t = 0; t < producerThreads; t++) {
+            final EventRingBuffer ringBuffer = ringBuffers[t % ringBuffers.length];
+            final EventDrainer drainer = drainers[t % drainers.length];
+            Thread producer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    long next = System.nanoTime();
+                    while (next < endAt) {
+                        long wait = next - System.nanoTime();
+                        if (wait > 0) {
+                            LockSupport.parkNanos(wait);
+                        }
+                        int seq = nextSeq.getAndIncrement();
+                        if (seq >= maxEvents) {
+                            break;
+                        }
+                        offeredAt.set(seq, System.nanoTime());
+                        if (ringBuffer.offer(System.currentTimeMillis(), FakeBackend.PAGE_PREFIX + seq, SESSION_ID)) {
+                            drainer.wakeUp();
+                        } else {
+                            offeredAt.set(seq, 0);
+                            rejected.incrementAndGet();
+                        }
+                        next += intervalNanos;
+                    }
+                    done.countDown();
+                }
+            }, "Harness-Producer-" + t);
+            producer.start();
+        }
+        done.await();
+    }
+
+    private static boolean isDrained(EventRingBuffer[] ringBuffers, EventStore[] stores, ProcessShards[] shards) {
+        for (EventRingBuffer ringBuffer : ringBuffers) {
+            if (!ringBuffer.isEmpty()) {
+                return false;
+            }
+        }
+        for (EventStore store : stores) {
+            if (!store.isEmpty()) {
+                return false;
+            }
+        }
+        return shards[0] == null || !shards[0].hasHandedOffEvents();
+    }
+
+    private static int countRecords(EventStore store) {
+        try {
+            return store.read(Integer.MAX_VALUE, Long.MAX_VALUE).getRecords().size();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void deleteRecursively(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                deleteRecursively(child);
+            }
+        }
+        file.delete();
+    }
+
+    /**
+     * Token store that forgets an expiry after a short while, like an app setting a fresh token
+     */
+    private static final class HarnessTokenProvider implements TokenProvider {
+        private static final long TOKEN_REFRESH_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+        private volatile long expiredAt = -1;
+
+        @Override
+        public String getDeveloperToken() {
+            return "harness-token";
+        }
+
+        @Override
+        public boolean isTokenExpired() {
+            long at = expiredAt;
+            return at >= 0 && System.nanoTime() - at < TOKEN_REFRESH_NANOS;
+        }
+
+        @Override
+        public void markTokenAsExpired() {
+            expiredAt = System.nanoTime();
+        }
+    }
+
+    /**
+     * Samples used heap every 100 ms to find the peak
+     */
+    private static final class HeapSampler extends Thread {
+        private volatile boolean running = true;
+        private volatile long peak;
+
+        HeapSampler() {
+            super("Harness-HeapSampler");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            Runtime runtime = Runtime.getRuntime();
+            while (running) {
+                peak = Math.max(peak, runtime.totalMemory() - runtime.freeMemory());
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+
+        long finish() throws InterruptedException {
+            running = false;
+            interrupt();
+            join();
+            return peak;
+        }
+    }
+}
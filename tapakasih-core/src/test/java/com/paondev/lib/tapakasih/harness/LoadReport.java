@@ -0,0 +1,85 @@
+package com.paondev.lib.tapakasih.harness;
+
+import java.util.Locale;
+
+/**
+ * Outcome of a LoadHarness run
+ */
+class LoadReport {
+    final String name;
+
+    int offered;
+    long rejectedAtIngestion;
+    long storeErrors;
+    int delivered;
+    int undelivered;
+    int stillQueued;
+    int lost;
+    long droppedOverBudget;
+    long failed;
+    int uploadingProcesses;
+    long duplicates;
+    long requests;
+    long injectedFaults;
+    double loadSeconds;
+    double totalSeconds;
+    long heapBeforeBytes;
+    long heapPeakBytes;
+    long heapAfterBytes;
+
+    private long[] latencies = new long[0];
+    private int latencyCount;
+
+    LoadReport(String name) {
+        this.name = name;
+    }
+
+    void setLatencies(long[] sortedLatencies, int count) {
+        this.latencies = sortedLatencies;
+        this.latencyCount = count;
+    }
+
+    /**
+     * @param percentile 0 to 100
+     * @return End-to-end delivery latency in milliseconds, from offer to the server receiving it
+     */
+    double latencyMs(double percentile) {
+        if (latencyCount == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100.0 * latencyCount) - 1;
+        return latencies[Math.max(0, Math.min(latencyCount - 1, index))] / 1e6;
+    }
+
+    double offeredPerSecond() {
+        return offered / loadSeconds;
+    }
+
+    double deliveredPerSecond() {
+        return delivered / totalSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "%n=== %s ===%n"
+                        + "offered        %,d events in %.1f s (%,.0f/s)%n"
+                        + "delivered      %,d events in %.1f s (%,.0f/s), %,d requests, %,d injected faults%n"
+                        + "latency ms     p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f%n"
+                        + "rejected       %,d at ingestion (buffer full), %,d store errors%n"
+                        + "undelivered    %,d (%,d still queued, %,d lost), %,d duplicates%n"
+                        + "dropped        %,d over budget, %,d failed%n"
+                        + "uploaders      %,d process(es)%n"
+                        + "heap MB        before %.1f  peak %.1f  after %.1f  growth %+.1f%n",
+                name,
+                offered, loadSeconds, offeredPerSecond(),
+                delivered, totalSeconds, deliveredPerSecond(), requests, injectedFaults,
+                latencyMs(50), latencyMs(90), latencyMs(99), latencyMs(99.9), latencyMs(100),
+                rejectedAtIngestion, storeErrors,
+                undelivered, stillQueued, lost, duplicates,
+                droppedOverBudget, failed,
+                uploadingProcesses,
+                heapBeforeBytes / 1e6, heapPeakBytes / 1e6, heapAfterBytes / 1e6,
+                (heapAfterBytes - heapBeforeBytes) / 1e6);
+    }
+}
@@ -0,0 +1,156 @@
+package com.paondev.lib.tapakasih.harness;
+
+import com.paondev.lib.tapakasih.config.OverflowPolicy;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Load and soak runs of the event pipeline against the fake backend
+ *
+ * Excluded from the regular test task, run with ./gradlew :tapakasih-core:soakTest.
+ * Duration, rate and producer threads come from the tapakasih.soak.* system properties.
+ */
+public class SoakTest {
+    private static final long DURATION_MS = Long.getLong("tapakasih.soak.durationMs", 10_000);
+    private static final int EVENTS_PER_SECOND = Integer.getInteger("tapakasih.soak.eventsPerSecond", 10_000);
+    private static final int PRODUCER_THREADS = Integer.getInteger("tapakasih.soak.threads", 8);
+
+    private static LoadHarness harness() {
+        return new LoadHarness()
+                .duration(DURATION_MS)
+                .eventsPerSecond(EVENTS_PER_SECOND)
+                .producerThreads(PRODUCER_THREADS);
+    }
+
+    @Test
+    public void healthyBackend() throws Exception {
+        LoadReport report = harness().run("healthy backend");
+        System.out.println(report);
+
+        assertEquals(0, report.lost);
+        assertEquals(0, report.stillQueued);
+        assertEquals(0, report.duplicates);
+    }
+
+    @Test
+    public void dictionaryEncodedBatches() throws Exception {
+        LoadReport report = harness()
+                .dictionaryEncoding(true)
+                .faults(FakeBackend.Faults.none().latency(5).serverErrors(0.05))
+                .run("dictionary-encoded batches, 5% HTTP 503");
+        System.out.println(report);
+
+        assertEquals(0, report.lost);
+        assertEquals(0, report.duplicates);
+    }
+
+    @Test
+    public void slowBackend() throws Exception {
+        LoadReport report = harness()
+                .faults(FakeBackend.Faults.none().latency(50))
+                .run("50 ms backend latency");
+        System.out.println(report);
+
+        assertEquals(0, report.lost);
+        assertEquals(0, report.duplicates);
+    }
+
+    @Test
+    public void serverErrors() throws Exception {
+        LoadReport report = harness()
+                .faults(FakeBackend.Faults.none().latency(5).serverErrors(0.05))
+                .run("5% HTTP 503");
+        System.out.println(report);
+
+        assertEquals(0, report.lost);
+        assertEquals(0, report.duplicates);
+    }
+
+    @Test
+    public void unauthorized() throws Exception {
+        LoadReport report = harness()
+                .faults(FakeBackend.Faults.none().unauthorized(0.05))
+                .run("5% HTTP 401");
+        System.out.println(report);
+
+        assertEquals(0, report.lost);
+        assertEquals(0, report.duplicates);
+    }
+
+    @Test
+    public void throttledBackend() throws Exception {
+        LoadReport report = harness()
+                .faults(FakeBackend.Faults.none().throttled(0.05))
+                .run("5% HTTP 429 with Retry-After");
+        System.out.println(report);
+
+        // Throttled batches wait in the store, they are not retried as failures
+        assertEquals(0, report.lost);
+        assertEquals(0, report.duplicates);
+    }
+
+    @Test
+    public void droppedConnections() throws Exception {
+        LoadReport report = harness()
+                .faults(FakeBackend.Faults.none().disconnects(0.02))
+                .run("2% dropped connections");
+        System.out.println(report);
+
+        // Batches processed before the connection dropped are sent again, at least once delivery
+        assertEquals(0, report.lost);
+    }
+
+    @Test
+    public void memoryStoreUnderErrors() throws Exception {
+        LoadReport report = harness()
+                .durableStore(false)
+                .faults(FakeBackend.Faults.none().latency(5).serverErrors(0.05).disconnects(0.01))
+                .run("memory store, 5% HTTP 503 and 1% dropped connections");
+        System.out.println(report);
+
+        assertEquals(0, report.storeErrors);
+    }
+
+    @Test
+    public void backendDown() throws Exception {
+        LoadReport report = harness()
+                .faults(FakeBackend.Faults.none().serverErrors(1.0))
+                .run("backend down, then recovers");
+        System.out.println(report);
+
+        // The circuit breaker stops uploads, only probes reach the dead backend
+        assertTrue(report.injectedFaults < 20);
+        assertEquals(0, report.lost);
+        assertEquals(0, report.duplicates);
+    }
+
+    @Test
+    public void pendingBudgetUnderOutage() throws Exception {
+        LoadReport report = harness()
+                .durableStore(false)
+                .pendingBudget(2_000, OverflowPolicy.DROP_OLDEST)
+                .faults(FakeBackend.Faults.none().serverErrors(1.0))
+                .run("memory store, 2,000 event budget, backend down");
+        System.out.println(report);
+
+        // Only the oldest events are dropped, and each drop is counted
+        assertTrue(report.droppedOverBudget > 0);
+        assertEquals(report.lost, report.droppedOverBudget + report.failed);
+        assertEquals(0, report.duplicates);
+    }
+
+    @Test
+    public void multipleProcesses() throws Exception {
+        LoadReport report = harness()
+                .processes(3)
+                .faults(FakeBackend.Faults.none().latency(5).serverErrors(0.05))
+                .run("3 processes, one uploader, 5% HTTP 503");
+        System.out.println(report);
+
+        // The other processes hand their events off instead of uploading
+        assertEquals(1, report.uploadingProcesses);
+        assertEquals(0, report.lost);
+        assertEquals(0, report.duplicates);
+    }
+}
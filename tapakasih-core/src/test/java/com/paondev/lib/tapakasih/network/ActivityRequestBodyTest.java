@@ -0,0 +1,106 @@
+package com.paondev.lib.tapakasih.network;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import okio.Buffer;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ActivityRequestBodyTest {
+    // Quotes, backslashes, control characters, non-ASCII and a surrogate pair
+    private static final String TRICKY = "Page \"1\"\\\n\t\u0001\u00e9\u4e2d\ud83d\ude00";
+
+    @Test
+    public void contentLengthMatchesWrittenBytes() throws IOException {
+        for (ActivityRequestBody body : Arrays.asList(
+                ActivityRequestBody.forActivity(pageView(1L, "Home", "s")),
+                ActivityRequestBody.forActivity(pageView(-5L, TRICKY, null)),
+                ActivityRequestBody.forBatch(requests()),
+                ActivityRequestBody.forBatch(Collections.<ActivityRequest>emptyList()),
+                ActivityRequestBody.forDictionaryBatch(requests()),
+                ActivityRequestBody.forDictionaryBatch(Collections.<ActivityRequest>emptyList()))) {
+            Buffer buffer = write(body);
+            assertEquals(buffer.size(), body.contentLength());
+        }
+    }
+
+    @Test
+    public void bodyCanBeWrittenTwice() throws IOException {
+        ActivityRequestBody body = ActivityRequestBody.forBatch(requests());
+        assertEquals(write(body).readUtf8(), write(body).readUtf8());
+    }
+
+    @Test
+    public void batchUsesGsonFieldNames() throws IOException {
+        JsonArray array = JsonParser.parseString(write(ActivityRequestBody.forBatch(requests())).readUtf8())
+                .getAsJsonArray();
+        assertEquals(3, array.size());
+
+        JsonObject first = array.get(0).getAsJsonObject();
+        assertEquals(1_700_000_000L, first.get("epochtime").getAsLong());
+        assertEquals(TRICKY, first.get("pageName").getAsString());
+        assertEquals("session-a", first.get("sessionId").getAsString());
+        assertFalse(first.has("dwellTimeMs"));
+
+        assertTrue(array.get(1).getAsJsonObject().get("sessionId").isJsonNull());
+
+        JsonObject dwell = array.get(2).getAsJsonObject();
+        assertEquals(4_500L, dwell.get("dwellTimeMs").getAsLong());
+        assertEquals(2, dwell.get("visits").getAsInt());
+    }
+
+    @Test
+    public void dictionaryBatchListsNamesOnce() throws IOException {
+        JsonObject json = JsonParser.parseString(
+                write(ActivityRequestBody.forDictionaryBatch(requests())).readUtf8()).getAsJsonObject();
+
+        JsonArray pages = json.getAsJsonArray("pages");
+        assertEquals(2, pages.size());
+        assertEquals(TRICKY, pages.get(0).getAsString());
+        assertEquals("Settings", pages.get(1).getAsString());
+
+        JsonArray events = json.getAsJsonArray("events");
+        assertEquals(3, events.size());
+        JsonArray sessions = json.getAsJsonArray("sessions");
+        for (int i = 0; i < events.size(); i++) {
+            JsonObject event = events.get(i).getAsJsonObject();
+            ActivityRequest request = requests().get(i);
+            assertEquals(request.getEpochTime(), event.get("t").getAsLong());
+            assertEquals(request.getPageName(), pages.get(event.get("p").getAsInt()).getAsString());
+            if (request.getSessionId() == null) {
+                assertTrue(sessions.get(event.get("s").getAsInt()).isJsonNull());
+            } else {
+                assertEquals(request.getSessionId(), sessions.get(event.get("s").getAsInt()).getAsString());
+            }
+            assertEquals(request.isDwellSummary(), event.has("d"));
+        }
+        assertEquals(4_500L, events.get(2).getAsJsonObject().get("d").getAsLong());
+        assertEquals(2, events.get(2).getAsJsonObject().get("v").getAsInt());
+    }
+
+    private static List<ActivityRequest> requests() {
+        ActivityRequest dwell = pageView(1_700_000_002L, TRICKY, "session-a");
+        dwell.setDwellTimeMs(4_500L);
+        dwell.setVisits(2);
+        return Arrays.asList(
+                pageView(1_700_000_000L, TRICKY, "session-a"),
+                pageView(1_700_000_001L, "Settings", null),
+                dwell);
+    }
+
+    private static ActivityRequest pageView(long epochTime, String pageName, String sessionId) {
+        return new ActivityRequest(epochTime, pageName, sessionId);
+    }
+
+    private static Buffer write(ActivityRequestBody body) throws IOException {
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        return buffer;
+    }
+}
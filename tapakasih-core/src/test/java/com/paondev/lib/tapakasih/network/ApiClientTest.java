@@ -0,0 +1,102 @@
+package com.paondev.lib.tapakasih.network;
+
+import com.paondev.lib.tapakasih.config.TapakAsihConfig;
+import com.paondev.lib.tapakasih.platform.TokenProvider;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ApiClientTest {
+    private MockWebServer server;
+    private ApiClient apiClient;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        TapakAsihConfig config = new TapakAsihConfig.Builder("test-token")
+                .setBaseUrl(server.url("/").toString())
+                .build();
+        apiClient = new ApiClient(new FixedTokenProvider(), config);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    public void throttledWithRetryAfterSeconds() {
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "30"));
+
+        BatchResult result = apiClient.sendActivities(batch());
+        assertEquals(BatchResult.Status.THROTTLED, result.getStatus());
+        assertEquals(30_000, result.getRetryAfterMs());
+    }
+
+    @Test
+    public void serverErrorIsRetryableFailure() {
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "5"));
+
+        BatchResult result = apiClient.sendActivities(batch());
+        assertEquals(BatchResult.Status.FAILED, result.getStatus());
+        assertEquals(5_000, result.getRetryAfterMs());
+    }
+
+    @Test
+    public void clientErrorsAreRejected() {
+        for (int code : new int[] {400, 404, 413, 422}) {
+            server.enqueue(new MockResponse().setResponseCode(code));
+            assertEquals("HTTP " + code, BatchResult.Status.REJECTED, apiClient.sendActivities(batch()).getStatus());
+        }
+    }
+
+    @Test
+    public void requestTimeoutIsRetryableFailure() {
+        // OkHttp retries a 408 once by itself
+        server.enqueue(new MockResponse().setResponseCode(408));
+        server.enqueue(new MockResponse().setResponseCode(408));
+
+        assertEquals(BatchResult.Status.FAILED, apiClient.sendActivities(batch()).getStatus());
+    }
+
+    @Test
+    public void sentWithPerEventFailures() {
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setBody("{\"failed\":[{\"index\":0,\"retryable\":true},{\"index\":1,\"retryable\":false}]}"));
+
+        BatchResult result = apiClient.sendActivities(batch());
+        assertEquals(BatchResult.Status.SENT, result.getStatus());
+        assertEquals(Collections.singletonList(0), result.getRetryIndices());
+        assertEquals(1, result.getRejectedCount());
+    }
+
+    private static List<ActivityRequest> batch() {
+        return Arrays.asList(
+                new ActivityRequest(1_700_000_000L, "HomePage", "session"),
+                new ActivityRequest(1_700_000_001L, "DetailPage", "session"));
+    }
+
+    private static final class FixedTokenProvider implements TokenProvider {
+        @Override
+        public String getDeveloperToken() {
+            return "test-token";
+        }
+
+        @Override
+        public boolean isTokenExpired() {
+            return false;
+        }
+
+        @Override
+        public void markTokenAsExpired() {
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.paondev.lib.tapakasih.queue;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class CircuitBreakerTest {
+    private static final long OPEN_MS = 50;
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 1.0, 20, OPEN_MS, 1000);
+        for (int i = 0; i < 2; i++) {
+            assertTrue(breaker.allowRequest());
+            breaker.onFailure();
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertTrue(breaker.getRemainingOpenMs() > 0);
+    }
+
+    @Test
+    public void successResetsConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 1.0, 20, OPEN_MS, 1000);
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    public void opensOnFailureRateOverFullWindow() {
+        CircuitBreaker breaker = new CircuitBreaker(100, 0.5, 4, OPEN_MS, 1000);
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        // Window full with 2 failures out of 4
+        breaker.onSuccess();
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    public void halfOpenLetsSingleProbeThrough() throws InterruptedException {
+        CircuitBreaker breaker = openBreaker();
+        Thread.sleep(OPEN_MS + 20);
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void skippedProbeLetsNextRequestProbe() throws InterruptedException {
+        CircuitBreaker breaker = openBreaker();
+        Thread.sleep(OPEN_MS + 20);
+
+        assertTrue(breaker.allowRequest());
+        breaker.onSkipped();
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    public void failedProbeDoublesOpenTime() throws InterruptedException {
+        CircuitBreaker breaker = openBreaker();
+        Thread.sleep(OPEN_MS + 20);
+
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertTrue(breaker.getRemainingOpenMs() > OPEN_MS);
+    }
+
+    private static CircuitBreaker openBreaker() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 1.0, 20, OPEN_MS, 1000);
+        assertTrue(breaker.allowRequest());
+        breaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        return breaker;
+    }
+}
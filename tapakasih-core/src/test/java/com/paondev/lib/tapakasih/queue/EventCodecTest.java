@@ -0,0 +1,64 @@
+package com.paondev.lib.tapakasih.queue;
+
+import com.paondev.lib.tapakasih.network.ActivityRequest;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EventCodecTest {
+
+    @Test
+    public void pageViewRoundTrip() throws IOException {
+        ActivityRequest request = new ActivityRequest(1_700_000_000L, "HomePage", "session-\u00fc");
+        request.setTrackedAtMillis(1_700_000_000_123L);
+
+        ActivityRequest decoded = EventCodec.decode(EventCodec.encode(request));
+        assertEquals("HomePage", decoded.getPageName());
+        assertEquals("session-\u00fc", decoded.getSessionId());
+        assertEquals(1_700_000_000_123L, decoded.getTrackedAtMillis());
+        assertEquals(1_700_000_000L, decoded.getEpochTime());
+        assertFalse(decoded.isDwellSummary());
+    }
+
+    @Test
+    public void dwellSummaryRoundTrip() throws IOException {
+        ActivityRequest request = new ActivityRequest(1_700_000_000L, "HomePage", "session");
+        request.setTrackedAtMillis(1_700_000_000_000L);
+        request.setDwellTimeMs(12_345L);
+        request.setVisits(3);
+
+        ActivityRequest decoded = EventCodec.decode(EventCodec.encode(request));
+        assertTrue(decoded.isDwellSummary());
+        assertEquals(Long.valueOf(12_345L), decoded.getDwellTimeMs());
+        assertEquals(Integer.valueOf(3), decoded.getVisits());
+    }
+
+    @Test
+    public void decodesVersion1EpochSeconds() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(1);
+        out.writeLong(1_600_000_000L);
+        out.writeUTF("OldPage");
+        out.writeUTF("old-session");
+
+        ActivityRequest decoded = EventCodec.decode(bytes.toByteArray());
+        assertEquals(1_600_000_000L, decoded.getEpochTime());
+        assertEquals("OldPage", decoded.getPageName());
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnknownVersion() throws IOException {
+        EventCodec.decode(new byte[] {9, 0, 0});
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsTruncatedRecord() throws IOException {
+        ActivityRequest request = new ActivityRequest(1L, "HomePage", "session");
+        byte[] record = EventCodec.encode(request);
+        EventCodec.decode(java.util.Arrays.copyOf(record, record.length - 2));
+    }
+}
@@ -0,0 +1,216 @@
+package com.paondev.lib.tapakasih.queue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class EventJournalTest {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readDoesNotRemoveUntilCommit() throws IOException {
+        EventJournal journal = open(1024);
+        append(journal, "a", "b", "c");
+
+        EventStore.Batch batch = journal.read(2, Long.MAX_VALUE);
+        assertEquals(Arrays.asList("a", "b"), strings(batch));
+        assertEquals(Arrays.asList("a", "b"), strings(journal.read(2, Long.MAX_VALUE)));
+
+        journal.commit(batch);
+        assertEquals(1, journal.getPendingCount());
+        assertEquals(Arrays.asList("c"), strings(journal.read(10, Long.MAX_VALUE)));
+        journal.close();
+    }
+
+    @Test
+    public void readRespectsMaxBytesButReturnsAtLeastOneRecord() throws IOException {
+        EventJournal journal = open(1024);
+        append(journal, "aaaa", "bbbb", "cccc");
+
+        assertEquals(Arrays.asList("aaaa", "bbbb"), strings(journal.read(10, 8)));
+        assertEquals(Arrays.asList("aaaa"), strings(journal.read(10, 1)));
+        journal.close();
+    }
+
+    @Test
+    public void cursorSurvivesReopen() throws IOException {
+        EventJournal journal = open(1024);
+        append(journal, "a", "b", "c");
+        journal.commit(journal.read(1, Long.MAX_VALUE));
+        journal.close();
+
+        EventJournal reopened = open(1024);
+        assertEquals(2, reopened.getPendingCount());
+        assertEquals(Arrays.asList("b", "c"), strings(reopened.read(10, Long.MAX_VALUE)));
+        reopened.close();
+    }
+
+    @Test
+    public void rollsSegmentsAndDeletesConsumedOnes() throws IOException {
+        // Each record takes 18 bytes, 2 fit in a segment
+        EventJournal journal = open(40);
+        append(journal, "0123456789", "0123456789", "0123456789", "0123456789", "0123456789");
+        assertEquals(3, segmentCount());
+        assertEquals(5, journal.getPendingCount());
+        assertEquals(5 * 18, journal.getPendingBytes());
+
+        EventStore.Batch batch = journal.read(3, Long.MAX_VALUE);
+        assertEquals(3, batch.getRecords().size());
+        journal.commit(batch);
+        assertEquals(2, segmentCount());
+        assertEquals(2, journal.getPendingCount());
+        assertEquals(2 * 18, journal.getPendingBytes());
+
+        journal.commit(journal.read(10, Long.MAX_VALUE));
+        assertTrue(journal.isEmpty());
+        assertEquals(0, journal.getPendingBytes());
+        assertEquals(1, segmentCount());
+        journal.close();
+    }
+
+    @Test
+    public void pendingBytesSurviveReopen() throws IOException {
+        EventJournal journal = open(40);
+        append(journal, "0123456789", "0123456789", "0123456789", "0123456789");
+        journal.commit(journal.read(1, Long.MAX_VALUE));
+        long pendingBytes = journal.getPendingBytes();
+        assertEquals(3 * 18, pendingBytes);
+        journal.close();
+
+        EventJournal reopened = open(40);
+        assertEquals(pendingBytes, reopened.getPendingBytes());
+        reopened.commit(reopened.read(2, Long.MAX_VALUE));
+        assertEquals(18, reopened.getPendingBytes());
+        reopened.close();
+    }
+
+    @Test
+    public void tornTailIsTruncatedOnOpen() throws IOException {
+        EventJournal journal = open(1024);
+        append(journal, "first", "second");
+        journal.close();
+
+        // Crash in the middle of writing the second record
+        File segment = onlySegment();
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+
+        EventJournal reopened = open(1024);
+        assertEquals(1, reopened.getPendingCount());
+        assertEquals(RECORD_HEADER_SIZE + 5, segment.length());
+        append(reopened, "third");
+        assertEquals(Arrays.asList("first", "third"), strings(reopened.read(10, Long.MAX_VALUE)));
+        reopened.close();
+    }
+
+    @Test
+    public void corruptedRecordSkipsRestOfSealedSegment() throws IOException {
+        EventJournal journal = open(30);
+        append(journal, "aaaaaaa", "bbbbbbb", "ccccccc", "ddddddd");
+        journal.close();
+
+        // Flip a payload byte of the first record in the first segment
+        File first = segments()[0];
+        try (RandomAccessFile raf = new RandomAccessFile(first, "rw")) {
+            raf.seek(RECORD_HEADER_SIZE);
+            raf.write('x');
+        }
+
+        EventJournal reopened = open(30);
+        assertEquals(Arrays.asList("ccccccc", "ddddddd"), strings(reopened.read(10, Long.MAX_VALUE)));
+        reopened.close();
+    }
+
+    @Test
+    public void corruptedCursorRestartsFromFirstSegment() throws IOException {
+        EventJournal journal = open(1024);
+        append(journal, "a", "b");
+        journal.commit(journal.read(1, Long.MAX_VALUE));
+        journal.close();
+
+        try (RandomAccessFile raf = new RandomAccessFile(new File(dir(), "cursor"), "rw")) {
+            raf.seek(0);
+            raf.write(0x7F);
+        }
+
+        // Nothing is lost, the committed record is sent again
+        EventJournal reopened = open(1024);
+        assertEquals(Arrays.asList("a", "b"), strings(reopened.read(10, Long.MAX_VALUE)));
+        reopened.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsEmptyRecord() throws IOException {
+        EventJournal journal = open(1024);
+        try {
+            journal.append(new byte[0]);
+        } finally {
+            journal.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void closedJournalRejectsAppend() throws IOException {
+        EventJournal journal = open(1024);
+        journal.close();
+        append(journal, "a");
+    }
+
+    private EventJournal open(long segmentSize) throws IOException {
+        return new EventJournal(dir(), segmentSize);
+    }
+
+    private File dir() {
+        return new File(folder.getRoot(), "journal");
+    }
+
+    private File[] segments() {
+        List<File> segments = new ArrayList<>();
+        for (File file : dir().listFiles()) {
+            if (file.getName().endsWith(".seg")) {
+                segments.add(file);
+            }
+        }
+        File[] files = segments.toArray(new File[0]);
+        Arrays.sort(files);
+        return files;
+    }
+
+    private int segmentCount() {
+        return segments().length;
+    }
+
+    private File onlySegment() {
+        File[] files = segments();
+        assertEquals(1, files.length);
+        return files[0];
+    }
+
+    private static void append(EventJournal journal, String... records) throws IOException {
+        for (String record : records) {
+            journal.append(record.getBytes(UTF_8));
+        }
+    }
+
+    private static List<String> strings(EventStore.Batch batch) {
+        List<String> strings = new ArrayList<>();
+        for (byte[] record : batch.getRecords()) {
+            strings.add(new String(record, UTF_8));
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,121 @@
+package com.paondev.lib.tapakasih.queue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EventRingBufferTest {
+
+    @Test
+    public void capacityIsRoundedUpToPowerOfTwo() {
+        assertEquals(8, new EventRingBuffer(5).capacity());
+        assertEquals(8, new EventRingBuffer(8).capacity());
+    }
+
+    @Test
+    public void drainsInOfferOrder() {
+        EventRingBuffer buffer = new EventRingBuffer(4);
+        assertTrue(buffer.isEmpty());
+        assertTrue(buffer.offer(1, "A", "s1"));
+        assertTrue(buffer.offer(2, "B", null));
+        assertEquals(2, buffer.size());
+
+        Recorder recorder = new Recorder();
+        assertEquals(2, buffer.drain(recorder, 10));
+        assertEquals(2, recorder.events.size());
+        assertEquals("1 A s1", recorder.events.get(0));
+        assertEquals("2 B null", recorder.events.get(1));
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void rejectsWhenFullAndReusesDrainedSlots() {
+        EventRingBuffer buffer = new EventRingBuffer(2);
+        assertTrue(buffer.offer(1, "A", "s"));
+        assertTrue(buffer.offer(2, "B", "s"));
+        assertFalse(buffer.offer(3, "C", "s"));
+
+        Recorder recorder = new Recorder();
+        assertEquals(1, buffer.drain(recorder, 1));
+        assertTrue(buffer.offer(4, "D", "s"));
+        assertEquals(2, buffer.drain(recorder, 10));
+        assertEquals("2 B s", recorder.events.get(1));
+        assertEquals("4 D s", recorder.events.get(2));
+    }
+
+    @Test
+    public void wrapsAroundManyLaps() {
+        EventRingBuffer buffer = new EventRingBuffer(4);
+        Recorder recorder = new Recorder();
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(buffer.offer(i, "P", "s"));
+            assertTrue(buffer.offer(i, "Q", "s"));
+            assertEquals(2, buffer.drain(recorder, 10));
+        }
+        assertEquals(2000, recorder.events.size());
+    }
+
+    @Test
+    public void concurrentProducersLoseNothing() throws InterruptedException {
+        final int producers = 4;
+        final int perProducer = 20_000;
+        final EventRingBuffer buffer = new EventRingBuffer(1024);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final String page = "P" + p;
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        while (!buffer.offer(i, page, "s")) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            threads[p].start();
+        }
+
+        // Every producer's events must arrive complete and in its own order
+        final long[] next = new long[producers];
+        EventRingBuffer.Consumer checker = new EventRingBuffer.Consumer() {
+            @Override
+            public void accept(long trackedAtMillis, String pageName, String sessionId) {
+                int producer = Integer.parseInt(pageName.substring(1));
+                assertEquals(next[producer], trackedAtMillis);
+                assertEquals("s", sessionId);
+                next[producer]++;
+            }
+        };
+        start.countDown();
+        long received = 0;
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (received < (long) producers * perProducer && System.currentTimeMillis() < deadline) {
+            received += buffer.drain(checker, 256);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals((long) producers * perProducer, received);
+        assertTrue(buffer.isEmpty());
+    }
+
+    private static final class Recorder implements EventRingBuffer.Consumer {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void accept(long trackedAtMillis, String pageName, String sessionId) {
+            events.add(trackedAtMillis + " " + pageName + " " + sessionId);
+        }
+    }
+}
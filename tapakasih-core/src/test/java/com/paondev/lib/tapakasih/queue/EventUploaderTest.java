@@ -0,0 +1,172 @@
+package com.paondev.lib.tapakasih.queue;
+
+import com.paondev.lib.tapakasih.config.TapakAsihConfig;
+import com.paondev.lib.tapakasih.metrics.PipelineMetrics;
+import com.paondev.lib.tapakasih.network.ActivityRequest;
+import com.paondev.lib.tapakasih.network.ApiClient;
+import com.paondev.lib.tapakasih.platform.TokenProvider;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.QueueDispatcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class EventUploaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private EventStore store;
+    private EventStore retryStore;
+    private PipelineMetrics metrics;
+    private EventUploader uploader;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new MockWebServer();
+        // Requests beyond the queued responses fail, instead of waiting for one
+        QueueDispatcher dispatcher = new QueueDispatcher();
+        dispatcher.setFailFast(new MockResponse().setResponseCode(503).setHeader("Retry-After", "60"));
+        server.setDispatcher(dispatcher);
+        server.start();
+        TapakAsihConfig config = new TapakAsihConfig.Builder("test-token")
+                .setBaseUrl(server.url("/").toString())
+                .setMaxBatchSize(10)
+                .build();
+        store = new EventJournal(new File(folder.getRoot(), "journal"), 64 * 1024);
+        retryStore = new EventJournal(new File(folder.getRoot(), "retry"), 64 * 1024);
+        metrics = new PipelineMetrics();
+        uploader = new EventUploader(store, retryStore, new ApiClient(new FixedTokenProvider(), config), config,
+                metrics);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        uploader.shutdown();
+        store.close();
+        retryStore.close();
+        server.shutdown();
+    }
+
+    @Test
+    public void rejectedBatchIsDroppedNotParked() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(400));
+        enqueue(3);
+
+        assertTrue(uploader.flushAndWait(5_000));
+        assertTrue(store.isEmpty());
+        assertTrue(retryStore.isEmpty());
+        assertEquals(3, metrics.snapshot(0, 0).getFailed());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    public void serverErrorParksBatchForRetry() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "60"));
+        enqueue(3);
+
+        assertFalse(uploader.flushAndWait(5_000));
+        assertTrue(store.isEmpty());
+        assertEquals(3, retryStore.getPendingCount());
+        assertEquals(0, metrics.snapshot(0, 0).getFailed());
+    }
+
+    @Test
+    public void retriedEventsAreRequeued() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setBody("{\"failed\":[{\"index\":1,\"retryable\":true}]}"));
+        enqueue(3);
+
+        assertFalse(uploader.flushAndWait(5_000));
+        assertEquals(1, store.getPendingCount());
+        assertEquals(2, metrics.snapshot(0, 0).getSent());
+        assertEquals("Page1", EventCodec.decode(store.read(1, Long.MAX_VALUE).getRecords().get(0)).getPageName());
+    }
+
+    @Test
+    public void repeatedFailedIndexIsCountedOnce() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200)
+                .setBody("{\"failed\":[{\"index\":1,\"retryable\":true},{\"index\":1,\"retryable\":true},"
+                        + "{\"index\":2,\"retryable\":false},{\"index\":2,\"retryable\":false}]}"));
+        enqueue(3);
+
+        assertFalse(uploader.flushAndWait(5_000));
+        assertEquals(1, store.getPendingCount());
+        assertEquals(1, metrics.snapshot(0, 0).getSent());
+        assertEquals(1, metrics.snapshot(0, 0).getFailed());
+        assertEquals(1, metrics.snapshot(0, 0).getRetried());
+    }
+
+    @Test
+    public void trimDropsSingleEventsFromParkedBatch() throws Exception {
+        uploader.shutdown();
+        TapakAsihConfig config = new TapakAsihConfig.Builder("test-token")
+                .setBaseUrl(server.url("/").toString())
+                .setMaxBatchSize(10)
+                .setMaxBatchLingerMs(60_000)
+                .setMaxPendingEvents(4)
+                .build();
+        uploader = new EventUploader(store, retryStore, new ApiClient(new FixedTokenProvider(), config), config,
+                metrics);
+        server.enqueue(new MockResponse().setResponseCode(503).setHeader("Retry-After", "60"));
+        enqueue(3);
+        assertFalse(uploader.flushAndWait(5_000));
+        assertEquals(3, retryStore.getPendingCount());
+
+        // One event over the budget drops one parked event, not the whole batch
+        enqueue(2);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (metrics.snapshot(0, 0).getDroppedTotal() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, metrics.snapshot(0, 0).getDroppedTotal());
+        assertEquals(2, retryStore.getPendingCount());
+        assertEquals(2, store.getPendingCount());
+        assertEquals("Page1", EventCodec.decode(retryStore.read(1, Long.MAX_VALUE).getRecords().get(0)).getPageName());
+    }
+
+    @Test
+    public void shutdownWaitsForRunningFlushToCommit() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(200).setBodyDelay(300, TimeUnit.MILLISECONDS));
+        enqueue(3);
+        uploader.requestFlush();
+        assertNotNull(server.takeRequest(5, TimeUnit.SECONDS));
+
+        assertTrue(uploader.shutdown());
+        // The stores can be closed now, the batch is committed and not sent again
+        assertTrue(store.isEmpty());
+        assertEquals(3, metrics.snapshot(0, 0).getSent());
+    }
+
+    private void enqueue(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            ActivityRequest request = new ActivityRequest(1_700_000_000L + i, "Page" + i, "session");
+            request.setTrackedAtMillis(System.currentTimeMillis());
+            assertTrue(uploader.enqueue(EventCodec.encode(request)));
+        }
+    }
+
+    private static final class FixedTokenProvider implements TokenProvider {
+        @Override
+        public String getDeveloperToken() {
+            return "test-token";
+        }
+
+        @Override
+        public boolean isTokenExpired() {
+            return false;
+        }
+
+        @Override
+        public void markTokenAsExpired() {
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.paondev.lib.tapakasih.queue;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RateLimiterTest {
+    private static final long MAX_THROTTLE_MS = 60 * 60 * 1000;
+
+    @Test
+    public void burstThenWaitsForRefill() {
+        RateLimiter limiter = new RateLimiter(60, 1, 3, MAX_THROTTLE_MS, RateLimiter.Persistence.NONE);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.getDelayMs());
+            limiter.consume();
+        }
+        // One token per second at 60/min
+        long delay = limiter.getDelayMs();
+        assertTrue(delay > 900 && delay <= 1000);
+    }
+
+    @Test
+    public void throttleHonorsRetryAfterAndHalvesRate() {
+        MemoryPersistence persistence = new MemoryPersistence();
+        RateLimiter limiter = new RateLimiter(60, 1, 10, MAX_THROTTLE_MS, persistence);
+        limiter.onThrottled(30_000);
+
+        long delay = limiter.getDelayMs();
+        assertTrue(delay > 29_000 && delay <= 30_000);
+        assertEquals(0, persistence.state.getTokens(), 0);
+        assertEquals(30, persistence.state.getRatePerMinute(), 0);
+    }
+
+    @Test
+    public void retryAfterIsCapped() {
+        RateLimiter limiter = new RateLimiter(60, 1, 10, 5_000, RateLimiter.Persistence.NONE);
+        limiter.onThrottled(MAX_THROTTLE_MS);
+        assertTrue(limiter.getDelayMs() <= 5_000);
+    }
+
+    @Test
+    public void rateNeverDropsBelowMinimum() {
+        MemoryPersistence persistence = new MemoryPersistence();
+        RateLimiter limiter = new RateLimiter(60, 10, 10, MAX_THROTTLE_MS, persistence);
+        for (int i = 0; i < 10; i++) {
+            limiter.onThrottled(0);
+        }
+        assertEquals(10, persistence.state.getRatePerMinute(), 0);
+    }
+
+    @Test
+    public void acceptedUploadsRecoverRate() {
+        MemoryPersistence persistence = new MemoryPersistence();
+        RateLimiter limiter = new RateLimiter(60, 1, 10, MAX_THROTTLE_MS, persistence);
+        limiter.onThrottled(0);
+        limiter.onAccepted();
+        assertEquals(36, persistence.state.getRatePerMinute(), 0);
+        for (int i = 0; i < 10; i++) {
+            limiter.onAccepted();
+        }
+        assertEquals(60, persistence.state.getRatePerMinute(), 0);
+    }
+
+    @Test
+    public void throttleSurvivesRestart() {
+        MemoryPersistence persistence = new MemoryPersistence();
+        new RateLimiter(60, 1, 10, MAX_THROTTLE_MS, persistence).onThrottled(30_000);
+
+        RateLimiter restarted = new RateLimiter(60, 1, 10, MAX_THROTTLE_MS, persistence);
+        assertTrue(restarted.getDelayMs() > 29_000);
+    }
+
+    private static final class MemoryPersistence implements RateLimiter.Persistence {
+        RateLimiter.State state;
+
+        @Override
+        public RateLimiter.State load() {
+            return state;
+        }
+
+        @Override
+        public void save(RateLimiter.State state) {
+            this.state = state;
+        }
+    }
+}
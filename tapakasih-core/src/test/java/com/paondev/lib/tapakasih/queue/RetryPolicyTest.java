@@ -0,0 +1,46 @@
+package com.paondev.lib.tapakasih.queue;
+
+import java.util.Random;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void delayGrowsExponentiallyWithinJitterRange() {
+        RetryPolicy policy = new RetryPolicy(10, 1000, 60_000, Long.MAX_VALUE, new Random(42));
+        for (int attempts = 1; attempts <= 5; attempts++) {
+            long ceiling = 1000L << (attempts - 1);
+            long delay = policy.nextDelay(attempts, 0, 0);
+            assertTrue("attempt " + attempts + ": " + delay, delay >= ceiling / 2 && delay <= ceiling);
+        }
+    }
+
+    @Test
+    public void delayIsCappedAtMaxDelay() {
+        RetryPolicy policy = new RetryPolicy(100, 1000, 60_000, Long.MAX_VALUE, new Random(42));
+        long delay = policy.nextDelay(40, 0, 0);
+        assertTrue(delay >= 30_000 && delay <= 60_000);
+    }
+
+    @Test
+    public void retryAfterIsLowerBound() {
+        RetryPolicy policy = new RetryPolicy(10, 1000, 60_000, Long.MAX_VALUE, new Random(42));
+        assertEquals(45_000, policy.nextDelay(1, 0, 45_000));
+    }
+
+    @Test
+    public void stopsAfterMaxAttempts() {
+        RetryPolicy policy = new RetryPolicy(3, 1000, 60_000, Long.MAX_VALUE, new Random(42));
+        assertNotEquals(RetryPolicy.STOP, policy.nextDelay(2, 0, 0));
+        assertEquals(RetryPolicy.STOP, policy.nextDelay(3, 0, 0));
+    }
+
+    @Test
+    public void stopsWhenNextAttemptExceedsDuration() {
+        RetryPolicy policy = new RetryPolicy(10, 1000, 60_000, 10_000, new Random(42));
+        assertEquals(RetryPolicy.STOP, policy.nextDelay(1, 9_900, 0));
+        assertEquals(RetryPolicy.STOP, policy.nextDelay(1, 0, 20_000));
+    }
+}
@@ -0,0 +1,77 @@
+package com.paondev.lib.tapakasih.sampling;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SamplerTest {
+    private static final Map<String, Double> NO_PAGE_RATES = Collections.emptyMap();
+
+    @Test
+    public void fullAndZeroRates() {
+        assertTrue(new Sampler(1.0, NO_PAGE_RATES).isSampled("s", "Home", 1.0));
+        assertFalse(new Sampler(0.0, NO_PAGE_RATES).isSampled("s", "Home", 1.0));
+        assertFalse(new Sampler(1.0, NO_PAGE_RATES).isSampled("s", "Home", 0.0));
+    }
+
+    @Test
+    public void positionIsStableAndInRange() {
+        for (int i = 0; i < 1000; i++) {
+            String sessionId = "session-" + i;
+            double position = Sampler.position(sessionId);
+            assertTrue(position >= 0.0 && position < 1.0);
+            assertEquals(position, Sampler.position(new String(sessionId)), 0.0);
+        }
+    }
+
+    @Test
+    public void sessionIsFullyInOrOut() {
+        Sampler sampler = new Sampler(0.5, NO_PAGE_RATES);
+        for (int i = 0; i < 100; i++) {
+            String sessionId = "session-" + i;
+            boolean sampled = sampler.isSampled(sessionId, "Home", 1.0);
+            assertEquals(sampled, sampler.isSampled(sessionId, "Settings", 1.0));
+            assertEquals(sampled, Sampler.position(sessionId) < 0.5);
+        }
+    }
+
+    @Test
+    public void keepsAboutTheConfiguredFraction() {
+        Sampler sampler = new Sampler(0.25, NO_PAGE_RATES);
+        int sampled = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (sampler.isSampled("session-" + i, "Home", 1.0)) {
+                sampled++;
+            }
+        }
+        assertTrue("sampled " + sampled, sampled > 2_250 && sampled < 2_750);
+    }
+
+    @Test
+    public void loweringRateOnlyRemovesSessions() {
+        Sampler high = new Sampler(0.6, NO_PAGE_RATES);
+        Sampler low = new Sampler(0.3, NO_PAGE_RATES);
+        for (int i = 0; i < 1000; i++) {
+            String sessionId = "session-" + i;
+            if (low.isSampled(sessionId, "Home", 1.0)) {
+                assertTrue(high.isSampled(sessionId, "Home", 1.0));
+            }
+        }
+    }
+
+    @Test
+    public void ratesMultiply() {
+        Map<String, Double> pageRates = new HashMap<>();
+        pageRates.put("Home", 0.5);
+        Sampler sampler = new Sampler(0.8, pageRates);
+        for (int i = 0; i < 1000; i++) {
+            String sessionId = "session-" + i;
+            double position = Sampler.position(sessionId);
+            assertEquals(position < 0.8 * 0.5 * 0.5, sampler.isSampled(sessionId, "Home", 0.5));
+            assertEquals(position < 0.8, sampler.isSampled(sessionId, "Settings", 1.0));
+        }
+    }
+}